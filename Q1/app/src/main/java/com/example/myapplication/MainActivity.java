@@ -1,31 +1,86 @@
 package com.example.lengthconverter;
 
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
 import android.os.Bundle;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextUtils;
+import android.text.TextWatcher;
+import android.util.Log;
 import android.view.View;
+import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.CheckBox;
+import android.widget.CompoundButton;
 import android.widget.EditText;
 import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
-import java.text.DecimalFormat;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
 
 public class MainActivity extends AppCompatActivity {
 
+    private static final String TAG = "MainActivity";
+
     private EditText inputValue;
+    private Spinner spinnerDimension;
     private Spinner spinnerFrom;
     private Spinner spinnerTo;
     private Button buttonConvert;
     private TextView textResult;
+    private CheckBox checkExact;
+    private CheckBox checkAllUnits;
+    private RecyclerView listAllUnits;
+
+    // Parsed once per process, so recreating the activity doesn't reload it
+    private static final String UNITS_ASSET = "units.txt";
+    private static UnitRegistry registry;
+    // Selected dimension; its units are indexed like the from/to spinners
+    private UnitRegistry.Dimension dimension;
+    // Fraction digits shown for exact results that don't terminate
+    private static final int EXACT_MAX_FRACTION_DIGITS = 15;
+    // Same precision as the old "#.#####" format
+    private static final int RESULT_FRACTION_DIGITS = 5;
+    private static final String RESULT_PLACEHOLDER = "Result will appear here";
 
-    // Conversion rates to meters (base unit)
-    private static final double FEET_TO_METERS = 0.3048;
-    private static final double INCHES_TO_METERS = 0.0254;
-    private static final double CM_TO_METERS = 0.01;
-    private static final double YARDS_TO_METERS = 0.9144;
+    // Typing is debounced; spinner and mode changes convert on the next frame
+    private static final long LIVE_CONVERSION_DELAY_MS = 150;
+    private final Handler liveHandler = new Handler(Looper.getMainLooper());
+    private final Runnable liveConversion = new Runnable() {
+        @Override
+        public void run() {
+            if (countAllocations) {
+                resetThreadAllocCount();
+            }
+            if (!updateResult()) {
+                showResult(RESULT_PLACEHOLDER);
+            }
+            if (countAllocations) {
+                Log.d(TAG, "Live update allocated " + getThreadAllocCount() + " objects");
+            }
+        }
+    };
+    // Reused for every result
+    private final DecimalText decimalText = new DecimalText(RESULT_FRACTION_DIGITS);
+    private final StringBuilder resultText = new StringBuilder(64);
+    // The input in every unit of the dimension, while the list is shown
+    private final AllUnitsAdapter allUnitsAdapter = new AllUnitsAdapter(decimalText);
+    // Debuggable builds log allocations per live update; the target is zero
+    private boolean countAllocations;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -34,18 +89,97 @@ public class MainActivity extends AppCompatActivity {
 
         // Initialize UI components
         inputValue = findViewById(R.id.input_value);
+        spinnerDimension = findViewById(R.id.spinner_dimension);
         spinnerFrom = findViewById(R.id.spinner_from);
         spinnerTo = findViewById(R.id.spinner_to);
         buttonConvert = findViewById(R.id.button_convert);
         textResult = findViewById(R.id.text_result);
+        checkExact = findViewById(R.id.check_exact);
+        checkAllUnits = findViewById(R.id.check_all_units);
+        listAllUnits = findViewById(R.id.list_all_units);
 
-        // Setup spinners with length units
-        ArrayAdapter<CharSequence> adapter = ArrayAdapter.createFromResource(
-                this, R.array.length_units, android.R.layout.simple_spinner_item);
-        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        try {
+            registry = loadRegistry(this);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to load unit definitions", e);
+            Toast.makeText(this, "Could not load units", Toast.LENGTH_LONG).show();
+            buttonConvert.setEnabled(false);
+            return;
+        }
 
-        spinnerFrom.setAdapter(adapter);
-        spinnerTo.setAdapter(adapter);
+        countAllocations = (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        if (countAllocations) {
+            startAllocCounting();
+        }
+
+        listAllUnits.setLayoutManager(new LinearLayoutManager(this));
+        listAllUnits.setHasFixedSize(true);
+        listAllUnits.setAdapter(allUnitsAdapter);
+
+        // Setup dimension spinner; choosing a dimension refills the unit spinners
+        ArrayAdapter<String> dimensionAdapter = new ArrayAdapter<>(
+                this, android.R.layout.simple_spinner_item, registry.getDimensionNames());
+        dimensionAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinnerDimension.setAdapter(dimensionAdapter);
+        selectDimension(registry.getDimension(0));
+
+        spinnerDimension.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                UnitRegistry.Dimension selected = registry.getDimension(position);
+                if (selected != dimension) {
+                    selectDimension(selected);
+                }
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+
+        // Live conversion on every keystroke, unit change and mode change
+        inputValue.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                scheduleLiveConversion(LIVE_CONVERSION_DELAY_MS);
+            }
+        });
+
+        AdapterView.OnItemSelectedListener unitListener = new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                scheduleLiveConversion(0);
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        };
+        spinnerFrom.setOnItemSelectedListener(unitListener);
+        spinnerTo.setOnItemSelectedListener(unitListener);
+
+        checkExact.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                scheduleLiveConversion(0);
+            }
+        });
+
+        checkAllUnits.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                listAllUnits.setVisibility(isChecked ? View.VISIBLE : View.GONE);
+                scheduleLiveConversion(0);
+            }
+        });
 
         // Set convert button click listener
         buttonConvert.setOnClickListener(new View.OnClickListener() {
@@ -56,69 +190,140 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        liveHandler.removeCallbacks(liveConversion);
+        if (countAllocations) {
+            stopAllocCounting();
+        }
+    }
+
+    // Deprecated but still supported; only used in debuggable builds
+    @SuppressWarnings("deprecation")
+    private static void startAllocCounting() {
+        Debug.startAllocCounting();
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void stopAllocCounting() {
+        Debug.stopAllocCounting();
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void resetThreadAllocCount() {
+        Debug.resetThreadAllocCount();
+    }
+
+    @SuppressWarnings("deprecation")
+    private static int getThreadAllocCount() {
+        return Debug.getThreadAllocCount();
+    }
+
+    // Logs the load time so growing the asset can be checked against startup
+    private static synchronized UnitRegistry loadRegistry(Context context) throws IOException {
+        if (registry == null) {
+            long start = System.nanoTime();
+            try (Reader reader = new BufferedReader(new InputStreamReader(
+                    context.getAssets().open(UNITS_ASSET), StandardCharsets.UTF_8))) {
+                registry = UnitRegistry.parse(reader);
+            }
+            Log.i(TAG, String.format(Locale.US, "Loaded %d units in %d dimensions in %.2f ms",
+                    registry.getUnitCount(), registry.getDimensionCount(),
+                    (System.nanoTime() - start) / 1e6));
+        }
+        return registry;
+    }
+
+    private void selectDimension(UnitRegistry.Dimension selected) {
+        dimension = selected;
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(
+                this, android.R.layout.simple_spinner_item, selected.getUnitNames());
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+
+        spinnerFrom.setAdapter(adapter);
+        spinnerTo.setAdapter(adapter);
+        allUnitsAdapter.setDimension(selected);
+        showResult(RESULT_PLACEHOLDER);
+    }
+
+    // Button path: converts right away and reports input it can't convert
     private void convertUnits() {
-        // Get user input
-        String valueStr = inputValue.getText().toString();
-        if (valueStr.isEmpty()) {
+        liveHandler.removeCallbacks(liveConversion);
+
+        if (inputValue.length() == 0) {
             Toast.makeText(this, "Please enter a value", Toast.LENGTH_SHORT).show();
             return;
         }
+        if (!updateResult()) {
+            Toast.makeText(this, "Invalid input", Toast.LENGTH_SHORT).show();
+        }
+    }
 
-        try {
-            double value = Double.parseDouble(valueStr);
-            int fromUnitPosition = spinnerFrom.getSelectedItemPosition();
-            int toUnitPosition = spinnerTo.getSelectedItemPosition();
+    // Restarts the debounce timer, so only the last change in a burst is converted
+    private void scheduleLiveConversion(long delayMillis) {
+        liveHandler.removeCallbacks(liveConversion);
+        liveHandler.postDelayed(liveConversion, delayMillis);
+    }
 
-            // Convert to meters first (base unit)
-            double valueInMeters = convertToMeters(value, fromUnitPosition);
+    // Allocates nothing but the final text in the default mode; false if there's no number yet
+    private boolean updateResult() {
+        if (dimension == null) {
+            return false;
+        }
+        int fromUnitPosition = spinnerFrom.getSelectedItemPosition();
+        int toUnitPosition = spinnerTo.getSelectedItemPosition();
+        if (fromUnitPosition == AdapterView.INVALID_POSITION || toUnitPosition == AdapterView.INVALID_POSITION) {
+            return false;
+        }
 
-            // Then convert from meters to target unit
-            double result = convertFromMeters(valueInMeters, toUnitPosition);
+        double value = DecimalText.parse(inputValue.getText());
 
-            // Format and display the result
-            DecimalFormat df = new DecimalFormat("#.#####");
-            String unitFrom = getResources().getStringArray(R.array.length_units)[fromUnitPosition];
-            String unitTo = getResources().getStringArray(R.array.length_units)[toUnitPosition];
+        // The list always shows rounded values; an unparseable input blanks it
+        if (checkAllUnits.isChecked()) {
+            allUnitsAdapter.update(value, fromUnitPosition);
+        }
 
-            textResult.setText(df.format(value) + " " + unitFrom + " = " +
-                    df.format(result) + " " + unitTo);
+        if (checkExact.isChecked()) {
+            try {
+                convertUnitsExactly(inputValue.getText().toString(), fromUnitPosition, toUnitPosition);
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
 
-        } catch (NumberFormatException e) {
-            Toast.makeText(this, "Invalid input", Toast.LENGTH_SHORT).show();
+        if (Double.isNaN(value)) {
+            return false;
         }
+
+        double result = dimension.getConverter().convert(value, fromUnitPosition, toUnitPosition);
+
+        // Format and display the result
+        resultText.setLength(0);
+        decimalText.append(resultText, value);
+        resultText.append(' ').append(dimension.get(fromUnitPosition).name).append(" = ");
+        decimalText.append(resultText, result);
+        resultText.append(' ').append(dimension.get(toUnitPosition).name);
+        showResult(resultText);
+        return true;
     }
 
-    private double convertToMeters(double value, int fromUnit) {
-        switch (fromUnit) {
-            case 0: // Feet
-                return value * FEET_TO_METERS;
-            case 1: // Inches
-                return value * INCHES_TO_METERS;
-            case 2: // Centimeters
-                return value * CM_TO_METERS;
-            case 3: // Meters
-                return value; // Already in meters
-            case 4: // Yards
-                return value * YARDS_TO_METERS;
-            default:
-                return value;
+    // Skips identical text, e.g. when the same unit is reselected
+    private void showResult(CharSequence text) {
+        if (!TextUtils.equals(textResult.getText(), text)) {
+            textResult.setText(text);
         }
     }
 
-    private double convertFromMeters(double valueInMeters, int toUnit) {
-        switch (toUnit) {
-            case 0: // Feet
-                return valueInMeters / FEET_TO_METERS;
-            case 1: // Inches
-                return valueInMeters / INCHES_TO_METERS;
-            case 2: // Centimeters
-                return valueInMeters / CM_TO_METERS;
-            case 3: // Meters
-                return valueInMeters; // Already in meters
-            case 4: // Yards
-                return valueInMeters / YARDS_TO_METERS;
-            default:
-                return valueInMeters;
-        }
+    private void convertUnitsExactly(String valueStr, int fromUnitPosition, int toUnitPosition) {
+        Rational value = Rational.parse(valueStr);
+
+        Rational result = dimension.getConverter().convertExact(value, fromUnitPosition, toUnitPosition);
+
+        String unitFrom = dimension.get(fromUnitPosition).name;
+        String unitTo = dimension.get(toUnitPosition).name;
+        showResult(value.toDecimalString(EXACT_MAX_FRACTION_DIGITS) + " " + unitFrom + " = " +
+                result.toDecimalString(EXACT_MAX_FRACTION_DIGITS) + " " + unitTo);
     }
 }
\ No newline at end of file
@@ -0,0 +1,162 @@
+package com.example.lengthconverter;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Table-driven conversion engine for one dimension, with no Android dependencies.
+ * Converting a to b is v * (fa / fb) + (oa - ob) / fb; the scale and offset for each pair are
+ * derived from the exact definitions, rounded only once and cached a row at a time on first use.
+ * Exact mode uses the reduced {@link Rational} scale and offset instead, also cached.
+ */
+public final class UnitConverter {
+
+    private final int unitCount;
+    private final Rational[] exactToBase;
+    private final Rational[] exactBaseOffsets;
+    // Rows indexed [from][to], each filled in on first use. A row is only published through the
+    // atomic array once complete, so another thread never reads a half-filled one; two threads
+    // racing on the same row both build it, and either copy is correct
+    private final AtomicReferenceArray<double[]> factorRows;
+    // Null when no unit in the dimension has an offset, so conversions skip the add
+    private final AtomicReferenceArray<double[]> offsetRows;
+    // Entries are immutable Rationals, so a racing reader sees either null, and computes the
+    // entry itself, or a complete value
+    private final Rational[][] exactFactorRows;
+    private final Rational[][] exactOffsetRows;
+
+    public UnitConverter(UnitRegistry.Dimension dimension) {
+        unitCount = dimension.size();
+        exactToBase = new Rational[unitCount];
+        exactBaseOffsets = new Rational[unitCount];
+        for (int i = 0; i < unitCount; i++) {
+            exactToBase[i] = dimension.get(i).exactFactor;
+            exactBaseOffsets[i] = dimension.get(i).exactOffset;
+        }
+        factorRows = new AtomicReferenceArray<>(unitCount);
+        offsetRows = dimension.isAffine() ? new AtomicReferenceArray<>(unitCount) : null;
+        exactFactorRows = new Rational[unitCount][];
+        exactOffsetRows = new Rational[unitCount][];
+    }
+
+    public int getUnitCount() {
+        return unitCount;
+    }
+
+    public boolean isAffine() {
+        return offsetRows != null;
+    }
+
+    public double factor(int from, int to) {
+        return factorRow(from)[to];
+    }
+
+    public double offset(int from, int to) {
+        return offsetRows == null ? 0.0 : offsetRow(from)[to];
+    }
+
+    public double convert(double value, int from, int to) {
+        double scaled = value * factorRow(from)[to];
+        return offsetRows == null ? scaled : scaled + offsetRow(from)[to];
+    }
+
+    // Bulk conversion with one factor lookup; results may be the values array itself
+    public void convert(double[] values, double[] results, int from, int to) {
+        convert(values, 0, results, 0, values.length, from, to);
+    }
+
+    public void convert(double[] values, int offset, double[] results, int resultOffset,
+                        int length, int from, int to) {
+        if (offset < 0 || resultOffset < 0 || length < 0
+                || offset + length > values.length || resultOffset + length > results.length) {
+            throw new ArrayIndexOutOfBoundsException("Range out of bounds: offset " + offset
+                    + ", result offset " + resultOffset + ", length " + length);
+        }
+        double factor = factorRow(from)[to];
+        if (offsetRows == null) {
+            for (int i = 0; i < length; i++) {
+                results[resultOffset + i] = values[offset + i] * factor;
+            }
+        } else {
+            double shift = offsetRow(from)[to];
+            for (int i = 0; i < length; i++) {
+                results[resultOffset + i] = values[offset + i] * factor + shift;
+            }
+        }
+    }
+
+    // One pass over the factor row: results[to] is the value in every unit of the dimension
+    public void convertToAll(double value, int from, double[] results) {
+        if (results.length < unitCount) {
+            throw new ArrayIndexOutOfBoundsException("Need " + unitCount + " results, got " + results.length);
+        }
+        double[] factors = factorRow(from);
+        if (offsetRows == null) {
+            for (int to = 0; to < unitCount; to++) {
+                results[to] = value * factors[to];
+            }
+        } else {
+            double[] offsets = offsetRow(from);
+            for (int to = 0; to < unitCount; to++) {
+                results[to] = value * factors[to] + offsets[to];
+            }
+        }
+    }
+
+    public Rational exactFactor(int from, int to) {
+        Rational[] row = exactFactorRows[from];
+        if (row == null) {
+            row = new Rational[unitCount];
+            exactFactorRows[from] = row;
+        }
+        Rational factor = row[to];
+        if (factor == null) {
+            factor = from == to ? Rational.ONE : exactToBase[from].divide(exactToBase[to]);
+            row[to] = factor;
+        }
+        return factor;
+    }
+
+    public Rational exactOffset(int from, int to) {
+        Rational[] row = exactOffsetRows[from];
+        if (row == null) {
+            row = new Rational[unitCount];
+            exactOffsetRows[from] = row;
+        }
+        Rational offset = row[to];
+        if (offset == null) {
+            offset = exactBaseOffsets[from].subtract(exactBaseOffsets[to]).divide(exactToBase[to]);
+            row[to] = offset;
+        }
+        return offset;
+    }
+
+    // No rounding at any step, so round trips come back unchanged
+    public Rational convertExact(Rational value, int from, int to) {
+        Rational scaled = value.multiply(exactFactor(from, to));
+        return offsetRows == null ? scaled : scaled.add(exactOffset(from, to));
+    }
+
+    private double[] factorRow(int from) {
+        double[] row = factorRows.get(from);
+        if (row == null) {
+            row = new double[unitCount];
+            for (int to = 0; to < unitCount; to++) {
+                row[to] = exactFactor(from, to).doubleValue();
+            }
+            factorRows.set(from, row);
+        }
+        return row;
+    }
+
+    private double[] offsetRow(int from) {
+        double[] row = offsetRows.get(from);
+        if (row == null) {
+            row = new double[unitCount];
+            for (int to = 0; to < unitCount; to++) {
+                row[to] = exactOffset(from, to).doubleValue();
+            }
+            offsetRows.set(from, row);
+        }
+        return row;
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.lengthconverter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All units, grouped into dimensions, parsed once from assets/units.txt (format described there).
+ * A unit is value * factor + offset in its dimension's base unit; only affine scales like Celsius
+ * have an offset. IDs and aliases are looked up through a hash map. No Android dependencies.
+ */
+public final class UnitRegistry {
+
+    private static final char FIELD_SEPARATOR = '|';
+    private static final char DIMENSION_PREFIX = '@';
+    private static final char COMMENT_PREFIX = '#';
+
+    public static final class Unit {
+        public final String id;
+        public final String name;
+        public final Dimension dimension;
+        // Position within the dimension, which is also the spinner position and converter index
+        public final int index;
+        // Exact definition, e.g. 0.3048 for one foot in meters
+        public final Rational exactFactor;
+        // Exact offset added after scaling, e.g. 273.15 for Celsius in kelvin
+        public final Rational exactOffset;
+        public final List<String> aliases;
+
+        Unit(String id, String name, Dimension dimension, int index,
+             Rational exactFactor, Rational exactOffset, List<String> aliases) {
+            this.id = id;
+            this.name = name;
+            this.dimension = dimension;
+            this.index = index;
+            this.exactFactor = exactFactor;
+            this.exactOffset = exactOffset;
+            this.aliases = Collections.unmodifiableList(aliases);
+        }
+
+        public boolean isAffine() {
+            return exactOffset.getNumerator().signum() != 0;
+        }
+    }
+
+    public static final class Dimension {
+        public final String id;
+        public final String name;
+        private final String baseId;
+        private final List<Unit> units = new ArrayList<>();
+        private Unit base;
+        private boolean affine;
+        private String[] unitNames;
+        private UnitConverter converter;
+
+        Dimension(String id, String name, String baseId) {
+            this.id = id;
+            this.name = name;
+            this.baseId = baseId;
+        }
+
+        public int size() {
+            return units.size();
+        }
+
+        public Unit get(int index) {
+            return units.get(index);
+        }
+
+        public Unit getBase() {
+            return base;
+        }
+
+        public boolean isAffine() {
+            return affine;
+        }
+
+        public String[] getUnitNames() {
+            if (unitNames == null) {
+                String[] names = new String[units.size()];
+                for (int i = 0; i < names.length; i++) {
+                    names[i] = units.get(i).name;
+                }
+                unitNames = names;
+            }
+            return unitNames;
+        }
+
+        // Created on first use, so loading the registry does no per-pair work
+        public UnitConverter getConverter() {
+            if (converter == null) {
+                converter = new UnitConverter(this);
+            }
+            return converter;
+        }
+    }
+
+    private final List<Dimension> dimensions;
+    private final Map<String, Unit> unitsByKey;
+    private final int unitCount;
+    private final String[] dimensionNames;
+
+    private UnitRegistry(List<Dimension> dimensions, Map<String, Unit> unitsByKey, int unitCount) {
+        this.dimensions = Collections.unmodifiableList(dimensions);
+        this.unitsByKey = unitsByKey;
+        this.unitCount = unitCount;
+        dimensionNames = new String[dimensions.size()];
+        for (int i = 0; i < dimensionNames.length; i++) {
+            dimensionNames[i] = dimensions.get(i).name;
+        }
+    }
+
+    // Malformed definitions throw an IOException naming the line
+    public static UnitRegistry parse(Reader reader) throws IOException {
+        BufferedReader lines = reader instanceof BufferedReader
+                ? (BufferedReader) reader
+                : new BufferedReader(reader);
+        List<Dimension> dimensions = new ArrayList<>();
+        Map<String, Unit> unitsByKey = new HashMap<>();
+        int unitCount = 0;
+        Dimension dimension = null;
+        int lineNumber = 0;
+
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.charAt(0) == COMMENT_PREFIX) {
+                continue;
+            }
+
+            String[] fields = split(line);
+            if (line.charAt(0) == DIMENSION_PREFIX) {
+                if (fields.length != 3 || fields[0].length() == 1 || fields[1].isEmpty() || fields[2].isEmpty()) {
+                    throw new IOException("Line " + lineNumber + ": expected @id|Name|base, got " + line);
+                }
+                finishDimension(dimension);
+                dimension = new Dimension(fields[0].substring(1), fields[1], fields[2]);
+                dimensions.add(dimension);
+                continue;
+            }
+
+            if (dimension == null) {
+                throw new IOException("Line " + lineNumber + ": unit defined before any dimension");
+            }
+            if (fields.length < 3 || fields.length > 5 || fields[0].isEmpty() || fields[1].isEmpty()) {
+                throw new IOException("Line " + lineNumber + ": expected id|Name|factor|offset|aliases, got " + line);
+            }
+
+            Rational factor;
+            Rational offset;
+            try {
+                factor = Rational.parse(fields[2]);
+                offset = fields.length > 3 && !fields[3].isEmpty() ? Rational.parse(fields[3]) : Rational.ZERO;
+            } catch (NumberFormatException | ArithmeticException e) {
+                throw new IOException("Line " + lineNumber + ": bad number in " + line, e);
+            }
+            if (factor.getNumerator().signum() <= 0) {
+                throw new IOException("Line " + lineNumber + ": factor must be positive");
+            }
+
+            List<String> aliases = new ArrayList<>();
+            if (fields.length > 4) {
+                for (String alias : fields[4].split(",")) {
+                    alias = alias.trim();
+                    if (!alias.isEmpty()) {
+                        aliases.add(alias);
+                    }
+                }
+            }
+
+            Unit unit = new Unit(fields[0], fields[1], dimension, dimension.units.size(), factor, offset, aliases);
+            dimension.units.add(unit);
+            dimension.affine |= unit.isAffine();
+            unitCount++;
+            index(unitsByKey, unit.id, unit, lineNumber);
+            for (String alias : aliases) {
+                index(unitsByKey, alias, unit, lineNumber);
+            }
+        }
+        finishDimension(dimension);
+
+        if (dimensions.isEmpty()) {
+            throw new IOException("No dimensions defined");
+        }
+        return new UnitRegistry(dimensions, unitsByKey, unitCount);
+    }
+
+    public int getDimensionCount() {
+        return dimensions.size();
+    }
+
+    public Dimension getDimension(int index) {
+        return dimensions.get(index);
+    }
+
+    public String[] getDimensionNames() {
+        return dimensionNames;
+    }
+
+    public int getUnitCount() {
+        return unitCount;
+    }
+
+    // Constant time; IDs and aliases are case sensitive, so "B" is bytes and "b" is bits
+    public Unit find(String key) {
+        return unitsByKey.get(key);
+    }
+
+    // Fields are trimmed; trailing empty fields are kept so "||" means an empty offset
+    private static String[] split(String line) {
+        List<String> fields = new ArrayList<>();
+        int start = 0;
+        int end;
+        while ((end = line.indexOf(FIELD_SEPARATOR, start)) >= 0) {
+            fields.add(line.substring(start, end).trim());
+            start = end + 1;
+        }
+        fields.add(line.substring(start).trim());
+        return fields.toArray(new String[0]);
+    }
+
+    private static void index(Map<String, Unit> unitsByKey, String key, Unit unit, int lineNumber) throws IOException {
+        Unit existing = unitsByKey.put(key, unit);
+        if (existing != null) {
+            throw new IOException("Line " + lineNumber + ": \"" + key + "\" already names " + existing.name);
+        }
+    }
+
+    private static void finishDimension(Dimension dimension) throws IOException {
+        if (dimension == null) {
+            return;
+        }
+        for (Unit unit : dimension.units) {
+            if (unit.id.equals(dimension.baseId)) {
+                dimension.base = unit;
+                break;
+            }
+        }
+        if (dimension.base == null) {
+            throw new IOException("Dimension " + dimension.id + ": base unit " + dimension.baseId + " is not defined in it");
+        }
+        if (!dimension.base.exactFactor.equals(Rational.ONE) || dimension.base.isAffine()) {
+            throw new IOException("Dimension " + dimension.id + ": base unit " + dimension.baseId + " must have factor 1 and no offset");
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.myapplication;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Shows one value converted into every unit of the selected dimension.
+ * Each update converts the whole row in one pass with {@link UnitConverter#convertToAll}, then
+ * formats only the values that changed and rebinds only the rows whose text changed, in as few
+ * range notifications as possible. Rebinds carry a payload, so just the value text is set and
+ * the rows don't cross-fade. Typing a digit in a dimension with hundreds of units therefore
+ * touches only the handful of rows on screen whose digits actually moved.
+ */
+public class AllUnitsAdapter extends RecyclerView.Adapter<AllUnitsAdapter.ViewHolder> {
+
+    // Payload for rebinds that only change the value text
+    private static final Object PAYLOAD_VALUE = new Object();
+
+    private final DecimalText decimalText;
+    private final StringBuilder scratch = new StringBuilder(32);
+
+    private UnitRegistry.Dimension dimension;
+    // The values currently shown and the next ones, swapped after each update
+    private double[] values = new double[0];
+    private double[] nextValues = new double[0];
+    private String[] texts = new String[0];
+
+    /**
+     * @param decimalText Formats the values; shared with the main result so both match
+     */
+    public AllUnitsAdapter(DecimalText decimalText) {
+        this.decimalText = decimalText;
+    }
+
+    /**
+     * Switches to another dimension's units, with every value blank until the next update
+     */
+    public void setDimension(UnitRegistry.Dimension dimension) {
+        this.dimension = dimension;
+        int units = dimension.size();
+        values = new double[units];
+        nextValues = new double[units];
+        Arrays.fill(values, Double.NaN);
+        texts = new String[units];
+        Arrays.fill(texts, "");
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Shows {@code value} in every unit of the dimension
+     *
+     * @param value The value to convert, or NaN to blank every row
+     * @param from The index of the unit the value is in
+     */
+    public void update(double value, int from) {
+        if (dimension == null) {
+            return;
+        }
+        int units = texts.length;
+        if (Double.isNaN(value)) {
+            Arrays.fill(nextValues, Double.NaN);
+        } else {
+            dimension.getConverter().convertToAll(value, from, nextValues);
+        }
+
+        int changedFrom = -1;
+        for (int i = 0; i < units; i++) {
+            if (!textChanged(i)) {
+                if (changedFrom >= 0) {
+                    notifyItemRangeChanged(changedFrom, i - changedFrom, PAYLOAD_VALUE);
+                    changedFrom = -1;
+                }
+            } else if (changedFrom < 0) {
+                changedFrom = i;
+            }
+        }
+        if (changedFrom >= 0) {
+            notifyItemRangeChanged(changedFrom, units - changedFrom, PAYLOAD_VALUE);
+        }
+
+        double[] shown = values;
+        values = nextValues;
+        nextValues = shown;
+    }
+
+    /**
+     * Formats row {@code i}'s new value if it differs from the shown one and stores the text
+     *
+     * @return True if the row's text changed and needs rebinding
+     */
+    private boolean textChanged(int i) {
+        double next = nextValues[i];
+        // Same bits, same text; this also treats NaN as equal to NaN
+        if (Double.doubleToLongBits(next) == Double.doubleToLongBits(values[i])) {
+            return false;
+        }
+        scratch.setLength(0);
+        if (!Double.isNaN(next)) {
+            decimalText.append(scratch, next);
+        }
+        // Values that differ past the shown digits keep their text, and their row
+        if (texts[i].contentEquals(scratch)) {
+            return false;
+        }
+        texts[i] = scratch.toString();
+        return true;
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_unit_result, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        holder.textValue.setText(texts[position]);
+        holder.textUnit.setText(dimension.get(position).name);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+        } else {
+            holder.textValue.setText(texts[position]);
+        }
+    }
+
+    @Override
+    public int getItemCount() {
+        return texts.length;
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView textValue;
+        final TextView textUnit;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            textValue = itemView.findViewById(R.id.text_unit_value);
+            textUnit = itemView.findViewById(R.id.text_unit_name);
+        }
+    }
+}
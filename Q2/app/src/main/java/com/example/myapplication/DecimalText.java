@@ -0,0 +1,183 @@
+package com.example.myapplication;
+
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.FieldPosition;
+import java.util.Locale;
+
+/**
+ * Allocation-free parsing and formatting for the live conversion path.
+ * Parsing reads the digits straight out of the input field's text instead of copying it into a
+ * String first, and formatting appends into a caller-owned StringBuilder, so a keystroke only
+ * allocates the final text handed to the TextView. Both fall back to the JDK for the rare inputs
+ * and magnitudes the fast paths don't cover. Parsing gives exactly what Double.parseDouble
+ * would; formatting matches DecimalFormat with HALF_EVEN rounding, except that it always writes a
+ * leading zero (0.5, not .5) and can differ in the last digit for values within a rounding error
+ * of a half-way point. Not thread safe; keep one instance per screen.
+ * This class has no Android dependencies.
+ */
+public final class DecimalText {
+
+    // Doubles hold every integer up to 2^53 and every power of ten up to 10^22 exactly
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    private static final long[] LONG_POWERS_OF_TEN = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L,
+            1000000000L, 10000000000L, 100000000000L, 1000000000000L, 10000000000000L,
+            100000000000000L, 1000000000000000L, 10000000000000000L, 100000000000000000L};
+    // Above this the whole part no longer fits a long, so formatting falls back
+    private static final double MAX_FAST_FORMAT = 1e18;
+
+    private final int maxFractionDigits;
+    private final long fractionScale;
+    private final char decimalSeparator;
+    private final char minusSign;
+    private final DecimalFormat fallback;
+    private final StringBuffer fallbackBuffer = new StringBuffer();
+    private final FieldPosition fallbackPosition = new FieldPosition(0);
+
+    /**
+     * @param maxFractionDigits Digits kept after the separator, rounding half even like DecimalFormat
+     * @throws IllegalArgumentException if the digits are negative or more than 17
+     */
+    public DecimalText(int maxFractionDigits) {
+        this(maxFractionDigits, Locale.getDefault());
+    }
+
+    /**
+     * @param maxFractionDigits Digits kept after the separator
+     * @param locale Supplies the decimal separator and minus sign
+     */
+    public DecimalText(int maxFractionDigits, Locale locale) {
+        if (maxFractionDigits < 0 || maxFractionDigits >= LONG_POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("Unsupported fraction digits: " + maxFractionDigits);
+        }
+        this.maxFractionDigits = maxFractionDigits;
+        fractionScale = LONG_POWERS_OF_TEN[maxFractionDigits];
+
+        StringBuilder pattern = new StringBuilder("0");
+        if (maxFractionDigits > 0) {
+            pattern.append('.');
+            for (int i = 0; i < maxFractionDigits; i++) {
+                pattern.append('#');
+            }
+        }
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        fallback = new DecimalFormat(pattern.toString(), symbols);
+        fallback.setRoundingMode(RoundingMode.HALF_EVEN);
+        decimalSeparator = symbols.getDecimalSeparator();
+        minusSign = symbols.getMinusSign();
+    }
+
+    /**
+     * Parses a plain decimal such as "-12.5" or ".5" without allocating, correctly rounded.
+     * Anything else (too many digits, exponents) is handed to {@link Double#parseDouble}.
+     *
+     * @param text The text to parse, e.g. an EditText's Editable
+     * @return The value, or NaN if the text is empty or not a number
+     */
+    public static double parse(CharSequence text) {
+        int length = text.length();
+        int i = 0;
+        while (i < length && text.charAt(i) == ' ') {
+            i++;
+        }
+        while (length > i && text.charAt(length - 1) == ' ') {
+            length--;
+        }
+        boolean negative = false;
+        if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int fractionDigits = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                seenDigit = true;
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa > MAX_EXACT_MANTISSA) {
+                    return parseSlowly(text);
+                }
+                if (seenPoint) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                return parseSlowly(text);
+            }
+        }
+        if (!seenDigit) {
+            return Double.NaN;
+        }
+        if (fractionDigits >= POWERS_OF_TEN.length) {
+            return parseSlowly(text);
+        }
+        // Both operands are exact, so the one division is correctly rounded
+        double value = mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Appends a value with up to {@code maxFractionDigits} decimals and no trailing zeros,
+     * using the locale's separator and minus sign
+     *
+     * @param out Receives the digits
+     * @param value The value to format
+     */
+    public void append(StringBuilder out, double value) {
+        if (!(Math.abs(value) < MAX_FAST_FORMAT)) {
+            // NaN, infinities and huge values
+            fallback.format(value, fallbackBuffer, fallbackPosition);
+            out.append(fallbackBuffer);
+            fallbackBuffer.setLength(0);
+            return;
+        }
+
+        double magnitude = Math.abs(value);
+        long whole = (long) magnitude;
+        // Subtracting the whole part is exact, so only the scaling rounds
+        long fraction = (long) Math.rint((magnitude - whole) * fractionScale);
+        if (fraction >= fractionScale) {
+            whole++;
+            fraction -= fractionScale;
+        }
+
+        // Values that round to zero print as "0", not "-0"
+        if (value < 0 && (whole != 0 || fraction != 0)) {
+            out.append(minusSign);
+        }
+        out.append(whole);
+        if (fraction == 0) {
+            return;
+        }
+
+        int digits = maxFractionDigits;
+        while (fraction % 10 == 0) {
+            fraction /= 10;
+            digits--;
+        }
+        out.append(decimalSeparator);
+        // Leading zeros, e.g. the three in 0.00012
+        for (long limit = LONG_POWERS_OF_TEN[digits - 1]; fraction < limit; limit /= 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+
+    private static double parseSlowly(CharSequence text) {
+        try {
+            return Double.parseDouble(text.toString());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
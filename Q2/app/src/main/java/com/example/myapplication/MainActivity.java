@@ -1,11 +1,23 @@
 package com.example.myapplication;
 
+import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
 import android.os.Bundle;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextUtils;
+import android.text.TextWatcher;
+import android.util.Log;
 import android.view.View;
+import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.CheckBox;
+import android.widget.CompoundButton;
 import android.widget.EditText;
 import android.widget.ImageButton;
 import android.widget.Spinner;
@@ -14,32 +26,83 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.app.AppCompatDelegate;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
-import java.text.DecimalFormat;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
 
 /**
- * MainActivity for Length Converter Application
- * This app converts between five length units: Feet, Inches, Centimeters, Meters, and Yards
+ * MainActivity for Unit Converter Application
+ * This app converts between the units defined in assets/units.txt, one dimension
+ * (length, mass, volume, temperature, speed, data size) at a time
  */
 public class MainActivity extends AppCompatActivity {
 
+    private static final String TAG = "MainActivity";
+
     // UI Component declarations
     private EditText inputValue;
+    private Spinner spinnerDimension;
     private Spinner spinnerFrom;
     private Spinner spinnerTo;
     private Button buttonConvert;
     private TextView textResult;
     private ImageButton buttonSettings;
+    private CheckBox checkExact;
+    private CheckBox checkAllUnits;
+    private RecyclerView listAllUnits;
 
     // Shared Preferences constants
     private static final String PREFERENCES_NAME = "unit_converter_prefs";
     private static final String KEY_DARK_MODE = "dark_mode_enabled";
 
-    // Conversion constants - all relative to meters as the base unit
-    private static final double FEET_TO_METERS = 0.3048;    // 1 foot = 0.3048 meters
-    private static final double INCHES_TO_METERS = 0.0254;  // 1 inch = 0.0254 meters
-    private static final double CM_TO_METERS = 0.01;        // 1 cm = 0.01 meters
-    private static final double YARDS_TO_METERS = 0.9144;   // 1 yard = 0.9144 meters
+    // Unit definitions, parsed once per process so recreating the activity doesn't reload them
+    private static final String UNITS_ASSET = "units.txt";
+    private static UnitRegistry registry;
+
+    // The selected dimension; its units are indexed like the from/to spinners
+    private UnitRegistry.Dimension dimension;
+
+    // Fraction digits shown for exact results that don't terminate, e.g. 1 cm in feet
+    private static final int EXACT_MAX_FRACTION_DIGITS = 15;
+
+    // Fraction digits shown for regular results, as with the old "#.#####" format
+    private static final int RESULT_FRACTION_DIGITS = 5;
+    private static final String RESULT_PLACEHOLDER = "Result will appear here";
+
+    // Live conversion - typing is debounced so a burst of keystrokes converts once,
+    // while spinner and mode changes convert on the next frame
+    private static final long LIVE_CONVERSION_DELAY_MS = 150;
+    private final Handler liveHandler = new Handler(Looper.getMainLooper());
+    private final Runnable liveConversion = new Runnable() {
+        @Override
+        public void run() {
+            if (countAllocations) {
+                resetThreadAllocCount();
+            }
+            if (!updateResult()) {
+                showResult(RESULT_PLACEHOLDER);
+            }
+            if (countAllocations) {
+                Log.d(TAG, "Live update allocated " + getThreadAllocCount() + " objects");
+            }
+        }
+    };
+
+    // Reused for every result, so a live update only allocates the text handed to the TextView
+    private final DecimalText decimalText = new DecimalText(RESULT_FRACTION_DIGITS);
+    private final StringBuilder resultText = new StringBuilder(64);
+
+    // The input in every unit of the dimension, updated with the main result while shown
+    private final AllUnitsAdapter allUnitsAdapter = new AllUnitsAdapter(decimalText);
+
+    // Debuggable builds log how many objects each live update allocates; the target is zero
+    private boolean countAllocations;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -51,40 +114,185 @@ public class MainActivity extends AppCompatActivity {
 
         // Initialize and connect UI components to their layout counterparts
         inputValue = findViewById(R.id.input_value);
+        spinnerDimension = findViewById(R.id.spinner_dimension);
         spinnerFrom = findViewById(R.id.spinner_from);
         spinnerTo = findViewById(R.id.spinner_to);
         buttonConvert = findViewById(R.id.button_convert);
         textResult = findViewById(R.id.text_result);
         buttonSettings = findViewById(R.id.button_settings);
+        checkExact = findViewById(R.id.check_exact);
+        checkAllUnits = findViewById(R.id.check_all_units);
+        listAllUnits = findViewById(R.id.list_all_units);
 
-        // Create and set adapter for the spinners using the string array resource
-        ArrayAdapter<CharSequence> adapter = ArrayAdapter.createFromResource(
-                this, R.array.length_units, android.R.layout.simple_spinner_item);
-        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        // Set up click listener for the settings button
+        buttonSettings.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                // Open settings activity
+                Intent intent = new Intent(MainActivity.this, SettingsActivity.class);
+                startActivity(intent);
+            }
+        });
 
-        // Apply the adapter to both spinners
-        spinnerFrom.setAdapter(adapter);
-        spinnerTo.setAdapter(adapter);
+        try {
+            registry = loadRegistry(this);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to load unit definitions", e);
+            Toast.makeText(this, "Could not load units", Toast.LENGTH_LONG).show();
+            buttonConvert.setEnabled(false);
+            return;
+        }
 
-        // Set up click listener for the convert button
-        buttonConvert.setOnClickListener(new View.OnClickListener() {
+        countAllocations = (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        if (countAllocations) {
+            startAllocCounting();
+        }
+
+        // Rows only change text, never size, so the list can skip relayout on updates
+        listAllUnits.setLayoutManager(new LinearLayoutManager(this));
+        listAllUnits.setHasFixedSize(true);
+        listAllUnits.setAdapter(allUnitsAdapter);
+
+        // Fill the dimension spinner; choosing a dimension refills the unit spinners
+        ArrayAdapter<String> dimensionAdapter = new ArrayAdapter<>(
+                this, android.R.layout.simple_spinner_item, registry.getDimensionNames());
+        dimensionAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinnerDimension.setAdapter(dimensionAdapter);
+        selectDimension(registry.getDimension(0));
+
+        spinnerDimension.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override
-            public void onClick(View v) {
-                convertUnits();
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                UnitRegistry.Dimension selected = registry.getDimension(position);
+                if (selected != dimension) {
+                    selectDimension(selected);
+                }
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
             }
         });
 
-        // Set up click listener for the settings button
-        buttonSettings.setOnClickListener(new View.OnClickListener() {
+        // Convert as the user types, and whenever the units or the mode change
+        inputValue.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                scheduleLiveConversion(LIVE_CONVERSION_DELAY_MS);
+            }
+        });
+
+        AdapterView.OnItemSelectedListener unitListener = new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                scheduleLiveConversion(0);
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        };
+        spinnerFrom.setOnItemSelectedListener(unitListener);
+        spinnerTo.setOnItemSelectedListener(unitListener);
+
+        checkExact.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                scheduleLiveConversion(0);
+            }
+        });
+
+        checkAllUnits.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                listAllUnits.setVisibility(isChecked ? View.VISIBLE : View.GONE);
+                scheduleLiveConversion(0);
+            }
+        });
+
+        // The convert button still works, and reports input it can't convert
+        buttonConvert.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                // Open settings activity
-                Intent intent = new Intent(MainActivity.this, SettingsActivity.class);
-                startActivity(intent);
+                convertUnits();
             }
         });
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        liveHandler.removeCallbacks(liveConversion);
+        if (countAllocations) {
+            stopAllocCounting();
+        }
+    }
+
+    // Debug allocation counting is deprecated but still supported, and only used in debuggable builds
+    @SuppressWarnings("deprecation")
+    private static void startAllocCounting() {
+        Debug.startAllocCounting();
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void stopAllocCounting() {
+        Debug.stopAllocCounting();
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void resetThreadAllocCount() {
+        Debug.resetThreadAllocCount();
+    }
+
+    @SuppressWarnings("deprecation")
+    private static int getThreadAllocCount() {
+        return Debug.getThreadAllocCount();
+    }
+
+    /**
+     * Parses the bundled unit definitions the first time they are needed and logs how long it
+     * took, so growing the asset can be checked against startup time
+     *
+     * @throws IOException if the asset is missing or malformed
+     */
+    private static synchronized UnitRegistry loadRegistry(Context context) throws IOException {
+        if (registry == null) {
+            long start = System.nanoTime();
+            try (Reader reader = new BufferedReader(new InputStreamReader(
+                    context.getAssets().open(UNITS_ASSET), StandardCharsets.UTF_8))) {
+                registry = UnitRegistry.parse(reader);
+            }
+            Log.i(TAG, String.format(Locale.US, "Loaded %d units in %d dimensions in %.2f ms",
+                    registry.getUnitCount(), registry.getDimensionCount(),
+                    (System.nanoTime() - start) / 1e6));
+        }
+        return registry;
+    }
+
+    /**
+     * Points the unit spinners at a dimension's units and clears the old result
+     */
+    private void selectDimension(UnitRegistry.Dimension selected) {
+        dimension = selected;
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(
+                this, android.R.layout.simple_spinner_item, selected.getUnitNames());
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+
+        // Apply the adapter to both spinners
+        spinnerFrom.setAdapter(adapter);
+        spinnerTo.setAdapter(adapter);
+        allUnitsAdapter.setDimension(selected);
+        showResult(RESULT_PLACEHOLDER);
+    }
+
     /**
      * Apply the theme based on saved preferences
      */
@@ -100,88 +308,113 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Main conversion method that handles user input validation and conversion process
+     * Convert button handler: converts right away, and explains why when the input can't be
+     * converted (live updates just show the placeholder instead)
      */
     private void convertUnits() {
-        // Get and validate the user input
-        String valueStr = inputValue.getText().toString();
-        if (valueStr.isEmpty()) {
+        liveHandler.removeCallbacks(liveConversion);
+
+        // Validate the user input
+        if (inputValue.length() == 0) {
             Toast.makeText(this, "Please enter a value", Toast.LENGTH_SHORT).show();
             return;
         }
+        if (!updateResult()) {
+            // Handle invalid number format
+            Toast.makeText(this, "Invalid input", Toast.LENGTH_SHORT).show();
+        }
+    }
 
-        try {
-            // Parse input value and get selected unit positions
-            double value = Double.parseDouble(valueStr);
-            int fromUnitPosition = spinnerFrom.getSelectedItemPosition();
-            int toUnitPosition = spinnerTo.getSelectedItemPosition();
+    /**
+     * Restarts the debounce timer, so only the last change in a burst is converted
+     *
+     * @param delayMillis How long to wait for further changes
+     */
+    private void scheduleLiveConversion(long delayMillis) {
+        liveHandler.removeCallbacks(liveConversion);
+        liveHandler.postDelayed(liveConversion, delayMillis);
+    }
 
-            // Two-step conversion process:
-            // 1. Convert from source unit to meters (base unit)
-            double valueInMeters = convertToMeters(value, fromUnitPosition);
+    /**
+     * Converts the current input with the selected units and shows the result.
+     * In the default mode this allocates nothing but the text handed to the TextView: the
+     * input is parsed straight from the Editable, unit names are the registry's own strings
+     * and the result is built in a reused StringBuilder.
+     *
+     * @return False if there is no number to convert yet
+     */
+    private boolean updateResult() {
+        if (dimension == null) {
+            return false;
+        }
+        int fromUnitPosition = spinnerFrom.getSelectedItemPosition();
+        int toUnitPosition = spinnerTo.getSelectedItemPosition();
+        if (fromUnitPosition == AdapterView.INVALID_POSITION || toUnitPosition == AdapterView.INVALID_POSITION) {
+            return false;
+        }
 
-            // 2. Convert from meters to target unit
-            double result = convertFromMeters(valueInMeters, toUnitPosition);
+        double value = DecimalText.parse(inputValue.getText());
 
-            // Format and display the result
-            DecimalFormat df = new DecimalFormat("#.#####");
-            String unitFrom = getResources().getStringArray(R.array.length_units)[fromUnitPosition];
-            String unitTo = getResources().getStringArray(R.array.length_units)[toUnitPosition];
+        // The all-units list always shows rounded values, one pass over the factor row;
+        // an unparseable input blanks it
+        if (checkAllUnits.isChecked()) {
+            allUnitsAdapter.update(value, fromUnitPosition);
+        }
 
-            textResult.setText(df.format(value) + " " + unitFrom + " = " +
-                    df.format(result) + " " + unitTo);
+        // Exact mode keeps the typed decimal as a fraction and never rounds along the way
+        if (checkExact.isChecked()) {
+            try {
+                convertUnitsExactly(inputValue.getText().toString(), fromUnitPosition, toUnitPosition);
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
 
-        } catch (NumberFormatException e) {
-            // Handle invalid number format
-            Toast.makeText(this, "Invalid input", Toast.LENGTH_SHORT).show();
+        if (Double.isNaN(value)) {
+            return false;
         }
+
+        // Single multiply (plus an offset for temperatures) by the cached factors for this pair
+        double result = dimension.getConverter().convert(value, fromUnitPosition, toUnitPosition);
+
+        // Format and display the result
+        resultText.setLength(0);
+        decimalText.append(resultText, value);
+        resultText.append(' ').append(dimension.get(fromUnitPosition).name).append(" = ");
+        decimalText.append(resultText, result);
+        resultText.append(' ').append(dimension.get(toUnitPosition).name);
+        showResult(resultText);
+        return true;
     }
 
     /**
-     * Converts a value from any supported unit to meters (base unit)
-     *
-     * @param value The numerical value to convert
-     * @param fromUnit The index of the source unit (0=Feet, 1=Inches, 2=Centimeters, 3=Meters, 4=Yards)
-     * @return The equivalent value in meters
+     * Sets the result text unless it is already showing, e.g. when the same unit is reselected
      */
-    private double convertToMeters(double value, int fromUnit) {
-        switch (fromUnit) {
-            case 0: // Feet
-                return value * FEET_TO_METERS;
-            case 1: // Inches
-                return value * INCHES_TO_METERS;
-            case 2: // Centimeters
-                return value * CM_TO_METERS;
-            case 3: // Meters
-                return value; // Already in meters
-            case 4: // Yards
-                return value * YARDS_TO_METERS;
-            default:
-                return value;
+    private void showResult(CharSequence text) {
+        if (!TextUtils.equals(textResult.getText(), text)) {
+            textResult.setText(text);
         }
     }
 
     /**
-     * Converts a value from meters to any supported unit
+     * Converts with rational arithmetic and shows the exact result, or a long rounded
+     * expansion marked with "..." when it does not terminate
      *
-     * @param valueInMeters The value in meters to convert
-     * @param toUnit The index of the target unit (0=Feet, 1=Inches, 2=Centimeters, 3=Meters, 4=Yards)
-     * @return The equivalent value in the target unit
+     * @param valueStr The decimal text typed by the user
+     * @param fromUnitPosition The source unit's index in the selected dimension
+     * @param toUnitPosition The target unit's index in the selected dimension
+     * @throws NumberFormatException if the text is not a decimal number
      */
-    private double convertFromMeters(double valueInMeters, int toUnit) {
-        switch (toUnit) {
-            case 0: // Feet
-                return valueInMeters / FEET_TO_METERS;
-            case 1: // Inches
-                return valueInMeters / INCHES_TO_METERS;
-            case 2: // Centimeters
-                return valueInMeters / CM_TO_METERS;
-            case 3: // Meters
-                return valueInMeters; // Already in meters
-            case 4: // Yards
-                return valueInMeters / YARDS_TO_METERS;
-            default:
-                return valueInMeters;
-        }
+    private void convertUnitsExactly(String valueStr, int fromUnitPosition, int toUnitPosition) {
+        Rational value = Rational.parse(valueStr);
+
+        // One multiply (and add, for temperatures) by the cached, reduced factors for this pair
+        Rational result = dimension.getConverter().convertExact(value, fromUnitPosition, toUnitPosition);
+
+        String unitFrom = dimension.get(fromUnitPosition).name;
+        String unitTo = dimension.get(toUnitPosition).name;
+        showResult(value.toDecimalString(EXACT_MAX_FRACTION_DIGITS) + " " + unitFrom + " = " +
+                result.toDecimalString(EXACT_MAX_FRACTION_DIGITS) + " " + unitTo);
     }
 }
\ No newline at end of file
@@ -0,0 +1,176 @@
+package com.example.myapplication;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Immutable exact fraction used by the converter's exact mode.
+ * Always kept in lowest terms with a positive denominator, so equal values are equal objects.
+ * This class has no Android dependencies.
+ */
+public final class Rational {
+
+    public static final Rational ZERO = new Rational(BigInteger.ZERO, BigInteger.ONE);
+    public static final Rational ONE = new Rational(BigInteger.ONE, BigInteger.ONE);
+
+    private static final BigInteger FIVE = BigInteger.valueOf(5);
+
+    private final BigInteger numerator;
+    private final BigInteger denominator;
+
+    private Rational(BigInteger numerator, BigInteger denominator) {
+        this.numerator = numerator;
+        this.denominator = denominator;
+    }
+
+    /**
+     * Creates a fraction and reduces it to lowest terms
+     *
+     * @throws ArithmeticException if the denominator is zero
+     */
+    public static Rational of(BigInteger numerator, BigInteger denominator) {
+        if (denominator.signum() == 0) {
+            throw new ArithmeticException("Zero denominator");
+        }
+        if (denominator.signum() < 0) {
+            numerator = numerator.negate();
+            denominator = denominator.negate();
+        }
+        BigInteger gcd = numerator.gcd(denominator);
+        if (!gcd.equals(BigInteger.ONE) && gcd.signum() != 0) {
+            numerator = numerator.divide(gcd);
+            denominator = denominator.divide(gcd);
+        }
+        return new Rational(numerator, denominator);
+    }
+
+    /**
+     * Parses a decimal string such as "0.0254" or "-1.5e3", or a fraction of two decimals
+     * such as "5/9", exactly
+     *
+     * @throws NumberFormatException if the text is not a decimal number or fraction
+     * @throws ArithmeticException if the fraction has a zero denominator
+     */
+    public static Rational parse(String decimal) {
+        int slash = decimal.indexOf('/');
+        if (slash >= 0) {
+            return parse(decimal.substring(0, slash)).divide(parse(decimal.substring(slash + 1)));
+        }
+        return valueOf(new BigDecimal(decimal.trim()));
+    }
+
+    public static Rational valueOf(BigDecimal value) {
+        int scale = value.scale();
+        return scale > 0
+                ? of(value.unscaledValue(), BigInteger.TEN.pow(scale))
+                : of(value.unscaledValue().multiply(BigInteger.TEN.pow(-scale)), BigInteger.ONE);
+    }
+
+    public BigInteger getNumerator() {
+        return numerator;
+    }
+
+    public BigInteger getDenominator() {
+        return denominator;
+    }
+
+    public Rational multiply(Rational other) {
+        return of(numerator.multiply(other.numerator), denominator.multiply(other.denominator));
+    }
+
+    public Rational divide(Rational other) {
+        return of(numerator.multiply(other.denominator), denominator.multiply(other.numerator));
+    }
+
+    public Rational add(Rational other) {
+        return of(numerator.multiply(other.denominator).add(other.numerator.multiply(denominator)),
+                denominator.multiply(other.denominator));
+    }
+
+    public Rational subtract(Rational other) {
+        return add(other.negate());
+    }
+
+    public Rational negate() {
+        return new Rational(numerator.negate(), denominator);
+    }
+
+    /**
+     * @return True if the value has a finite decimal expansion (the denominator has no factors but 2 and 5)
+     */
+    public boolean isTerminating() {
+        BigInteger rest = denominator;
+        while (!rest.testBit(0)) {
+            rest = rest.shiftRight(1);
+        }
+        while (rest.mod(FIVE).signum() == 0) {
+            rest = rest.divide(FIVE);
+        }
+        return rest.equals(BigInteger.ONE);
+    }
+
+    public BigDecimal toBigDecimal(MathContext context) {
+        return new BigDecimal(numerator).divide(new BigDecimal(denominator), context);
+    }
+
+    /**
+     * @return The double nearest to the exact value, ties to even. The quotient is taken with
+     * a few bits to spare and a sticky bit for any remainder, so it is rounded only once; going
+     * through a decimal first would round twice and could land on the wrong side of a tie.
+     * Results in the subnormal range may still be off by one unit in the last place
+     */
+    public double doubleValue() {
+        if (numerator.signum() == 0) {
+            return 0.0;
+        }
+        BigInteger magnitude = numerator.abs();
+        // Scale so the integer quotient has 55 or 56 bits, more than a double's 53
+        int shift = 55 - (magnitude.bitLength() - denominator.bitLength());
+        BigInteger[] division = shift >= 0
+                ? magnitude.shiftLeft(shift).divideAndRemainder(denominator)
+                : magnitude.divideAndRemainder(denominator.shiftLeft(-shift));
+        long quotient = division[0].longValue();
+        if (division[1].signum() != 0) {
+            quotient |= 1;
+        }
+        // The long to double conversion is the one rounding; scaling by a power of two is exact
+        double value = Math.scalb((double) quotient, -shift);
+        return numerator.signum() < 0 ? -value : value;
+    }
+
+    /**
+     * Formats the value as a plain decimal: exactly when it terminates, otherwise rounded to
+     * {@code maxFractionDigits} places and followed by "..." to show it goes on
+     */
+    public String toDecimalString(int maxFractionDigits) {
+        BigDecimal value;
+        boolean exact = isTerminating();
+        if (exact) {
+            value = new BigDecimal(numerator).divide(new BigDecimal(denominator));
+        } else {
+            value = new BigDecimal(numerator).divide(new BigDecimal(denominator), maxFractionDigits, RoundingMode.HALF_EVEN);
+        }
+        String text = value.signum() == 0 ? "0" : value.stripTrailingZeros().toPlainString();
+        return exact ? text : text + "...";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Rational)) return false;
+        Rational other = (Rational) o;
+        return numerator.equals(other.numerator) && denominator.equals(other.denominator);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * numerator.hashCode() + denominator.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return denominator.equals(BigInteger.ONE) ? numerator.toString() : numerator + "/" + denominator;
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.myapplication;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Table-driven conversion engine for the units of one dimension.
+ * Every unit is defined as {@code v * factor + offset} in the base unit, so converting from
+ * a to b is {@code v * (fa / fb) + (oa - ob) / fb}: one scale and, for affine dimensions such
+ * as temperature, one offset per (from, to) pair. Both are precomputed and cached a row at a
+ * time, the first time a source unit is used, so a conversion is a single multiply (plus an add)
+ * and a dimension with hundreds of units costs nothing until it is actually converted from.
+ * Each cached double is derived from the exact definitions and rounded only once, which makes
+ * e.g. feet to inches exactly 12 and 100 Celsius exactly 212 Fahrenheit.
+ * An exact mode works on {@link Rational} values instead: each pair scale and offset is reduced
+ * from the definitions on first use and cached, so round trips come back unchanged.
+ * This class has no Android dependencies.
+ */
+public final class UnitConverter {
+
+    private final int unitCount;
+    private final Rational[] exactToBase;
+    private final Rational[] exactBaseOffsets;
+    // Rows indexed [from][to], each filled in on first use. A row is only published through the
+    // atomic array once complete, so another thread never reads a half-filled one; two threads
+    // racing on the same row both build it, and either copy is correct
+    private final AtomicReferenceArray<double[]> factorRows;
+    // Null when no unit in the dimension has an offset, so conversions skip the add
+    private final AtomicReferenceArray<double[]> offsetRows;
+    // Entries are immutable Rationals, so a racing reader sees either null, and computes the
+    // entry itself, or a complete value
+    private final Rational[][] exactFactorRows;
+    private final Rational[][] exactOffsetRows;
+
+    /**
+     * Prepares a converter for every pair of units in the dimension; rows are built lazily
+     *
+     * @param dimension The units to convert between; indexes within it are used as unit IDs
+     */
+    public UnitConverter(UnitRegistry.Dimension dimension) {
+        unitCount = dimension.size();
+        exactToBase = new Rational[unitCount];
+        exactBaseOffsets = new Rational[unitCount];
+        for (int i = 0; i < unitCount; i++) {
+            exactToBase[i] = dimension.get(i).exactFactor;
+            exactBaseOffsets[i] = dimension.get(i).exactOffset;
+        }
+        factorRows = new AtomicReferenceArray<>(unitCount);
+        offsetRows = dimension.isAffine() ? new AtomicReferenceArray<>(unitCount) : null;
+        exactFactorRows = new Rational[unitCount][];
+        exactOffsetRows = new Rational[unitCount][];
+    }
+
+    public int getUnitCount() {
+        return unitCount;
+    }
+
+    /**
+     * @return True if conversions add an offset after scaling
+     */
+    public boolean isAffine() {
+        return offsetRows != null;
+    }
+
+    /**
+     * @return The number to multiply a value in {@code from} by to get it in {@code to},
+     * before adding {@link #offset(int, int)}
+     */
+    public double factor(int from, int to) {
+        return factorRow(from)[to];
+    }
+
+    /**
+     * @return The number to add after scaling a value from {@code from} to {@code to};
+     * zero unless the dimension is affine
+     */
+    public double offset(int from, int to) {
+        return offsetRows == null ? 0.0 : offsetRow(from)[to];
+    }
+
+    /**
+     * Converts a single value
+     *
+     * @param value The value to convert
+     * @param from The index of the source unit
+     * @param to The index of the target unit
+     * @return The equivalent value in the target unit
+     */
+    public double convert(double value, int from, int to) {
+        double scaled = value * factorRow(from)[to];
+        return offsetRows == null ? scaled : scaled + offsetRow(from)[to];
+    }
+
+    /**
+     * Converts a whole array with one factor lookup; {@code results} may be {@code values}
+     *
+     * @param values The values to convert
+     * @param results Receives the converted values; must be at least as long as {@code values}
+     * @param from The index of the source unit
+     * @param to The index of the target unit
+     */
+    public void convert(double[] values, double[] results, int from, int to) {
+        convert(values, 0, results, 0, values.length, from, to);
+    }
+
+    /**
+     * Converts {@code length} values starting at {@code offset} into {@code results} at {@code resultOffset}
+     */
+    public void convert(double[] values, int offset, double[] results, int resultOffset,
+                        int length, int from, int to) {
+        if (offset < 0 || resultOffset < 0 || length < 0
+                || offset + length > values.length || resultOffset + length > results.length) {
+            throw new ArrayIndexOutOfBoundsException("Range out of bounds: offset " + offset
+                    + ", result offset " + resultOffset + ", length " + length);
+        }
+        double factor = factorRow(from)[to];
+        if (offsetRows == null) {
+            for (int i = 0; i < length; i++) {
+                results[resultOffset + i] = values[offset + i] * factor;
+            }
+        } else {
+            double shift = offsetRow(from)[to];
+            for (int i = 0; i < length; i++) {
+                results[resultOffset + i] = values[offset + i] * factor + shift;
+            }
+        }
+    }
+
+    /**
+     * Converts one value into every unit of the dimension in a single pass over the cached
+     * factor row (and offset row), instead of one lookup per target unit
+     *
+     * @param value The value to convert
+     * @param from The index of the source unit
+     * @param results Receives the value in each unit, indexed like the units; must be at least
+     *                {@link #getUnitCount()} long
+     */
+    public void convertToAll(double value, int from, double[] results) {
+        if (results.length < unitCount) {
+            throw new ArrayIndexOutOfBoundsException("Need " + unitCount + " results, got " + results.length);
+        }
+        double[] factors = factorRow(from);
+        if (offsetRows == null) {
+            for (int to = 0; to < unitCount; to++) {
+                results[to] = value * factors[to];
+            }
+        } else {
+            double[] offsets = offsetRow(from);
+            for (int to = 0; to < unitCount; to++) {
+                results[to] = value * factors[to] + offsets[to];
+            }
+        }
+    }
+
+    /**
+     * @return The exact scale for a pair of units, fa / fb, reduced to lowest terms
+     */
+    public Rational exactFactor(int from, int to) {
+        Rational[] row = exactFactorRows[from];
+        if (row == null) {
+            row = new Rational[unitCount];
+            exactFactorRows[from] = row;
+        }
+        Rational factor = row[to];
+        if (factor == null) {
+            factor = from == to ? Rational.ONE : exactToBase[from].divide(exactToBase[to]);
+            row[to] = factor;
+        }
+        return factor;
+    }
+
+    /**
+     * @return The exact offset for a pair of units, (oa - ob) / fb, reduced to lowest terms
+     */
+    public Rational exactOffset(int from, int to) {
+        Rational[] row = exactOffsetRows[from];
+        if (row == null) {
+            row = new Rational[unitCount];
+            exactOffsetRows[from] = row;
+        }
+        Rational offset = row[to];
+        if (offset == null) {
+            offset = exactBaseOffsets[from].subtract(exactBaseOffsets[to]).divide(exactToBase[to]);
+            row[to] = offset;
+        }
+        return offset;
+    }
+
+    /**
+     * Converts a value exactly, with no rounding at any step
+     *
+     * @param value The value to convert
+     * @param from The index of the source unit
+     * @param to The index of the target unit
+     * @return The exact equivalent value in the target unit
+     */
+    public Rational convertExact(Rational value, int from, int to) {
+        Rational scaled = value.multiply(exactFactor(from, to));
+        return offsetRows == null ? scaled : scaled.add(exactOffset(from, to));
+    }
+
+    private double[] factorRow(int from) {
+        double[] row = factorRows.get(from);
+        if (row == null) {
+            row = new double[unitCount];
+            for (int to = 0; to < unitCount; to++) {
+                row[to] = exactFactor(from, to).doubleValue();
+            }
+            factorRows.set(from, row);
+        }
+        return row;
+    }
+
+    private double[] offsetRow(int from) {
+        double[] row = offsetRows.get(from);
+        if (row == null) {
+            row = new double[unitCount];
+            for (int to = 0; to < unitCount; to++) {
+                row[to] = exactOffset(from, to).doubleValue();
+            }
+            offsetRows.set(from, row);
+        }
+        return row;
+    }
+}
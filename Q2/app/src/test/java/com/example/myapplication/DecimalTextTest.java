@@ -0,0 +1,96 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * The live conversion path's parser and formatter must agree with the JDK they replace.
+ */
+public class DecimalTextTest {
+
+    private static final int SAMPLES = 10_000;
+    // Fixed seed, so a failure can be reproduced
+    private static final long SEED = 0x5EEDL;
+
+    private final DecimalText text = new DecimalText(5, Locale.US);
+
+    @Test
+    public void parse_matchesDoubleParseDouble() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < SAMPLES; i++) {
+            // Up to 20 digits, so both the fast path and the fallback are covered
+            StringBuilder input = new StringBuilder();
+            if (random.nextBoolean()) {
+                input.append('-');
+            }
+            int digits = 1 + random.nextInt(20);
+            int point = random.nextInt(digits + 1);
+            for (int d = 0; d < digits; d++) {
+                if (d == point) {
+                    input.append('.');
+                }
+                input.append((char) ('0' + random.nextInt(10)));
+            }
+            assertEquals(input.toString(), Double.parseDouble(input.toString()), DecimalText.parse(input), 0.0);
+        }
+    }
+
+    @Test
+    public void parse_returnsNaNForPartialInput() {
+        assertTrue("empty", Double.isNaN(DecimalText.parse("")));
+        assertTrue("minus", Double.isNaN(DecimalText.parse("-")));
+        assertTrue("point", Double.isNaN(DecimalText.parse(".")));
+        assertTrue("two points", Double.isNaN(DecimalText.parse("1.2.3")));
+        assertEquals(0.5, DecimalText.parse(".5"), 0.0);
+        assertEquals(-5.0, DecimalText.parse("-5."), 0.0);
+        assertEquals(1500.0, DecimalText.parse("1.5e3"), 0.0);
+    }
+
+    @Test
+    public void append_matchesHalfEvenRounding() {
+        Random random = new Random(SEED);
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < SAMPLES; i++) {
+            double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(16) - 6);
+            out.setLength(0);
+            text.append(out, value);
+            assertEquals(Double.toString(value), reference(value), out.toString());
+        }
+    }
+
+    @Test
+    public void append_handlesEdgeCases() {
+        assertEquals("0.5", format(0.5));
+        assertEquals("0.00012", format(0.00012));
+        assertEquals("3", format(2.999999));
+        assertEquals("-1234.5", format(-1234.5));
+        assertEquals("0", format(-0.000001));
+        assertEquals("0", format(-0.0));
+        assertEquals("100000000000000000000", format(1e20));
+        assertEquals("1,5", formatIn(Locale.GERMANY, 1.5));
+    }
+
+    private String format(double value) {
+        StringBuilder out = new StringBuilder();
+        text.append(out, value);
+        return out.toString();
+    }
+
+    private static String formatIn(Locale locale, double value) {
+        StringBuilder out = new StringBuilder();
+        new DecimalText(5, locale).append(out, value);
+        return out.toString();
+    }
+
+    // The exact binary value rounded half even to five places, written like the formatter does
+    private static String reference(double value) {
+        BigDecimal rounded = new BigDecimal(value).setScale(5, RoundingMode.HALF_EVEN);
+        return rounded.signum() == 0 ? "0" : rounded.stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * JMH-style timing of the table-driven converter against the switch path it replaced, which
+ * went through meters with one multiply and one divide, and of what exact mode costs on top.
+ * Each path gets warm-up iterations before the measured ones over the same random values and
+ * unit pairs, and ns/op is printed.
+ * Only the results are asserted; wall-clock comparisons would be flaky on a loaded machine.
+ */
+public class UnitConverterBenchmark {
+
+    private static final int VALUES = 100_000;
+    // Exact conversions allocate BigIntegers, so fewer of them keep the run short
+    private static final int EXACT_VALUES = 10_000;
+    // As many places as MainActivity shows in exact mode for a value that doesn't terminate
+    private static final int FRACTION_DIGITS = 15;
+    private static final int WARMUP_ITERATIONS = 10;
+    private static final int ITERATIONS = 20;
+    private static final long SEED = 0x5EEDL;
+
+    // The original five length units, in their old spinner order
+    private static final String DEFINITIONS = "@length|Length|m\n"
+            + "ft|Feet|0.3048\n"
+            + "in|Inches|0.0254\n"
+            + "cm|Centimeters|0.01\n"
+            + "m|Meters|1\n"
+            + "yd|Yards|0.9144\n";
+    private static final double FEET_TO_METERS = 0.3048;
+    private static final double INCHES_TO_METERS = 0.0254;
+    private static final double CM_TO_METERS = 0.01;
+    private static final double YARDS_TO_METERS = 0.9144;
+
+    private interface Operation {
+        double run();
+    }
+
+    private final UnitConverter converter;
+    private final double[] values = new double[VALUES];
+    private final int[] froms = new int[VALUES];
+    private final int[] tos = new int[VALUES];
+    private final Rational[] exactValues = new Rational[EXACT_VALUES];
+
+    public UnitConverterBenchmark() throws IOException {
+        converter = UnitRegistry.parse(new StringReader(DEFINITIONS)).getDimension(0).getConverter();
+        Random random = new Random(SEED);
+        for (int i = 0; i < VALUES; i++) {
+            values[i] = random.nextDouble() * 1000;
+            froms[i] = random.nextInt(5);
+            tos[i] = random.nextInt(5);
+        }
+        for (int i = 0; i < EXACT_VALUES; i++) {
+            // The decimal the user would have typed, e.g. 123.456
+            exactValues[i] = Rational.valueOf(BigDecimal.valueOf(random.nextInt(1_000_000), 3));
+        }
+    }
+
+    @Test
+    public void tablePath_againstTheSwitchPath() {
+        for (int i = 0; i < VALUES; i++) {
+            double expected = convertFromMeters(convertToMeters(values[i], froms[i]), tos[i]);
+            double actual = converter.convert(values[i], froms[i], tos[i]);
+            // The table rounds once, the switch twice, so they can differ in the last bits
+            assertEquals(expected, actual, Math.abs(expected) * 1e-12);
+        }
+
+        double[] results = new double[VALUES];
+        double switchNanos = time("switch", VALUES, () -> {
+            double sum = 0;
+            for (int i = 0; i < VALUES; i++) {
+                sum += convertFromMeters(convertToMeters(values[i], froms[i]), tos[i]);
+            }
+            return sum;
+        });
+        double tableNanos = time("table", VALUES, () -> {
+            double sum = 0;
+            for (int i = 0; i < VALUES; i++) {
+                sum += converter.convert(values[i], froms[i], tos[i]);
+            }
+            return sum;
+        });
+        double bulkNanos = time("table bulk", VALUES, () -> {
+            // One pair for the whole array, as when a column of values is converted at once
+            converter.convert(values, results, 0, 1);
+            return results[VALUES - 1];
+        });
+        System.out.printf("Table path %.2fx the speed of the switch, %.2fx in bulk%n",
+                switchNanos / tableNanos, switchNanos / bulkNanos);
+    }
+
+    @Test
+    public void exactMode_againstDoubles() {
+        double[] doubles = new double[EXACT_VALUES];
+        for (int i = 0; i < EXACT_VALUES; i++) {
+            doubles[i] = exactValues[i].doubleValue();
+            double expected = converter.convert(doubles[i], froms[i], tos[i]);
+            double exact = converter.convertExact(exactValues[i], froms[i], tos[i]).doubleValue();
+            assertEquals(expected, exact, Math.abs(expected) * 1e-12);
+        }
+
+        double doubleNanos = time("double", EXACT_VALUES, () -> {
+            double sum = 0;
+            for (int i = 0; i < EXACT_VALUES; i++) {
+                sum += converter.convert(doubles[i], froms[i], tos[i]);
+            }
+            return sum;
+        });
+        double exactNanos = time("exact", EXACT_VALUES, () -> {
+            double sum = 0;
+            for (int i = 0; i < EXACT_VALUES; i++) {
+                sum += converter.convertExact(exactValues[i], froms[i], tos[i]).getDenominator().bitLength();
+            }
+            return sum;
+        });
+        double shownNanos = time("exact shown", EXACT_VALUES, () -> {
+            // What the exact mode does per keystroke: convert, then format the result
+            double sum = 0;
+            for (int i = 0; i < EXACT_VALUES; i++) {
+                Rational result = converter.convertExact(exactValues[i], froms[i], tos[i]);
+                sum += result.toDecimalString(FRACTION_DIGITS).length();
+            }
+            return sum;
+        });
+        System.out.printf("Exact mode costs %.0fx a double conversion, %.0fx with the result formatted%n",
+                exactNanos / doubleNanos, shownNanos / doubleNanos);
+    }
+
+    // Mean ns per converted value; the running total keeps the loop from being optimized away
+    private static double time(String name, int count, Operation operation) {
+        double sink = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink += operation.run();
+        }
+        long total = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            sink += operation.run();
+            total += System.nanoTime() - start;
+        }
+        double nanosPerOp = (double) total / ITERATIONS / count;
+        System.out.printf("%-14s %7.2f ns/op  (checksum %.3e)%n", name, nanosPerOp, sink);
+        return nanosPerOp;
+    }
+
+    // The switch path as it was before the table-driven converter
+    private static double convertToMeters(double value, int fromUnit) {
+        switch (fromUnit) {
+            case 0: // Feet
+                return value * FEET_TO_METERS;
+            case 1: // Inches
+                return value * INCHES_TO_METERS;
+            case 2: // Centimeters
+                return value * CM_TO_METERS;
+            case 3: // Meters
+                return value;
+            case 4: // Yards
+                return value * YARDS_TO_METERS;
+            default:
+                return value;
+        }
+    }
+
+    private static double convertFromMeters(double valueInMeters, int toUnit) {
+        switch (toUnit) {
+            case 0: // Feet
+                return valueInMeters / FEET_TO_METERS;
+            case 1: // Inches
+                return valueInMeters / INCHES_TO_METERS;
+            case 2: // Centimeters
+                return valueInMeters / CM_TO_METERS;
+            case 3: // Meters
+                return valueInMeters;
+            case 4: // Yards
+                return valueInMeters / YARDS_TO_METERS;
+            default:
+                return valueInMeters;
+        }
+    }
+}
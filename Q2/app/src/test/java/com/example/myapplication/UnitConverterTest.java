@@ -0,0 +1,241 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Property checks for the conversion engine: random decimal inputs run through every unit
+ * pair, and the exact mode must never lose information along the way. Temperature covers the
+ * affine path, where every conversion adds an offset after scaling.
+ */
+public class UnitConverterTest {
+
+    private static final int SAMPLES = 500;
+    // Fixed seed, so a failure can be reproduced
+    private static final long SEED = 0x5EEDL;
+
+    // The original five length units, in their old spinner order, and the temperature scales
+    private static final String DEFINITIONS = "@length|Length|m\n"
+            + "ft|Feet|0.3048\n"
+            + "in|Inches|0.0254\n"
+            + "cm|Centimeters|0.01\n"
+            + "m|Meters|1\n"
+            + "yd|Yards|0.9144\n"
+            + "@temperature|Temperature|K\n"
+            + "C|Celsius|1|273.15\n"
+            + "F|Fahrenheit|5/9|45967/180\n"
+            + "K|Kelvin|1\n"
+            + "R|Rankine|5/9\n";
+    private static final int CELSIUS = 0;
+    private static final int FAHRENHEIT = 1;
+    private static final int KELVIN = 2;
+
+    private final UnitRegistry.Dimension lengths;
+    private final UnitConverter converter;
+    private final UnitConverter temperatures;
+
+    public UnitConverterTest() throws IOException {
+        UnitRegistry registry = UnitRegistry.parse(new StringReader(DEFINITIONS));
+        lengths = registry.getDimension(0);
+        converter = lengths.getConverter();
+        temperatures = registry.getDimension(1).getConverter();
+    }
+
+    @Test
+    public void exactRoundTrip_returnsTheOriginalValue() {
+        Random random = new Random(SEED);
+        int units = converter.getUnitCount();
+        for (int i = 0; i < SAMPLES; i++) {
+            Rational value = randomDecimal(random);
+            for (int from = 0; from < units; from++) {
+                for (int to = 0; to < units; to++) {
+                    Rational there = converter.convertExact(value, from, to);
+                    assertEquals(value + " " + from + "->" + to + "->" + from,
+                            value, converter.convertExact(there, to, from));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void exactConversion_composesLikeTheDirectPair() {
+        Random random = new Random(SEED);
+        int units = converter.getUnitCount();
+        for (int i = 0; i < SAMPLES; i++) {
+            Rational value = randomDecimal(random);
+            int a = random.nextInt(units);
+            int b = random.nextInt(units);
+            int c = random.nextInt(units);
+            Rational viaB = converter.convertExact(converter.convertExact(value, a, b), b, c);
+            assertEquals(converter.convertExact(value, a, c), viaB);
+        }
+    }
+
+    @Test
+    public void exactConversion_matchesTheDefinitions() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < SAMPLES; i++) {
+            Rational value = randomDecimal(random);
+            int from = random.nextInt(converter.getUnitCount());
+            int to = random.nextInt(converter.getUnitCount());
+            // value * from/m / (to/m), computed independently of the cached pair factors
+            Rational expected = value.multiply(lengths.get(from).exactFactor).divide(lengths.get(to).exactFactor);
+            assertEquals(expected, converter.convertExact(value, from, to));
+        }
+    }
+
+    @Test
+    public void exactFactors_areReducedAndCached() {
+        int units = converter.getUnitCount();
+        for (int from = 0; from < units; from++) {
+            for (int to = 0; to < units; to++) {
+                Rational factor = converter.exactFactor(from, to);
+                assertEquals(BigInteger.ONE, factor.getNumerator().gcd(factor.getDenominator()));
+                assertEquals(1, factor.getDenominator().signum());
+                assertSame(factor, converter.exactFactor(from, to));
+            }
+        }
+    }
+
+    @Test
+    public void knownFactors_areExact() {
+        // Feet, Inches, Centimeters, Meters, Yards
+        assertEquals(Rational.parse("12"), converter.exactFactor(0, 1));
+        assertEquals(Rational.parse("2.54"), converter.exactFactor(1, 2));
+        assertEquals(Rational.parse("3"), converter.exactFactor(4, 0));
+        assertEquals(12.0, converter.factor(0, 1), 0.0);
+        assertEquals(3.0, converter.factor(4, 0), 0.0);
+    }
+
+    @Test
+    public void doubleFactors_areTheExactFactorsRoundedOnce() {
+        int units = converter.getUnitCount();
+        for (int from = 0; from < units; from++) {
+            for (int to = 0; to < units; to++) {
+                assertEquals(converter.exactFactor(from, to).doubleValue(), converter.factor(from, to), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void doubleValue_roundsOnlyOnce() {
+        // Just above the halfway point between 1 and the next double; a 34-digit decimal first
+        // drops the excess and the tie then rounds down to 1
+        BigInteger scale = BigInteger.ONE.shiftLeft(200);
+        Rational aboveTie = Rational.of(scale.add(BigInteger.ONE.shiftLeft(147)).add(BigInteger.ONE), scale);
+        assertEquals(Math.nextUp(1.0), aboveTie.doubleValue(), 0.0);
+        assertEquals(-Math.nextUp(1.0), aboveTie.negate().doubleValue(), 0.0);
+
+        Random random = new Random(SEED);
+        for (int i = 0; i < SAMPLES; i++) {
+            Rational value = Rational.of(BigInteger.valueOf(random.nextLong()),
+                    BigInteger.valueOf(random.nextInt(Integer.MAX_VALUE) + 1L));
+            double rounded = value.doubleValue();
+            Rational error = distance(value, rounded);
+            assertTrue(value + " -> " + rounded, compare(error, distance(value, Math.nextUp(rounded))) <= 0);
+            assertTrue(value + " -> " + rounded, compare(error, distance(value, Math.nextDown(rounded))) <= 0);
+        }
+    }
+
+    private static Rational distance(Rational value, double candidate) {
+        Rational difference = value.subtract(Rational.valueOf(new BigDecimal(candidate)));
+        return difference.getNumerator().signum() < 0 ? difference.negate() : difference;
+    }
+
+    private static int compare(Rational a, Rational b) {
+        return a.getNumerator().multiply(b.getDenominator()).compareTo(b.getNumerator().multiply(a.getDenominator()));
+    }
+
+    @Test
+    public void bulkConversion_matchesSingleConversions() {
+        Random random = new Random(SEED);
+        double[] values = new double[SAMPLES];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble() * 1e6 - 5e5;
+        }
+        double[] results = new double[values.length];
+        converter.convert(values, results, 2, 4);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(converter.convert(values[i], 2, 4), results[i], 0.0);
+        }
+    }
+
+    @Test
+    public void convertToAll_matchesSingleConversions() {
+        Random random = new Random(SEED);
+        for (UnitConverter dimension : new UnitConverter[]{converter, temperatures}) {
+            int units = dimension.getUnitCount();
+            double[] results = new double[units];
+            for (int i = 0; i < SAMPLES; i++) {
+                double value = random.nextDouble() * 1e6 - 5e5;
+                int from = random.nextInt(units);
+                dimension.convertToAll(value, from, results);
+                for (int to = 0; to < units; to++) {
+                    assertEquals(dimension.convert(value, from, to), results[to], 0.0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void affineRoundTrip_returnsTheOriginalValue() {
+        Random random = new Random(SEED);
+        int units = temperatures.getUnitCount();
+        for (int i = 0; i < SAMPLES; i++) {
+            Rational value = randomDecimal(random);
+            int from = random.nextInt(units);
+            int to = random.nextInt(units);
+            Rational there = temperatures.convertExact(value, from, to);
+            assertEquals(value, temperatures.convertExact(there, to, from));
+            assertEquals(temperatures.convertExact(value, from, KELVIN),
+                    temperatures.convertExact(there, to, KELVIN));
+        }
+    }
+
+    @Test
+    public void knownTemperatures_areExact() {
+        assertEquals(Rational.parse("212"), temperatures.convertExact(Rational.parse("100"), CELSIUS, FAHRENHEIT));
+        assertEquals(Rational.parse("-40"), temperatures.convertExact(Rational.parse("-40"), FAHRENHEIT, CELSIUS));
+        assertEquals(Rational.parse("-273.15"), temperatures.convertExact(Rational.ZERO, KELVIN, CELSIUS));
+        assertEquals(212.0, temperatures.convert(100.0, CELSIUS, FAHRENHEIT), 0.0);
+        assertEquals(32.0, temperatures.offset(CELSIUS, FAHRENHEIT), 0.0);
+        assertEquals(0.0, converter.offset(0, 3), 0.0);
+    }
+
+    @Test
+    public void affineBulkConversion_matchesSingleConversions() {
+        Random random = new Random(SEED);
+        double[] values = new double[SAMPLES];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble() * 1000 - 500;
+        }
+        double[] results = new double[values.length];
+        temperatures.convert(values, results, FAHRENHEIT, CELSIUS);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(temperatures.convert(values[i], FAHRENHEIT, CELSIUS), results[i], 0.0);
+        }
+    }
+
+    @Test
+    public void decimalString_isExactOnlyWhenTheValueTerminates() {
+        assertEquals("0.0254", Rational.parse("0.0254").toDecimalString(15));
+        assertEquals("-1500", Rational.parse("-1.5e3").toDecimalString(15));
+        // 1 cm in feet is 25/762, which repeats
+        Rational cmInFeet = converter.convertExact(Rational.ONE, 2, 0);
+        assertFalse(cmInFeet.isTerminating());
+        assertEquals("0.032808398950131...", cmInFeet.toDecimalString(15));
+    }
+
+    // Up to 9 significant digits and up to 6 decimal places, either sign
+    private static Rational randomDecimal(Random random) {
+        long unscaled = random.nextInt(1_000_000_000) * (random.nextBoolean() ? 1L : -1L);
+        return Rational.valueOf(BigDecimal.valueOf(unscaled, random.nextInt(7)));
+    }
+}
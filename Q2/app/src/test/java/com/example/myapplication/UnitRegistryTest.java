@@ -0,0 +1,87 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the bundled unit definitions and the parser's handling of malformed ones.
+ */
+public class UnitRegistryTest {
+
+    // Unit tests run with the module directory as the working directory
+    private static final String BUNDLED_UNITS = "src/main/assets/units.txt";
+
+    @Test
+    public void bundledUnits_parseAndFindEveryIdAndAlias() throws IOException {
+        UnitRegistry registry;
+        try (Reader reader = new InputStreamReader(new FileInputStream(BUNDLED_UNITS), StandardCharsets.UTF_8)) {
+            registry = UnitRegistry.parse(reader);
+        }
+        int units = 0;
+        for (int d = 0; d < registry.getDimensionCount(); d++) {
+            UnitRegistry.Dimension dimension = registry.getDimension(d);
+            assertEquals(Rational.ONE, dimension.getBase().exactFactor);
+            for (int i = 0; i < dimension.size(); i++) {
+                UnitRegistry.Unit unit = dimension.get(i);
+                assertSame(unit, registry.find(unit.id));
+                for (String alias : unit.aliases) {
+                    assertSame(unit, registry.find(alias));
+                }
+                units++;
+            }
+        }
+        assertEquals(units, registry.getUnitCount());
+        // The length spinner keeps its original order
+        assertArrayEquals(new String[]{"Feet", "Inches", "Centimeters", "Meters", "Yards"},
+                Arrays.copyOf(registry.getDimension(0).getUnitNames(), 5));
+    }
+
+    @Test
+    public void lookup_isCaseSensitive() throws IOException {
+        UnitRegistry registry = UnitRegistry.parse(new StringReader(
+                "@data|Data size|B\nbit|Bits|1/8||b\nB|Bytes|1\n"));
+        assertEquals("Bits", registry.find("b").name);
+        assertEquals("Bytes", registry.find("B").name);
+        assertNull(registry.find("bytes"));
+        assertEquals(Rational.of(BigInteger.ONE, BigInteger.valueOf(8)),
+                registry.find("bit").exactFactor);
+    }
+
+    @Test
+    public void duplicateAlias_isRejectedWithItsLine() {
+        assertParseFails("@length|Length|m\nm|Meters|1||meter\nft|Feet|0.3048||meter\n", "Line 3");
+    }
+
+    @Test
+    public void missingOrScaledBase_isRejected() {
+        assertParseFails("@length|Length|m\nft|Feet|0.3048\n", "base unit m");
+        assertParseFails("@temperature|Temperature|C\nC|Celsius|1|273.15\n", "base unit C");
+    }
+
+    @Test
+    public void malformedLines_areRejectedWithTheirLine() {
+        assertParseFails("ft|Feet|0.3048\n", "Line 1");
+        assertParseFails("@length|Length|m\n\nm|Meters|one\n", "Line 3");
+        assertParseFails("@length|Length|m\nm|Meters\n", "Line 2");
+        assertParseFails("@length|Length|m\nm|Meters|1/0\n", "Line 2");
+    }
+
+    private static void assertParseFails(String definitions, String messagePart) {
+        try {
+            UnitRegistry.parse(new StringReader(definitions));
+            fail("Expected a parse error for " + definitions);
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(messagePart));
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.cameragallery;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.util.Log;
+
+import androidx.exifinterface.media.ExifInterface;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Re-encodes a generated 12 MP capture with the same settings as the capture screen's compress
+ * options and checks the trade-off: the output is the configured size, much smaller than the
+ * capture, still close to it pixel for pixel (PSNR against the capture scaled the same way),
+ * and keeps the camera's EXIF tags.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PhotoTranscoderTest {
+    private static final String TAG = "PhotoTranscoderTest";
+
+    private static final int CAPTURE_WIDTH = 4000;
+    private static final int CAPTURE_HEIGHT = 3000;
+    private static final int MAX_DIMENSION = 2048;
+    // Half the capture's bytes is a loose bound; a 4x downscale at q80-85 usually lands far below
+    private static final double MAX_SIZE_RATIO = 0.5;
+    private static final double MIN_PSNR_DB = 30;
+
+    private static File dir;
+    private static File capture;
+    private static PhotoTranscoder transcoder;
+
+    @BeforeClass
+    public static void createCapture() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dir = new File(context.getCacheDir(), "transcode-test");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        transcoder = PhotoTranscoder.getInstance(context);
+
+        // Smooth gradients, hard edges and a little sensor-like noise, saved as the camera would
+        Bitmap bitmap = Bitmap.createBitmap(CAPTURE_WIDTH, CAPTURE_HEIGHT, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setShader(new LinearGradient(0, 0, CAPTURE_WIDTH, CAPTURE_HEIGHT,
+                0xFF20406A, 0xFFF0C080, Shader.TileMode.CLAMP));
+        canvas.drawRect(0, 0, CAPTURE_WIDTH, CAPTURE_HEIGHT, paint);
+        paint.setShader(null);
+        Random random = new Random(18);
+        for (int i = 0; i < 60; i++) {
+            paint.setColor(Color.rgb(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+            canvas.drawCircle(random.nextInt(CAPTURE_WIDTH), random.nextInt(CAPTURE_HEIGHT),
+                    40 + random.nextInt(300), paint);
+        }
+        int[] row = new int[CAPTURE_WIDTH];
+        for (int y = 0; y < CAPTURE_HEIGHT; y++) {
+            bitmap.getPixels(row, 0, CAPTURE_WIDTH, 0, y, CAPTURE_WIDTH, 1);
+            for (int x = 0; x < CAPTURE_WIDTH; x++) {
+                int noise = random.nextInt(7) - 3;
+                row[x] = Color.rgb(clamp(Color.red(row[x]) + noise),
+                        clamp(Color.green(row[x]) + noise), clamp(Color.blue(row[x]) + noise));
+            }
+            bitmap.setPixels(row, 0, CAPTURE_WIDTH, 0, y, CAPTURE_WIDTH, 1);
+        }
+        capture = new File(dir, "IMG_capture.jpg");
+        try (OutputStream out = new FileOutputStream(capture)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, 95, out);
+        }
+        bitmap.recycle();
+
+        ExifInterface exif = new ExifInterface(capture.getAbsolutePath());
+        exif.setAttribute(ExifInterface.TAG_MODEL, "Test camera");
+        exif.setAttribute(ExifInterface.TAG_ORIENTATION, String.valueOf(ExifInterface.ORIENTATION_ROTATE_90));
+        exif.saveAttributes();
+    }
+
+    @AfterClass
+    public static void deleteCapture() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void jpeg_isSmallerAtTheConfiguredSizeAndQuality() throws Exception {
+        check(new PhotoTranscoder.Config(MAX_DIMENSION, 85, PhotoTranscoder.Format.JPEG));
+    }
+
+    @Test
+    public void webp_isSmallerAtTheConfiguredSizeAndQuality() throws Exception {
+        check(new PhotoTranscoder.Config(MAX_DIMENSION, 80, PhotoTranscoder.Format.WEBP));
+    }
+
+    @Test
+    public void listener_isCalledOnTheEncodingThread() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<PhotoTranscoder.Result> result = new AtomicReference<>();
+        AtomicReference<String> thread = new AtomicReference<>();
+        transcoder.submit(capture, new PhotoTranscoder.Config(MAX_DIMENSION, 85, PhotoTranscoder.Format.JPEG),
+                new PhotoTranscoder.Listener() {
+                    @Override
+                    public void onTranscoded(PhotoTranscoder.Result transcoded) {
+                        result.set(transcoded);
+                        thread.set(Thread.currentThread().getName());
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onTranscodeFailed(IOException e) {
+                        thread.set(Thread.currentThread().getName());
+                        done.countDown();
+                    }
+                });
+
+        assertTrue("encode timed out", done.await(60, TimeUnit.SECONDS));
+        assertNotNull("encode failed", result.get());
+        assertTrue(thread.get(), thread.get().startsWith("transcode-"));
+        result.get().file.delete();
+    }
+
+    private static void check(PhotoTranscoder.Config config) throws Exception {
+        PhotoTranscoder.Result result = transcoder.submit(capture, config).get(60, TimeUnit.SECONDS);
+        try {
+            Log.i(TAG, String.format("%s q%d: %d -> %d bytes (%.0f%%), %dx%d in %d ms, %.1f MP/s",
+                    config.format, config.quality, result.inputBytes, result.outputBytes,
+                    result.getSizeRatio() * 100, result.width, result.height, result.millis,
+                    result.getMegapixelsPerSecond()));
+            assertTrue(result.transcoded);
+            assertEquals(MAX_DIMENSION, result.width);
+            assertEquals(MAX_DIMENSION * CAPTURE_HEIGHT / CAPTURE_WIDTH, result.height);
+            assertEquals(result.file.length(), result.outputBytes);
+            assertTrue("size ratio " + result.getSizeRatio(), result.getSizeRatio() < MAX_SIZE_RATIO);
+
+            BitmapFactory.Options bounds = new BitmapFactory.Options();
+            bounds.inJustDecodeBounds = true;
+            BitmapFactory.decodeFile(result.file.getAbsolutePath(), bounds);
+            assertEquals(result.width, bounds.outWidth);
+            assertEquals(result.height, bounds.outHeight);
+            assertEquals(config.format.mimeType, bounds.outMimeType);
+
+            double psnr = psnr(result.file, result.width, result.height);
+            Log.i(TAG, String.format("%s q%d: PSNR %.1f dB", config.format, config.quality, psnr));
+            assertTrue("PSNR " + psnr + " dB", psnr >= MIN_PSNR_DB);
+
+            ExifInterface exif = new ExifInterface(result.file.getAbsolutePath());
+            assertEquals("Test camera", exif.getAttribute(ExifInterface.TAG_MODEL));
+            assertEquals(ExifInterface.ORIENTATION_ROTATE_90,
+                    exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_UNDEFINED));
+        } finally {
+            result.file.delete();
+        }
+    }
+
+    // Compares the output with the capture scaled to the same size, over the RGB channels
+    private static double psnr(File output, int width, int height) {
+        Bitmap source = BitmapFactory.decodeFile(capture.getAbsolutePath());
+        Bitmap reference = Bitmap.createScaledBitmap(source, width, height, true);
+        source.recycle();
+        Bitmap encoded = BitmapFactory.decodeFile(output.getAbsolutePath());
+
+        int[] expected = new int[width];
+        int[] actual = new int[width];
+        double squaredError = 0;
+        for (int y = 0; y < height; y++) {
+            reference.getPixels(expected, 0, width, 0, y, width, 1);
+            encoded.getPixels(actual, 0, width, 0, y, width, 1);
+            for (int x = 0; x < width; x++) {
+                int r = Color.red(expected[x]) - Color.red(actual[x]);
+                int g = Color.green(expected[x]) - Color.green(actual[x]);
+                int b = Color.blue(expected[x]) - Color.blue(actual[x]);
+                squaredError += r * r + g * g + b * b;
+            }
+        }
+        reference.recycle();
+        encoded.recycle();
+
+        double mse = squaredError / (3.0 * width * height);
+        return mse == 0 ? Double.POSITIVE_INFINITY : 10 * Math.log10(255 * 255 / mse);
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
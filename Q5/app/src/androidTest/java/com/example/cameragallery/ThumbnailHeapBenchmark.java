@@ -0,0 +1,145 @@
+package com.example.cameragallery;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.request.FutureTarget;
+import com.bumptech.glide.request.RequestOptions;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Scrolls 10k grid cells through Glide twice, once with the old per-bind full-resolution
+ * options and once with {@link ThumbnailLoader}, and compares the peak Java + native heap.
+ * Cells stay bound while they are on screen and are cleared as they scroll off, like the grid.
+ * Each item has its own URI, so every cell is a fresh decode rather than a memory cache hit.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ThumbnailHeapBenchmark {
+    private static final String TAG = "ThumbnailHeapBenchmark";
+
+    private static final int ITEMS = 10_000;
+    private static final int SOURCE_FILES = 40;
+    private static final int SOURCE_WIDTH = 2048;
+    private static final int SOURCE_HEIGHT = 1536;
+    // Roughly one screen of the 3-column grid
+    private static final int VISIBLE_CELLS = ThumbnailLoader.SPAN_COUNT * 8;
+
+    private static List<ImageItem> items;
+
+    @BeforeClass
+    public static void createImages() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        File dir = new File(context.getCacheDir(), "thumbnail-bench");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+
+        Bitmap bitmap = Bitmap.createBitmap(SOURCE_WIDTH, SOURCE_HEIGHT, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint();
+        File[] files = new File[SOURCE_FILES];
+        for (int i = 0; i < SOURCE_FILES; i++) {
+            paint.setShader(new LinearGradient(0, 0, SOURCE_WIDTH, SOURCE_HEIGHT,
+                    0xFF000000 | (i * 0x060311), 0xFFFFFFFF ^ (i * 0x0A0507), Shader.TileMode.MIRROR));
+            canvas.drawRect(0, 0, SOURCE_WIDTH, SOURCE_HEIGHT, paint);
+            files[i] = new File(dir, "IMG_" + i + ".jpg");
+            try (OutputStream out = new FileOutputStream(files[i])) {
+                bitmap.compress(Bitmap.CompressFormat.JPEG, 90, out);
+            }
+        }
+        bitmap.recycle();
+
+        items = new ArrayList<>(ITEMS);
+        for (int i = 0; i < ITEMS; i++) {
+            File file = files[i % SOURCE_FILES];
+            // The query only makes the Glide key unique; file URIs are opened by path
+            Uri uri = Uri.fromFile(file).buildUpon().appendQueryParameter("n", Integer.toString(i)).build();
+            items.add(new ImageItem(uri.toString(), file.getName(), file.getPath(), file.length(), i));
+        }
+    }
+
+    @Test
+    public void scroll_thumbnailLoaderLowersPeakHeap() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        RequestManager glide = Glide.with(context);
+        ThumbnailLoader thumbnailLoader = ThumbnailLoader.getInstance(context);
+
+        long baselinePeak = scroll(context, item -> glide.load(Uri.parse(item.getUri()))
+                .apply(new RequestOptions()
+                        .diskCacheStrategy(DiskCacheStrategy.ALL)
+                        .centerCrop()));
+        long thumbnailPeak = scroll(context, item -> thumbnailLoader.request(glide, item));
+
+        String result = "Peak heap scrolling " + ITEMS + " images: full-resolution options "
+                + baselinePeak / 1024 + " KB, ThumbnailLoader " + thumbnailPeak / 1024 + " KB";
+        Log.i(TAG, result);
+        System.out.println(result);
+        assertTrue(result, thumbnailPeak < baselinePeak);
+    }
+
+    private interface CellRequest {
+        RequestBuilder<Drawable> build(ImageItem item);
+    }
+
+    private static long scroll(Context context, CellRequest request) throws Exception {
+        Glide glide = Glide.get(context);
+        glide.clearDiskCache();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(glide::clearMemory);
+        Runtime.getRuntime().gc();
+
+        ThumbnailLoader thumbnailLoader = ThumbnailLoader.getInstance(context);
+        RequestManager requests = Glide.with(context);
+        ArrayDeque<FutureTarget<Drawable>> onScreen = new ArrayDeque<>(VISIBLE_CELLS);
+        long peak = 0;
+        for (ImageItem item : items) {
+            FutureTarget<Drawable> cell = request.build(item)
+                    .submit(thumbnailLoader.getCellWidth(), thumbnailLoader.getCellHeight());
+            onScreen.add(cell);
+            if (onScreen.size() > VISIBLE_CELLS) {
+                FutureTarget<Drawable> offScreen = onScreen.remove();
+                offScreen.get();
+                requests.clear(offScreen);
+            }
+            peak = Math.max(peak, usedHeap());
+        }
+        for (FutureTarget<Drawable> cell : onScreen) {
+            cell.get();
+            requests.clear(cell);
+        }
+        return Math.max(peak, usedHeap());
+    }
+
+    // Bitmap pixels live in the native heap from API 26, and in the Java heap before that
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory() + Debug.getNativeHeapAllocatedSize();
+    }
+}
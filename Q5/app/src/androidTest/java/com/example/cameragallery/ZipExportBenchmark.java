@@ -0,0 +1,159 @@
+package com.example.cameragallery;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.*;
+
+/**
+ * Exports 1,000 camera-sized images into one ZIP and reports MB/s, checking that the Java heap
+ * stays flat while it runs and that every image ends up as a STORED entry with the right CRC.
+ * The exporter only streams bytes, so the sources are seeded random data under JPEG names;
+ * several items share a file, and the repeated display names exercise the unique entry naming.
+ * One warm-up export is followed by {@link #RUNS} measured ones, each logged, so a quoted figure
+ * can be rerun with {@code ./gradlew :app:connectedAndroidTest
+ * -Pandroid.testInstrumentationRunnerArguments.class=com.example.cameragallery.ZipExportBenchmark}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ZipExportBenchmark {
+    private static final String TAG = "ZipExportBenchmark";
+
+    private static final int IMAGES = 1_000;
+    private static final int SOURCE_FILES = 50;
+    private static final int SOURCE_BYTES = 512 * 1024;
+    private static final int RUNS = 3;
+    // One reused copy buffer plus the output buffer; anything growing with the count would blow this
+    private static final long MAX_HEAP_GROWTH = 8 * 1024 * 1024;
+
+    private static File dir;
+    private static File archive;
+    private static List<ImageItem> items;
+    private static long[] sourceCrcs;
+
+    @BeforeClass
+    public static void createImages() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dir = new File(context.getCacheDir(), "export-bench");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        archive = new File(dir, "export.zip");
+
+        Random random = new Random(19);
+        byte[] bytes = new byte[SOURCE_BYTES];
+        File[] files = new File[SOURCE_FILES];
+        sourceCrcs = new long[SOURCE_FILES];
+        for (int i = 0; i < SOURCE_FILES; i++) {
+            random.nextBytes(bytes);
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            sourceCrcs[i] = crc.getValue();
+            files[i] = new File(dir, "IMG_" + i + ".jpg");
+            try (OutputStream out = new FileOutputStream(files[i])) {
+                out.write(bytes);
+            }
+        }
+
+        items = new ArrayList<>(IMAGES);
+        for (int i = 0; i < IMAGES; i++) {
+            File file = files[i % SOURCE_FILES];
+            items.add(new ImageItem(Uri.fromFile(file).toString(), file.getName(), file.getPath(),
+                    file.length(), 1_700_000_000_000L + i * 1000L));
+        }
+    }
+
+    @AfterClass
+    public static void deleteImages() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void export_thousandImagesWithFlatHeap() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        ZipExporter exporter = new ZipExporter(context.getContentResolver());
+        exporter.export(items, Uri.fromFile(archive), null);
+        for (int run = 1; run <= RUNS; run++) {
+            ZipExporter.Result result = exporter.export(items, Uri.fromFile(archive), null);
+            Log.i(TAG, String.format("Run %d of %d: %d images, %d MB in %d ms: %.1f MB/s", run, RUNS,
+                    result.exported, result.bytes / (1024 * 1024), result.millis, result.getMegabytesPerSecond()));
+        }
+
+        long before = usedHeap();
+        long[] peak = {before};
+        int[] reports = {0};
+
+        ZipExporter.Result result = exporter.export(items, Uri.fromFile(archive),
+                (filesDone, fileCount, bytesRead, elapsedMillis) -> {
+                    reports[0]++;
+                    Runtime runtime = Runtime.getRuntime();
+                    peak[0] = Math.max(peak[0], runtime.totalMemory() - runtime.freeMemory());
+                });
+        long after = usedHeap();
+
+        long expectedBytes = (long) IMAGES * SOURCE_BYTES;
+        Log.i(TAG, String.format("Exported %d images, %d MB in %d ms: %.1f MB/s, heap peak +%d KB, retained +%d KB",
+                result.exported, result.bytes / (1024 * 1024), result.millis, result.getMegabytesPerSecond(),
+                (peak[0] - before) / 1024, (after - before) / 1024));
+        assertEquals(IMAGES, result.exported);
+        assertEquals(0, result.failed);
+        assertEquals(expectedBytes, result.bytes);
+        assertTrue("reported " + reports[0] + " times", reports[0] >= IMAGES);
+        assertTrue("heap peak grew by " + (peak[0] - before) + " bytes", peak[0] - before < MAX_HEAP_GROWTH);
+        assertTrue("heap retained " + (after - before) + " bytes", after - before < MAX_HEAP_GROWTH);
+
+        try (ZipFile zip = new ZipFile(archive)) {
+            assertEquals(IMAGES, zip.size());
+            Set<String> names = new HashSet<>();
+            Set<Long> crcs = new HashSet<>();
+            for (long crc : sourceCrcs) {
+                crcs.add(crc);
+            }
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                assertTrue("duplicate entry " + entry.getName(), names.add(entry.getName()));
+                assertEquals(entry.getName(), ZipEntry.STORED, entry.getMethod());
+                assertEquals(SOURCE_BYTES, entry.getSize());
+                assertEquals(SOURCE_BYTES, entry.getCompressedSize());
+                assertTrue(entry.getName(), crcs.contains(entry.getCrc()));
+            }
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
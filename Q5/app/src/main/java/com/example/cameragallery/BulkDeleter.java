@@ -0,0 +1,94 @@
+package com.example.cameragallery;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Deletes many gallery images in parallel batches on the shared gallery pool.
+ * Each batch reports which items were deleted and which failed as soon as it finishes,
+ * so the grid can drop them incrementally instead of rescanning the folder.
+ */
+public class BulkDeleter {
+    private static final String TAG = "BulkDeleter";
+    private static final int MIN_BATCH_SIZE = 25;
+    // Keeps very large deletes from flooding the bounded pool queue
+    private static final int MAX_BATCHES = 32;
+
+    public interface Listener {
+        /** Called on a worker thread after every batch, or on the calling thread for a batch the pool dropped. */
+        void onBatchFinished(List<ImageItem> deleted, List<ImageItem> failed);
+
+        /** Called once every batch has finished, on the thread that finished the last one. */
+        void onComplete(int deletedCount, int failedCount);
+    }
+
+    private final ContentResolver resolver;
+
+    public BulkDeleter(ContentResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    public void delete(List<ImageItem> items, Listener listener) {
+        if (items.isEmpty()) {
+            listener.onComplete(0, 0);
+            return;
+        }
+
+        int batchSize = Math.max(MIN_BATCH_SIZE, (items.size() + MAX_BATCHES - 1) / MAX_BATCHES);
+        int batchCount = (items.size() + batchSize - 1) / batchSize;
+        AtomicInteger remainingBatches = new AtomicInteger(batchCount);
+        AtomicInteger deletedCount = new AtomicInteger();
+        AtomicInteger failedCount = new AtomicInteger();
+
+        for (int start = 0; start < items.size(); start += batchSize) {
+            List<ImageItem> batch = new ArrayList<>(items.subList(start, Math.min(items.size(), start + batchSize)));
+            Future<?> future = GalleryScheduler.getInstance().execute(() -> {
+                List<ImageItem> deleted = new ArrayList<>(batch.size());
+                List<ImageItem> failed = new ArrayList<>();
+                for (ImageItem item : batch) {
+                    if (deleteDocument(item)) {
+                        deleted.add(item);
+                    } else {
+                        failed.add(item);
+                    }
+                }
+                finishBatch(deleted, failed, remainingBatches, deletedCount, failedCount, listener);
+            });
+            if (future.isCancelled()) {
+                // The pool was full and dropped the batch; nothing was deleted, but completion must still fire
+                finishBatch(Collections.emptyList(), batch, remainingBatches, deletedCount, failedCount, listener);
+            }
+        }
+    }
+
+    private static void finishBatch(List<ImageItem> deleted, List<ImageItem> failed, AtomicInteger remainingBatches,
+                                    AtomicInteger deletedCount, AtomicInteger failedCount, Listener listener) {
+        deletedCount.addAndGet(deleted.size());
+        failedCount.addAndGet(failed.size());
+        listener.onBatchFinished(deleted, failed);
+
+        // The last batch to finish reports completion
+        if (remainingBatches.decrementAndGet() == 0) {
+            Log.d(TAG, "Bulk delete finished: " + deletedCount.get() + " deleted, "
+                    + failedCount.get() + " failed");
+            listener.onComplete(deletedCount.get(), failedCount.get());
+        }
+    }
+
+    private boolean deleteDocument(ImageItem item) {
+        try {
+            return DocumentsContract.deleteDocument(resolver, Uri.parse(item.getUri()));
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to delete " + item.getName() + ": " + e.getMessage());
+            return false;
+        }
+    }
+}
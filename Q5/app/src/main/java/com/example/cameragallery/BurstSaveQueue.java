@@ -0,0 +1,158 @@
+package com.example.cameragallery;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded queue of captured temp files drained into the selected folder by a single writer thread.
+ * Capture only ever does a non-blocking {@link #enqueue}; the caller should check
+ * {@link #hasCapacity()} before taking the next shot, which is how slow storage pushes back
+ * on the burst. A capture that arrives while the queue is full is dropped and counted.
+ */
+public class BurstSaveQueue {
+    private static final String TAG = "BurstSaveQueue";
+    private static final int CAPACITY = 8;
+
+    private static BurstSaveQueue instance;
+
+    public interface Listener {
+        /** Called on the writer thread after each capture is written (or fails to be). */
+        void onSaveFinished(boolean success, long latencyMillis);
+    }
+
+    private static class Pending {
+        final File file;
+        final Uri folderUri;
+        final long enqueuedAt;
+
+        Pending(File file, Uri folderUri) {
+            this.file = file;
+            this.folderUri = folderUri;
+            this.enqueuedAt = SystemClock.elapsedRealtime();
+        }
+    }
+
+    private final BlockingQueue<Pending> queue = new ArrayBlockingQueue<>(CAPACITY);
+    private final PhotoSaver saver;
+    private volatile Listener listener;
+    private Thread writer;
+
+    private final AtomicInteger saved = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger dropped = new AtomicInteger();
+    private final AtomicLong totalLatencyMillis = new AtomicLong();
+    private final AtomicLong lastLatencyMillis = new AtomicLong();
+
+    public static synchronized BurstSaveQueue getInstance(Context context) {
+        if (instance == null) {
+            instance = new BurstSaveQueue(new PhotoSaver(context));
+        }
+        return instance;
+    }
+
+    private BurstSaveQueue(PhotoSaver saver) {
+        this.saver = saver;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Hands a capture to the writer without blocking.
+     *
+     * @return false if the queue was full and the capture was dropped
+     */
+    public boolean enqueue(File capture, Uri folderUri) {
+        startWriterIfNeeded();
+        if (!queue.offer(new Pending(capture, folderUri))) {
+            dropped.incrementAndGet();
+            Log.w(TAG, "Save queue full, dropping " + capture.getName());
+            if (!capture.delete()) {
+                Log.w(TAG, "Failed to delete dropped capture");
+            }
+            return false;
+        }
+        return true;
+    }
+
+    public boolean hasCapacity() {
+        return queue.remainingCapacity() > 0;
+    }
+
+    public int getDepth() {
+        return queue.size();
+    }
+
+    public int getDroppedCount() {
+        return dropped.get();
+    }
+
+    public int getSavedCount() {
+        return saved.get();
+    }
+
+    public int getFailedCount() {
+        return failed.get();
+    }
+
+    public long getLastLatencyMillis() {
+        return lastLatencyMillis.get();
+    }
+
+    public long getAverageLatencyMillis() {
+        int count = saved.get() + failed.get();
+        return count == 0 ? 0 : totalLatencyMillis.get() / count;
+    }
+
+    private synchronized void startWriterIfNeeded() {
+        if (writer != null) {
+            return;
+        }
+        writer = new Thread(this::drain, "burst-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private void drain() {
+        while (true) {
+            Pending pending;
+            try {
+                pending = queue.take();
+            } catch (InterruptedException e) {
+                Log.d(TAG, "Writer interrupted");
+                return;
+            }
+
+            boolean success = false;
+            try {
+                saver.save(pending.file, pending.folderUri, pending.file.getName(), null);
+                success = true;
+                saved.incrementAndGet();
+                if (!pending.file.delete()) {
+                    Log.w(TAG, "Failed to delete temporary file");
+                }
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                Log.e(TAG, "Error saving " + pending.file.getName() + ": " + e.getMessage(), e);
+            }
+
+            long latency = SystemClock.elapsedRealtime() - pending.enqueuedAt;
+            lastLatencyMillis.set(latency);
+            totalLatencyMillis.addAndGet(latency);
+
+            Listener current = listener;
+            if (current != null) {
+                current.onSaveFinished(success, latency);
+            }
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.cameragallery;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Immutable, column-oriented list of gallery images for very large folders.
+ * Every document URI and path in a folder starts with the same tree and parent directory,
+ * so that prefix is stored once and each row keeps only its suffix, which is usually just
+ * the file name and is then shared by the URI, path and name columns. Sizes and dates live in parallel {@code long[]} columns.
+ * {@link #get(int)} still hands out a plain {@link ImageItem}, built on demand.
+ */
+public final class CompactImageList extends AbstractList<ImageItem> implements RandomAccess {
+    private static final String DOCUMENT_SEGMENT = "/document/";
+    private static final String ENCODED_SLASH = "%2F";
+
+    public static final CompactImageList EMPTY = new Builder(0).build();
+
+    private final int size;
+    private final String uriPrefix;
+    private final String pathPrefix;
+    private final String[] uriSuffixes;
+    private final String[] pathSuffixes;
+    // Rows whose URI or path did not share the prefix keep the full string as their "suffix"
+    private final BitSet unprefixed;
+    // Length of the name at the end of the path suffix, or -1 if the name is in extraNames
+    private final int[] nameLengths;
+    private final String[] extraNames;
+    private final long[] sizes;
+    private final long[] dates;
+
+    private CompactImageList(Builder builder) {
+        size = builder.size;
+        uriPrefix = builder.uriPrefix != null ? builder.uriPrefix : "";
+        pathPrefix = builder.pathPrefix != null ? builder.pathPrefix : "";
+        // Always copied, so a builder that keeps adding rows can't change a list it built
+        uriSuffixes = Arrays.copyOf(builder.uriSuffixes, size);
+        pathSuffixes = Arrays.copyOf(builder.pathSuffixes, size);
+        unprefixed = (BitSet) builder.unprefixed.clone();
+        nameLengths = Arrays.copyOf(builder.nameLengths, size);
+        extraNames = builder.hasExtraNames ? Arrays.copyOf(builder.extraNames, size) : null;
+        sizes = Arrays.copyOf(builder.sizes, size);
+        dates = Arrays.copyOf(builder.dates, size);
+    }
+
+    public static CompactImageList of(List<ImageItem> items) {
+        if (items instanceof CompactImageList) {
+            return (CompactImageList) items;
+        }
+        Builder builder = new Builder(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            builder.add(items.get(i));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public ImageItem get(int index) {
+        checkIndex(index);
+        return new ImageItem(getUri(index), getName(index), getPath(index), sizes[index], dates[index]);
+    }
+
+    public String getUri(int index) {
+        return unprefixed.get(index * 2) ? uriSuffixes[index] : uriPrefix + uriSuffixes[index];
+    }
+
+    public String getPath(int index) {
+        String suffix = pathSuffixes[index];
+        if (suffix == null) return null;
+        return unprefixed.get(index * 2 + 1) ? suffix : pathPrefix + suffix;
+    }
+
+    public String getName(int index) {
+        int length = nameLengths[index];
+        if (length < 0) {
+            return extraNames != null ? extraNames[index] : null;
+        }
+        String suffix = pathSuffixes[index];
+        return suffix.substring(suffix.length() - length);
+    }
+
+    public long getSize(int index) {
+        return sizes[index];
+    }
+
+    public long getDate(int index) {
+        return dates[index];
+    }
+
+    /** Compares the URI of a row with a row of another list without building either string. */
+    public boolean sameUri(int index, CompactImageList other, int otherIndex) {
+        boolean whole = unprefixed.get(index * 2);
+        boolean otherWhole = other.unprefixed.get(otherIndex * 2);
+        if (!whole && !otherWhole && uriPrefix.equals(other.uriPrefix)) {
+            return uriSuffixes[index].equals(other.uriSuffixes[otherIndex]);
+        }
+        return getUri(index).equals(other.getUri(otherIndex));
+    }
+
+    /** Compares every field of a row with a row of another list, normally without building any string. */
+    public boolean sameContents(int index, CompactImageList other, int otherIndex) {
+        if (sizes[index] != other.sizes[otherIndex] || dates[index] != other.dates[otherIndex]
+                || !sameUri(index, other, otherIndex)) {
+            return false;
+        }
+        String suffix = pathSuffixes[index];
+        String otherSuffix = other.pathSuffixes[otherIndex];
+        boolean whole = suffix == null || unprefixed.get(index * 2 + 1);
+        boolean otherWhole = otherSuffix == null || other.unprefixed.get(otherIndex * 2 + 1);
+        if (whole || otherWhole || !pathPrefix.equals(other.pathPrefix)) {
+            // Rows outside the shared folder are rare, so they are just compared as strings
+            return Objects.equals(getPath(index), other.getPath(otherIndex))
+                    && Objects.equals(getName(index), other.getName(otherIndex));
+        }
+        if (!suffix.equals(otherSuffix)) {
+            return false;
+        }
+        // Same-length names cut from the end of equal suffixes are equal too
+        int nameLength = nameLengths[index];
+        if (nameLength >= 0 && nameLength == other.nameLengths[otherIndex]) {
+            return true;
+        }
+        return Objects.equals(getName(index), other.getName(otherIndex));
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+    }
+
+    // Up to the parent directory inside the document ID, e.g. ".../document/primary%3ADCIM%2F"
+    static String uriPrefixOf(String uri) {
+        int document = uri.lastIndexOf(DOCUMENT_SEGMENT);
+        if (document < 0) return "";
+        int start = document + DOCUMENT_SEGMENT.length();
+        int parent = uri.lastIndexOf(ENCODED_SLASH);
+        return parent >= start ? uri.substring(0, parent + ENCODED_SLASH.length()) : uri.substring(0, start);
+    }
+
+    static String pathPrefixOf(String path) {
+        if (path == null) return "";
+        return path.substring(0, path.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Appends rows one at a time. The shared prefixes are taken from the first row;
+     * later rows that don't share them are still stored, just without the saving.
+     */
+    public static final class Builder {
+        private int size;
+        private String uriPrefix;
+        private String pathPrefix;
+        private String[] uriSuffixes;
+        private String[] pathSuffixes;
+        private final BitSet unprefixed = new BitSet();
+        private int[] nameLengths;
+        private String[] extraNames;
+        private boolean hasExtraNames;
+        private long[] sizes;
+        private long[] dates;
+
+        public Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 16);
+            uriSuffixes = new String[capacity];
+            pathSuffixes = new String[capacity];
+            nameLengths = new int[capacity];
+            extraNames = new String[capacity];
+            sizes = new long[capacity];
+            dates = new long[capacity];
+        }
+
+        public Builder add(ImageItem item) {
+            return add(item.getUri(), item.getName(), item.getPath(), item.getSize(), item.getDate());
+        }
+
+        /** Copies a row of another compact list, reusing its suffix strings. */
+        public Builder addFrom(CompactImageList source, int index) {
+            if (uriPrefix == null) {
+                uriPrefix = source.uriPrefix;
+                pathPrefix = source.pathPrefix;
+            }
+            boolean uriShared = !source.unprefixed.get(index * 2) && uriPrefix.equals(source.uriPrefix);
+            boolean pathShared = !source.unprefixed.get(index * 2 + 1) && pathPrefix.equals(source.pathPrefix);
+            if (!uriShared || !pathShared) {
+                return add(source.get(index));
+            }
+
+            ensureCapacity();
+            uriSuffixes[size] = source.uriSuffixes[index];
+            pathSuffixes[size] = source.pathSuffixes[index];
+            nameLengths[size] = source.nameLengths[index];
+            if (source.nameLengths[index] < 0) {
+                extraNames[size] = source.extraNames != null ? source.extraNames[index] : null;
+                hasExtraNames |= extraNames[size] != null;
+            }
+            sizes[size] = source.sizes[index];
+            dates[size] = source.dates[index];
+            size++;
+            return this;
+        }
+
+        public Builder add(String uri, String name, String path, long fileSize, long date) {
+            if (uriPrefix == null) {
+                uriPrefix = uriPrefixOf(uri);
+                pathPrefix = pathPrefixOf(path);
+            }
+            ensureCapacity();
+
+            if (uri.startsWith(uriPrefix)) {
+                uriSuffixes[size] = uri.substring(uriPrefix.length());
+            } else {
+                uriSuffixes[size] = uri;
+                unprefixed.set(size * 2);
+            }
+
+            String pathSuffix = path;
+            if (path != null) {
+                if (path.startsWith(pathPrefix)) {
+                    pathSuffix = path.substring(pathPrefix.length());
+                } else {
+                    unprefixed.set(size * 2 + 1);
+                }
+            }
+            // The decoded path suffix is normally the same text as the URI suffix, so share it
+            pathSuffixes[size] = pathSuffix != null && pathSuffix.equals(uriSuffixes[size])
+                    ? uriSuffixes[size] : pathSuffix;
+
+            if (name != null && pathSuffix != null && pathSuffix.endsWith(name)) {
+                nameLengths[size] = name.length();
+            } else {
+                nameLengths[size] = -1;
+                extraNames[size] = name;
+                hasExtraNames |= name != null;
+            }
+
+            sizes[size] = fileSize;
+            dates[size] = date;
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public CompactImageList build() {
+            return new CompactImageList(this);
+        }
+
+        private void ensureCapacity() {
+            if (size < sizes.length) return;
+            int capacity = sizes.length * 2;
+            uriSuffixes = grow(uriSuffixes, capacity);
+            pathSuffixes = grow(pathSuffixes, capacity);
+            extraNames = grow(extraNames, capacity);
+            int[] lengths = new int[capacity];
+            System.arraycopy(nameLengths, 0, lengths, 0, size);
+            nameLengths = lengths;
+            long[] newSizes = new long[capacity];
+            System.arraycopy(sizes, 0, newSizes, 0, size);
+            sizes = newSizes;
+            long[] newDates = new long[capacity];
+            System.arraycopy(dates, 0, newDates, 0, size);
+            dates = newDates;
+        }
+
+        private static String[] grow(String[] array, int capacity) {
+            String[] grown = new String[capacity];
+            System.arraycopy(array, 0, grown, 0, array.length);
+            return grown;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.cameragallery;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Finds near-duplicate and burst shots in a folder.
+ * Each image gets a 64-bit difference hash (dHash) from a small downsampled decode; hashes are
+ * persisted in {@link GalleryIndexStore}, so a rerun only decodes new or changed files.
+ * Each image joins the closest cluster whose first image is within {@link #MAX_DISTANCE} bits,
+ * or starts a new cluster. Checking against that one representative rather than any member
+ * keeps a slowly drifting series, where each shot is close to the last, from chaining into one
+ * cluster. Representatives are found with multi-index hashing rather than comparing every pair.
+ * Blocking; run it on a background thread.
+ */
+public class DuplicateDetector {
+    private static final String TAG = "DuplicateDetector";
+    public static final int MAX_DISTANCE = 8;
+    // Decode at least this many pixels on the short side before shrinking to the 9x8 hash grid
+    private static final int DECODE_MIN_SIDE = 64;
+    private static final int SAVE_BATCH = 100;
+
+    private final ContentResolver resolver;
+    private final GalleryIndexStore store;
+
+    /** A group of similar images; the best one is kept when the rest are deleted. */
+    public static class Cluster {
+        public final List<ImageItem> items;
+
+        Cluster(List<ImageItem> items) {
+            this.items = items;
+        }
+
+        /** The largest file, as the least compressed; the newest one wins a tie. */
+        public ImageItem best() {
+            ImageItem best = items.get(0);
+            for (ImageItem item : items) {
+                if (item.getSize() > best.getSize()
+                        || (item.getSize() == best.getSize() && item.getDate() > best.getDate())) {
+                    best = item;
+                }
+            }
+            return best;
+        }
+
+        public List<ImageItem> rest() {
+            ImageItem best = best();
+            List<ImageItem> rest = new ArrayList<>(items.size() - 1);
+            for (ImageItem item : items) {
+                if (item != best) {
+                    rest.add(item);
+                }
+            }
+            return rest;
+        }
+    }
+
+    public DuplicateDetector(ContentResolver resolver, GalleryIndexStore store) {
+        this.resolver = resolver;
+        this.store = store;
+    }
+
+    /**
+     * Hashes whatever is not cached yet and returns the clusters of two or more similar images,
+     * largest cluster first.
+     *
+     * @throws CancellationException if the thread is interrupted
+     */
+    public List<Cluster> findDuplicates(String folder, List<ImageItem> images) {
+        long start = SystemClock.elapsedRealtime();
+        Map<String, Long> cached = store.loadHashes(folder, images);
+
+        int count = images.size();
+        long[] hashes = new long[count];
+        boolean[] hashed = new boolean[count];
+        List<ImageItem> pendingItems = new ArrayList<>(SAVE_BATCH);
+        long[] pendingHashes = new long[SAVE_BATCH];
+        int computed = 0;
+
+        for (int i = 0; i < count; i++) {
+            if (Thread.currentThread().isInterrupted()) {
+                saveHashes(folder, pendingItems, pendingHashes);
+                throw new CancellationException("Duplicate detection cancelled");
+            }
+            ImageItem item = images.get(i);
+            Long known = cached.get(item.getUri());
+            if (known != null) {
+                hashes[i] = known;
+                hashed[i] = true;
+                continue;
+            }
+            try {
+                hashes[i] = hash(Uri.parse(item.getUri()));
+                hashed[i] = true;
+                computed++;
+                pendingHashes[pendingItems.size()] = hashes[i];
+                pendingItems.add(item);
+                // Saved in batches, so an interrupted run keeps most of its work
+                if (pendingItems.size() == SAVE_BATCH) {
+                    saveHashes(folder, pendingItems, pendingHashes);
+                }
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Cannot hash " + item.getName() + ": " + e.getMessage());
+            }
+        }
+        saveHashes(folder, pendingItems, pendingHashes);
+
+        List<Cluster> clusters = cluster(images, hashes, hashed);
+        Log.d(TAG, "Found " + clusters.size() + " clusters in " + count + " images (" + computed
+                + " hashed, " + (count - computed) + " cached) in " + (SystemClock.elapsedRealtime() - start) + " ms");
+        return clusters;
+    }
+
+    private void saveHashes(String folder, List<ImageItem> items, long[] hashes) {
+        if (!items.isEmpty()) {
+            store.putHashes(folder, items, hashes);
+            items.clear();
+        }
+    }
+
+    private long hash(Uri uri) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) throw new IOException("Cannot open " + uri);
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Not a decodable image");
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        int shortSide = Math.min(bounds.outWidth, bounds.outHeight);
+        while (shortSide / (options.inSampleSize * 2) >= DECODE_MIN_SIDE) {
+            options.inSampleSize *= 2;
+        }
+
+        Bitmap bitmap;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) throw new IOException("Cannot open " + uri);
+            bitmap = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (bitmap == null) {
+            throw new IOException("Decode failed");
+        }
+        try {
+            return dHash(bitmap);
+        } finally {
+            bitmap.recycle();
+        }
+    }
+
+    /** 64-bit difference hash: one bit per horizontally adjacent pair on a 9x8 grayscale grid. */
+    static long dHash(Bitmap bitmap) {
+        Bitmap grid = Bitmap.createScaledBitmap(bitmap, 9, 8, true);
+        int[] pixels = new int[9 * 8];
+        grid.getPixels(pixels, 0, 9, 0, 0, 9, 8);
+        if (grid != bitmap) {
+            grid.recycle();
+        }
+
+        long hash = 0;
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                hash <<= 1;
+                if (luminance(pixels[y * 9 + x]) > luminance(pixels[y * 9 + x + 1])) {
+                    hash |= 1;
+                }
+            }
+        }
+        return hash;
+    }
+
+    private static int luminance(int color) {
+        return (((color >> 16) & 0xFF) * 299 + ((color >> 8) & 0xFF) * 587 + (color & 0xFF) * 114) / 1000;
+    }
+
+    static List<Cluster> cluster(List<ImageItem> images, long[] hashes, boolean[] hashed) {
+        // Only representatives are indexed: the first image of each cluster in folder order
+        MultiIndex representatives = new MultiIndex(hashes.length);
+        Map<Integer, List<ImageItem>> groups = new HashMap<>();
+        int[] closest = new int[2];
+
+        for (int i = 0; i < hashes.length; i++) {
+            if (!hashed[i]) continue;
+            long hash = hashes[i];
+            closest[0] = -1;
+            closest[1] = MAX_DISTANCE + 1;
+            representatives.forEachCandidate(hash, j -> {
+                int distance = Long.bitCount(hash ^ hashes[j]);
+                if (distance < closest[1] || (distance == closest[1] && j < closest[0])) {
+                    closest[0] = j;
+                    closest[1] = distance;
+                }
+            });
+
+            int representative = closest[0];
+            if (representative < 0) {
+                representatives.add(hash, i);
+                continue;
+            }
+            // The group is only built once a second member shows up
+            List<ImageItem> group = groups.get(representative);
+            if (group == null) {
+                group = new ArrayList<>();
+                group.add(images.get(representative));
+                groups.put(representative, group);
+            }
+            group.add(images.get(i));
+        }
+
+        List<Cluster> clusters = new ArrayList<>(groups.size());
+        for (List<ImageItem> group : groups.values()) {
+            clusters.add(new Cluster(group));
+        }
+        Collections.sort(clusters, (a, b) -> Integer.compare(b.items.size(), a.items.size()));
+        return clusters;
+    }
+
+    interface CandidateVisitor {
+        void visit(int index);
+    }
+
+    /**
+     * Multi-index hashing: the 64 hash bits are split into {@code MAX_DISTANCE + 1} chunks, and
+     * each chunk value has its own bucket. Two hashes within {@code MAX_DISTANCE} bits must agree
+     * exactly on at least one chunk, so only the images sharing a bucket are ever compared.
+     */
+    static class MultiIndex {
+        private static final int CHUNKS = MAX_DISTANCE + 1;
+
+        private final int[] shifts = new int[CHUNKS];
+        private final int[] masks = new int[CHUNKS];
+        // Per chunk, bucket heads and a "next" chain through image indexes; -1 ends a chain
+        private final int[][] heads = new int[CHUNKS][];
+        private final int[][] next = new int[CHUNKS][];
+
+        MultiIndex(int capacity) {
+            int shift = 0;
+            for (int c = 0; c < CHUNKS; c++) {
+                int bits = 64 / CHUNKS + (c < 64 % CHUNKS ? 1 : 0);
+                shifts[c] = shift;
+                masks[c] = (1 << bits) - 1;
+                heads[c] = new int[1 << bits];
+                Arrays.fill(heads[c], -1);
+                next[c] = new int[capacity];
+                shift += bits;
+            }
+        }
+
+        void add(long hash, int index) {
+            for (int c = 0; c < CHUNKS; c++) {
+                int bucket = (int) (hash >>> shifts[c]) & masks[c];
+                next[c][index] = heads[c][bucket];
+                heads[c][bucket] = index;
+            }
+        }
+
+        /** Visits every added image sharing a chunk with {@code hash}; may visit one more than once. */
+        void forEachCandidate(long hash, CandidateVisitor visitor) {
+            for (int c = 0; c < CHUNKS; c++) {
+                int bucket = (int) (hash >>> shifts[c]) & masks[c];
+                for (int j = heads[c][bucket]; j >= 0; j = next[c][j]) {
+                    visitor.visit(j);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.cameragallery;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.exifinterface.media.ExifInterface;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+/**
+ * Reads camera metadata for the details screen.
+ * Parsing happens on the gallery scheduler and only reads up to the end of the EXIF segment,
+ * never the image data. Results are cached per URI and last-modified time, and the grid's
+ * EXIF thumbnail fetch fills the same cache, so most images are never parsed twice.
+ */
+public class ExifMetadataLoader {
+    private static final String TAG = "ExifMetadataLoader";
+    private static final String LOAD_KEY = "exif";
+    private static final int CACHE_SIZE = 256;
+
+    private static ExifMetadataLoader instance;
+
+    private final ContentResolver resolver;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final LruCache<String, Metadata> cache = new LruCache<>(CACHE_SIZE);
+
+    public interface Callback {
+        /** Called on the main thread; {@code metadata} is null if the file could not be read. */
+        void onMetadata(ImageItem item, Metadata metadata);
+    }
+
+    /** The EXIF fields shown on the details screen; missing tags are null. */
+    public static class Metadata {
+        public final String camera;
+        public final String exposure;
+        public final String iso;
+        public final String focalLength;
+        public final String gps;
+        public final int rotationDegrees;
+        public final boolean flipped;
+
+        Metadata(ExifInterface exif) {
+            camera = cameraOf(exif);
+            exposure = exposureOf(exif);
+            iso = exif.getAttribute(ExifInterface.TAG_PHOTOGRAPHIC_SENSITIVITY);
+            double focal = exif.getAttributeDouble(ExifInterface.TAG_FOCAL_LENGTH, 0);
+            focalLength = focal > 0 ? String.format(Locale.US, "%.1f mm", focal) : null;
+            double[] latLong = exif.getLatLong();
+            gps = latLong != null ? String.format(Locale.US, "%.5f, %.5f", latLong[0], latLong[1]) : null;
+            rotationDegrees = exif.getRotationDegrees();
+            flipped = exif.isFlipped();
+        }
+
+        /** One line per field, in the same "Label: value" form as the rest of the screen. */
+        public String describe() {
+            return "Camera: " + orUnknown(camera)
+                    + "\nExposure: " + orUnknown(exposure)
+                    + "\nISO: " + orUnknown(iso)
+                    + "\nFocal length: " + orUnknown(focalLength)
+                    + "\nGPS: " + (gps != null ? gps : "None")
+                    + "\nOrientation: " + rotationDegrees + "°" + (flipped ? " (mirrored)" : "");
+        }
+
+        private static String orUnknown(String value) {
+            return value != null ? value : "Unknown";
+        }
+
+        private static String cameraOf(ExifInterface exif) {
+            String make = exif.getAttribute(ExifInterface.TAG_MAKE);
+            String model = exif.getAttribute(ExifInterface.TAG_MODEL);
+            if (model == null) return make;
+            if (make == null || model.startsWith(make)) return model;
+            return make + " " + model;
+        }
+
+        private static String exposureOf(ExifInterface exif) {
+            double seconds = exif.getAttributeDouble(ExifInterface.TAG_EXPOSURE_TIME, 0);
+            double fNumber = exif.getAttributeDouble(ExifInterface.TAG_F_NUMBER, 0);
+            if (seconds <= 0 && fNumber <= 0) return null;
+
+            StringBuilder builder = new StringBuilder();
+            if (seconds > 0) {
+                builder.append(seconds < 1
+                        ? "1/" + Math.round(1 / seconds) + " s"
+                        : String.format(Locale.US, "%.1f s", seconds));
+            }
+            if (fNumber > 0) {
+                if (builder.length() > 0) builder.append(", ");
+                builder.append(String.format(Locale.US, "f/%.1f", fNumber));
+            }
+            return builder.toString();
+        }
+    }
+
+    public static synchronized ExifMetadataLoader getInstance(Context context) {
+        if (instance == null) {
+            instance = new ExifMetadataLoader(context.getApplicationContext().getContentResolver());
+        }
+        return instance;
+    }
+
+    private ExifMetadataLoader(ContentResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    /**
+     * Delivers the metadata of an image, from the cache if possible, otherwise parsed in the
+     * background. A newer load supersedes one still in flight, e.g. after a quick swipe.
+     */
+    public void load(ImageItem item, Callback callback) {
+        String key = keyOf(Uri.parse(item.getUri()), item.getDate());
+        Metadata cached = cache.get(key);
+        if (cached != null) {
+            callback.onMetadata(item, cached);
+            return;
+        }
+
+        GalleryScheduler.getInstance().executeLatest(LOAD_KEY, () -> {
+            Metadata metadata = null;
+            try (InputStream in = resolver.openInputStream(Uri.parse(item.getUri()))) {
+                if (in != null) {
+                    metadata = new Metadata(new ExifInterface(new BufferedInputStream(in)));
+                    cache.put(key, metadata);
+                }
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Error reading EXIF of " + item.getUri() + ": " + e.getMessage(), e);
+            }
+            Metadata result = metadata;
+            mainHandler.post(() -> callback.onMetadata(item, result));
+        });
+    }
+
+    /** Stores metadata that was parsed elsewhere, such as during an EXIF thumbnail fetch. */
+    public void put(Uri uri, long lastModified, ExifInterface exif) {
+        String key = keyOf(uri, lastModified);
+        if (cache.get(key) == null) {
+            cache.put(key, new Metadata(exif));
+        }
+    }
+
+    private static String keyOf(Uri uri, long lastModified) {
+        return uri + "@" + lastModified;
+    }
+}
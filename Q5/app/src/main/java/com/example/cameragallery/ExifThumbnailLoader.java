@@ -0,0 +1,177 @@
+package com.example.cameragallery;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.exifinterface.media.ExifInterface;
+
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.signature.ObjectKey;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Glide model loader that serves the small JPEG thumbnail embedded in a photo's EXIF block.
+ * ExifInterface stops reading once the EXIF segment is parsed, so this is far cheaper
+ * than decoding the full camera image and is used as the fast path for grid cells.
+ * The embedded thumbnail carries no orientation of its own, so the photo's orientation is
+ * applied here from the same parse, and the parsed tags are handed to {@link ExifMetadataLoader}.
+ */
+public class ExifThumbnailLoader implements ModelLoader<ExifThumbnailLoader.Model, Bitmap> {
+    private final ContentResolver resolver;
+    private final ExifMetadataLoader metadataLoader;
+
+    /** Glide model for the EXIF thumbnail of an image, keyed by URI and last-modified. */
+    public static final class Model {
+        final Uri uri;
+        final long lastModified;
+
+        public Model(Uri uri, long lastModified) {
+            this.uri = uri;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Model)) return false;
+            Model other = (Model) o;
+            return lastModified == other.lastModified && uri.equals(other.uri);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * uri.hashCode() + Long.hashCode(lastModified);
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "exif:" + uri + "@" + lastModified;
+        }
+    }
+
+    public ExifThumbnailLoader(ContentResolver resolver, ExifMetadataLoader metadataLoader) {
+        this.resolver = resolver;
+        this.metadataLoader = metadataLoader;
+    }
+
+    @Nullable
+    @Override
+    public LoadData<Bitmap> buildLoadData(@NonNull Model model, int width, int height, @NonNull Options options) {
+        return new LoadData<>(new ObjectKey(model), new Fetcher(resolver, metadataLoader, model));
+    }
+
+    @Override
+    public boolean handles(@NonNull Model model) {
+        return true;
+    }
+
+    private static class Fetcher implements DataFetcher<Bitmap> {
+        private final ContentResolver resolver;
+        private final ExifMetadataLoader metadataLoader;
+        private final Model model;
+
+        Fetcher(ContentResolver resolver, ExifMetadataLoader metadataLoader, Model model) {
+            this.resolver = resolver;
+            this.metadataLoader = metadataLoader;
+            this.model = model;
+        }
+
+        @Override
+        public void loadData(@NonNull Priority priority, @NonNull DataCallback<? super Bitmap> callback) {
+            try (InputStream in = resolver.openInputStream(model.uri)) {
+                if (in == null) {
+                    callback.onLoadFailed(new IOException("Cannot open " + model.uri));
+                    return;
+                }
+                ExifInterface exif = new ExifInterface(new BufferedInputStream(in));
+                metadataLoader.put(model.uri, model.lastModified, exif);
+
+                byte[] thumbnail = exif.getThumbnailBytes();
+                Bitmap bitmap = thumbnail != null
+                        ? BitmapFactory.decodeByteArray(thumbnail, 0, thumbnail.length) : null;
+                if (bitmap == null) {
+                    callback.onLoadFailed(new IOException("No EXIF thumbnail in " + model.uri));
+                    return;
+                }
+                callback.onDataReady(orient(bitmap, exif));
+            } catch (IOException | RuntimeException e) {
+                callback.onLoadFailed(e);
+            }
+        }
+
+        // Rotates or mirrors the decoded thumbnail to match the photo; tiny, so done in one pass
+        private static Bitmap orient(Bitmap bitmap, ExifInterface exif) {
+            int rotation = exif.getRotationDegrees();
+            boolean flipped = exif.isFlipped();
+            if (rotation == 0 && !flipped) {
+                return bitmap;
+            }
+            Matrix matrix = new Matrix();
+            if (flipped) {
+                matrix.postScale(-1, 1);
+            }
+            matrix.postRotate(rotation);
+            Bitmap oriented = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+            if (oriented != bitmap) {
+                bitmap.recycle();
+            }
+            return oriented;
+        }
+
+        @Override
+        public void cleanup() {
+            // The stream is closed in loadData; the bitmap belongs to Glide once delivered
+        }
+
+        @Override
+        public void cancel() {
+        }
+
+        @NonNull
+        @Override
+        public Class<Bitmap> getDataClass() {
+            return Bitmap.class;
+        }
+
+        @NonNull
+        @Override
+        public DataSource getDataSource() {
+            return DataSource.LOCAL;
+        }
+    }
+
+    public static class Factory implements ModelLoaderFactory<Model, Bitmap> {
+        private final ContentResolver resolver;
+        private final ExifMetadataLoader metadataLoader;
+
+        public Factory(ContentResolver resolver, ExifMetadataLoader metadataLoader) {
+            this.resolver = resolver;
+            this.metadataLoader = metadataLoader;
+        }
+
+        @NonNull
+        @Override
+        public ModelLoader<Model, Bitmap> build(@NonNull MultiModelLoaderFactory multiFactory) {
+            return new ExifThumbnailLoader(resolver, metadataLoader);
+        }
+
+        @Override
+        public void teardown() {
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.cameragallery;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.DocumentsContract;
+import android.util.Log;
+import android.widget.Toast;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Runs at most one ZIP export at a time, scoped to the app rather than to a gallery Activity.
+ * The export only holds the application context, so it survives a rotation without leaking the
+ * old Activity; whichever gallery is showing attaches as the {@link Listener} and can rebuild
+ * its progress dialog from {@link #getImageCount()} and {@link #getLastProgress()}.
+ * The result is toasted here, so it is seen even if no gallery is attached when it ends.
+ * All methods must be called on the main thread.
+ */
+public class ExportSession {
+    private static final String TAG = "ExportSession";
+    private static final String EXPORT_KEY = "export";
+
+    private static ExportSession instance;
+
+    public interface Listener {
+        /** Called on the main thread with a progress line for the dialog. */
+        void onExportProgress(String progress);
+
+        /** Called on the main thread once the export has ended, however it ended. */
+        void onExportFinished();
+    }
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Listener listener;
+    private boolean running;
+    private int imageCount;
+    private String lastProgress;
+
+    public static synchronized ExportSession getInstance(Context context) {
+        if (instance == null) {
+            instance = new ExportSession(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ExportSession(Context context) {
+        this.context = context;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /** Detaches {@code listener} if it is still the attached one. */
+    public void clearListener(Listener listener) {
+        if (this.listener == listener) {
+            this.listener = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getImageCount() {
+        return imageCount;
+    }
+
+    /** The latest progress line, or null before the first one. */
+    public String getLastProgress() {
+        return lastProgress;
+    }
+
+    /**
+     * Streams {@code images} into the ZIP document at {@code target} in the background.
+     *
+     * @return false if another export is still running; nothing is started then
+     */
+    public boolean start(List<ImageItem> images, Uri target) {
+        if (running) {
+            return false;
+        }
+        running = true;
+        imageCount = images.size();
+        lastProgress = null;
+
+        GalleryScheduler.getInstance().executeLatest(EXPORT_KEY, () -> {
+            int[] lastPercent = {-1};
+            try {
+                ZipExporter.Result result = new ZipExporter(context.getContentResolver()).export(images, target,
+                        (filesDone, fileCount, bytesRead, elapsedMillis) -> {
+                            int percent = filesDone * 100 / fileCount;
+                            // Post per visible change, not per file, so big exports don't flood the UI thread
+                            if (percent == lastPercent[0] && filesDone < fileCount) {
+                                return;
+                            }
+                            lastPercent[0] = percent;
+                            String progress = filesDone + " of " + fileCount + " (" + percent + "%), "
+                                    + String.format(Locale.US, "%.1f MB/s",
+                                    ZipExporter.megabytesPerSecond(bytesRead, elapsedMillis));
+                            mainHandler.post(() -> reportProgress(progress));
+                        });
+                String summary = result.exported + " images exported ("
+                        + String.format(Locale.US, "%.1f MB/s", result.getMegabytesPerSecond()) + ")"
+                        + (result.failed > 0 ? ", " + result.failed + " failed" : "");
+                mainHandler.post(() -> finish(summary));
+            } catch (CancellationException e) {
+                Log.d(TAG, "Export cancelled");
+                deletePartialExport(target);
+                mainHandler.post(() -> finish("Export cancelled"));
+            } catch (Exception e) {
+                Log.e(TAG, "Error exporting images: " + e.getMessage(), e);
+                deletePartialExport(target);
+                mainHandler.post(() -> finish("Failed to export images"));
+            }
+        });
+        return true;
+    }
+
+    public void cancel() {
+        GalleryScheduler.getInstance().cancel(EXPORT_KEY);
+    }
+
+    private void reportProgress(String progress) {
+        if (!running) {
+            return;
+        }
+        lastProgress = progress;
+        if (listener != null) {
+            listener.onExportProgress(progress);
+        }
+    }
+
+    private void finish(String message) {
+        running = false;
+        lastProgress = null;
+        if (listener != null) {
+            listener.onExportFinished();
+        }
+        Toast.makeText(context, message, Toast.LENGTH_SHORT).show();
+    }
+
+    private void deletePartialExport(Uri target) {
+        try {
+            DocumentsContract.deleteDocument(context.getContentResolver(), target);
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to delete partial export: " + e.getMessage());
+        }
+    }
+}
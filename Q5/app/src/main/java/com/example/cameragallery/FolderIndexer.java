@@ -0,0 +1,141 @@
+package com.example.cameragallery;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.provider.DocumentsContract;
+import android.provider.DocumentsContract.Document;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Indexes the images of a SAF tree folder with a single children query.
+ * Display name, size, last-modified and MIME type all come back in the same cursor,
+ * so there is no per-file ContentResolver round-trip like with DocumentFile.listFiles().
+ * Rows are handed out in pages so the grid can fill before the whole folder is read.
+ */
+public class FolderIndexer {
+    private static final String TAG = "FolderIndexer";
+
+    // First page is roughly one screen of the 3-column grid, the rest are larger batches
+    public static final int FIRST_PAGE_SIZE = 30;
+    public static final int PAGE_SIZE = 500;
+
+    private static final String[] PROJECTION = {
+            Document.COLUMN_DOCUMENT_ID,
+            Document.COLUMN_DISPLAY_NAME,
+            Document.COLUMN_SIZE,
+            Document.COLUMN_LAST_MODIFIED,
+            Document.COLUMN_MIME_TYPE
+    };
+
+    public interface Callback {
+        /** Called on the indexing thread for every page of images, in folder order. */
+        void onPage(List<ImageItem> page, boolean firstPage);
+
+        /** Called once when the cursor is exhausted. */
+        void onComplete(int total, long firstPageMillis, long totalMillis);
+    }
+
+    private final ContentResolver resolver;
+    private final Uri treeUri;
+
+    public FolderIndexer(ContentResolver resolver, Uri treeUri) {
+        this.resolver = resolver;
+        this.treeUri = treeUri;
+    }
+
+    /**
+     * Runs the children query and streams the image rows into the callback.
+     *
+     * @return false if the folder could not be queried
+     * @throws CancellationException if the indexing thread is interrupted
+     */
+    public boolean index(Callback callback) {
+        long start = SystemClock.elapsedRealtime();
+        long firstPageMillis = -1;
+        int total = 0;
+
+        Uri childrenUri = DocumentsContract.buildChildDocumentsUriUsingTree(
+                treeUri, DocumentsContract.getTreeDocumentId(treeUri));
+
+        try (Cursor cursor = resolver.query(childrenUri, PROJECTION, null, null, null)) {
+            if (cursor == null) {
+                Log.w(TAG, "Children query returned no cursor for " + treeUri);
+                return false;
+            }
+
+            int idColumn = cursor.getColumnIndexOrThrow(Document.COLUMN_DOCUMENT_ID);
+            int nameColumn = cursor.getColumnIndexOrThrow(Document.COLUMN_DISPLAY_NAME);
+            int sizeColumn = cursor.getColumnIndexOrThrow(Document.COLUMN_SIZE);
+            int dateColumn = cursor.getColumnIndexOrThrow(Document.COLUMN_LAST_MODIFIED);
+            int mimeColumn = cursor.getColumnIndexOrThrow(Document.COLUMN_MIME_TYPE);
+
+            int pageSize = FIRST_PAGE_SIZE;
+            List<ImageItem> page = new ArrayList<>(pageSize);
+
+            while (cursor.moveToNext()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("Indexing of " + treeUri + " cancelled");
+                }
+
+                String mimeType = cursor.getString(mimeColumn);
+                String name = cursor.getString(nameColumn);
+                if (Document.MIME_TYPE_DIR.equals(mimeType) || !isImageFile(name)) {
+                    continue;
+                }
+
+                Uri documentUri = DocumentsContract.buildDocumentUriUsingTree(
+                        treeUri, cursor.getString(idColumn));
+                page.add(new ImageItem(
+                        documentUri.toString(),
+                        name,
+                        documentUri.getPath(),
+                        cursor.isNull(sizeColumn) ? 0 : cursor.getLong(sizeColumn),
+                        cursor.isNull(dateColumn) ? 0 : cursor.getLong(dateColumn)
+                ));
+
+                if (page.size() == pageSize) {
+                    total += page.size();
+                    boolean first = firstPageMillis < 0;
+                    if (first) {
+                        firstPageMillis = SystemClock.elapsedRealtime() - start;
+                    }
+                    callback.onPage(page, first);
+                    pageSize = PAGE_SIZE;
+                    page = new ArrayList<>(pageSize);
+                }
+            }
+
+            if (!page.isEmpty() || firstPageMillis < 0) {
+                total += page.size();
+                boolean first = firstPageMillis < 0;
+                if (first) {
+                    firstPageMillis = SystemClock.elapsedRealtime() - start;
+                }
+                callback.onPage(page, first);
+            }
+        }
+
+        long totalMillis = SystemClock.elapsedRealtime() - start;
+        Log.d(TAG, "Indexed " + total + " images, first page in " + firstPageMillis
+                + " ms, total " + totalMillis + " ms");
+        callback.onComplete(total, firstPageMillis, totalMillis);
+        return true;
+    }
+
+    public static boolean isImageFile(String fileName) {
+        if (fileName == null) return false;
+        String lowerCase = fileName.toLowerCase();
+        return lowerCase.endsWith(".jpg") ||
+                lowerCase.endsWith(".jpeg") ||
+                lowerCase.endsWith(".png") ||
+                lowerCase.endsWith(".gif") ||
+                lowerCase.endsWith(".bmp") ||
+                lowerCase.endsWith(".webp");
+    }
+}
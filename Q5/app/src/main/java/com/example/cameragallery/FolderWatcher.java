@@ -0,0 +1,190 @@
+package com.example.cameragallery;
+
+import android.content.ContentResolver;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.provider.DocumentsContract;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Watches a SAF tree folder for changes and reports them debounced.
+ * Notifications are collapsed until the folder has been quiet for {@link #DEBOUNCE_MS},
+ * but a steady stream of changes is still flushed at least every {@link #MAX_DELAY_MS},
+ * so a burst of 100 new files turns into a handful of refreshes instead of 100.
+ * Writes the app makes itself are bracketed with {@link #beginLocalWrite} and
+ * {@link #endLocalWrite}; notifications during them (and for one debounce period after, since
+ * they arrive late) are held back, and a saved image is handed to the listener directly.
+ * Notifications carry no hint of who made the change, so held-back ones may include another
+ * app's write; once the window closes they are reported as one debounced change. A run of
+ * local saves therefore costs at most one rescan after it, instead of one per notification.
+ */
+public class FolderWatcher extends ContentObserver {
+    private static final String TAG = "FolderWatcher";
+    private static final long DEBOUNCE_MS = 500;
+    private static final long MAX_DELAY_MS = 2000;
+
+    public interface Listener {
+        /** Called on the watcher's handler thread with the number of notifications collapsed. */
+        void onFolderChanged(int changeCount);
+
+        /** Called on the watcher's handler thread for an image the app itself saved into the folder. */
+        void onLocalImageSaved(ImageItem item);
+    }
+
+    // App writes in progress per tree URI, and when the last one ended; guarded by the class
+    private static final class LocalWrites {
+        int inFlight;
+        long quietUntil;
+    }
+
+    private static final Map<String, LocalWrites> localWrites = new HashMap<>();
+    private static final List<FolderWatcher> started = new ArrayList<>();
+
+    private final ContentResolver resolver;
+    private final String folderKey;
+    private final Uri childrenUri;
+    private final Handler handler;
+    private final Listener listener;
+
+    private int pendingChanges;
+    private long firstPendingAt;
+    // Notifications that arrived during a local write; reported once the write window closes
+    private int heldChanges;
+    private final Runnable dispatch = this::dispatchChanges;
+    private final Runnable releaseHeld = this::releaseHeldChanges;
+
+    public FolderWatcher(ContentResolver resolver, Uri treeUri, Handler handler, Listener listener) {
+        super(handler);
+        this.resolver = resolver;
+        this.folderKey = treeUri.toString();
+        this.childrenUri = DocumentsContract.buildChildDocumentsUriUsingTree(
+                treeUri, DocumentsContract.getTreeDocumentId(treeUri));
+        this.handler = handler;
+        this.listener = listener;
+    }
+
+    public void start() {
+        resolver.registerContentObserver(childrenUri, true, this);
+        synchronized (FolderWatcher.class) {
+            started.add(this);
+        }
+    }
+
+    public void stop() {
+        synchronized (FolderWatcher.class) {
+            started.remove(this);
+        }
+        resolver.unregisterContentObserver(this);
+        handler.removeCallbacks(dispatch);
+        handler.removeCallbacks(releaseHeld);
+        pendingChanges = 0;
+        heldChanges = 0;
+    }
+
+    /** Marks the start of a write the app makes into a tree folder, from any thread. */
+    public static synchronized void beginLocalWrite(Uri treeUri) {
+        String key = treeUri.toString();
+        LocalWrites writes = localWrites.get(key);
+        if (writes == null) {
+            writes = new LocalWrites();
+            localWrites.put(key, writes);
+        }
+        writes.inFlight++;
+    }
+
+    /**
+     * Ends a write begun with {@link #beginLocalWrite}, from any thread.
+     *
+     * @param saved the image the write created, passed to the folder's watchers; null for deletes
+     *              and failed or skipped saves
+     */
+    public static synchronized void endLocalWrite(Uri treeUri, @Nullable ImageItem saved) {
+        String key = treeUri.toString();
+        LocalWrites writes = localWrites.get(key);
+        if (writes == null) {
+            return;
+        }
+        writes.inFlight--;
+        writes.quietUntil = SystemClock.elapsedRealtime() + DEBOUNCE_MS;
+        if (saved != null) {
+            for (FolderWatcher watcher : started) {
+                if (watcher.folderKey.equals(key)) {
+                    watcher.handler.post(() -> watcher.listener.onLocalImageSaved(saved));
+                }
+            }
+        }
+    }
+
+    private static synchronized boolean isLocalWrite(String key, long now) {
+        LocalWrites writes = localWrites.get(key);
+        if (writes == null) {
+            return false;
+        }
+        if (writes.inFlight > 0 || now < writes.quietUntil) {
+            return true;
+        }
+        localWrites.remove(key);
+        return false;
+    }
+
+    @Override
+    public void onChange(boolean selfChange, Uri uri) {
+        long now = SystemClock.elapsedRealtime();
+        if (isLocalWrite(folderKey, now)) {
+            heldChanges++;
+            handler.removeCallbacks(releaseHeld);
+            handler.postDelayed(releaseHeld, DEBOUNCE_MS);
+            return;
+        }
+        queueChanges(1, now);
+    }
+
+    @Override
+    public void onChange(boolean selfChange) {
+        onChange(selfChange, null);
+    }
+
+    private void releaseHeldChanges() {
+        if (heldChanges == 0) {
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        if (isLocalWrite(folderKey, now)) {
+            // Still writing; look again once this write's window could have closed
+            handler.postDelayed(releaseHeld, DEBOUNCE_MS);
+            return;
+        }
+        int held = heldChanges;
+        heldChanges = 0;
+        queueChanges(held, now);
+    }
+
+    private void queueChanges(int count, long now) {
+        if (pendingChanges == 0) {
+            firstPendingAt = now;
+        }
+        pendingChanges += count;
+
+        long delay = Math.min(DEBOUNCE_MS, MAX_DELAY_MS - (now - firstPendingAt));
+        handler.removeCallbacks(dispatch);
+        handler.postDelayed(dispatch, Math.max(0, delay));
+    }
+
+    private void dispatchChanges() {
+        int changes = pendingChanges;
+        pendingChanges = 0;
+        if (changes > 0) {
+            Log.d(TAG, "Folder changed (" + changes + " notifications collapsed)");
+            listener.onFolderChanged(changes);
+        }
+    }
+}
@@ -1,51 +1,170 @@
 package com.example.cameragallery;
 
+import android.app.AlertDialog;
+import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.Trace;
 import android.util.Log;
 import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.Button;
+import android.widget.ImageView;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.documentfile.provider.DocumentFile;
+import androidx.core.app.ActivityOptionsCompat;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.bumptech.glide.Glide;
+
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.CancellationException;
 
 public class GalleryActivity extends AppCompatActivity implements ImageAdapter.OnImageClickListener {
     private static final String TAG = "GalleryActivity";
     private static final int REQUEST_IMAGE_DETAILS = 201;
+    private static final int REQUEST_EXPORT_ZIP = 202;
+    // The export selection outlives a recreation while the save-as picker is open
+    private static final String STATE_EXPORT_URIS = "exportUris";
+    private static final String STATE_EXPORT_NAMES = "exportNames";
+    private static final String STATE_EXPORT_SIZES = "exportSizes";
+    private static final String STATE_EXPORT_DATES = "exportDates";
+    // Inclusive byte bounds for each entry of the size spinner
+    private static final long MB = 1024 * 1024;
+    private static final long[][] SIZE_RANGES = {
+            {0, Long.MAX_VALUE}, {0, MB - 1}, {MB, 5 * MB}, {5 * MB + 1, Long.MAX_VALUE}};
+    // Uptime at which the gallery was asked for, so time-to-gallery includes the activity start
+    public static final String EXTRA_REQUESTED_AT = "requested_at";
+    // Async trace section from the tap in MainActivity to the first rows, read by the benchmark module
+    public static final String TRACE_TIME_TO_GALLERY = "TimeToGallery";
+    private static final int TRACE_COOKIE = 0;
 
     private RecyclerView recyclerView;
     private ImageAdapter adapter;
-    private List<ImageItem> imageList;
+    private ThumbnailPreloader preloader;
+    private CompactImageList imageList = CompactImageList.EMPTY;
     private TextView tvEmpty;
+    private View selectionBar;
+    private TextView tvSelectionCount;
     private Uri folderUri;
+    private FolderWatcher folderWatcher;
+
+    // Current sort/filter/grouping, and the key index of the last published image list
+    private GalleryQuery query = GalleryQuery.DEFAULT;
+    private CompactImageList latestImages = CompactImageList.EMPTY;
+    private volatile GalleryQuery.Index queryIndex;
+    private int publishGeneration;
+    // Selection captured when the save-as picker opens, exported once a target is chosen
+    private List<ImageItem> pendingExport;
+    private AlertDialog exportDialog;
+    private long requestedAt;
+    private boolean fullyDrawnReported;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        requestedAt = getIntent() != null
+                ? getIntent().getLongExtra(EXTRA_REQUESTED_AT, SystemClock.uptimeMillis())
+                : SystemClock.uptimeMillis();
         setContentView(R.layout.activity_gallery);
         Log.d(TAG, "GalleryActivity created");
+        if (savedInstanceState != null) {
+            pendingExport = restoreExportSelection(savedInstanceState);
+        }
 
         initializeViews();
         handleIntent();
+        if (ExportSession.getInstance(this).isRunning()) {
+            showExportDialog();
+        }
     }
 
     private void initializeViews() {
         recyclerView = findViewById(R.id.recyclerView);
         tvEmpty = findViewById(R.id.tvEmpty);
+        selectionBar = findViewById(R.id.selectionBar);
+        tvSelectionCount = findViewById(R.id.tvSelectionCount);
+        Button btnClearSelection = findViewById(R.id.btnClearSelection);
+        Button btnDeleteSelected = findViewById(R.id.btnDeleteSelected);
+        Button btnExportSelected = findViewById(R.id.btnExportSelected);
+        Button btnFindDuplicates = findViewById(R.id.btnFindDuplicates);
 
         // Setup RecyclerView with 3-column grid
-        recyclerView.setLayoutManager(new GridLayoutManager(this, 3));
-        imageList = new ArrayList<>();
-        adapter = new ImageAdapter(this, imageList, this);
+        GridLayoutManager layoutManager = new GridLayoutManager(this, ThumbnailLoader.SPAN_COUNT);
+        recyclerView.setLayoutManager(layoutManager);
+        adapter = new ImageAdapter(this, this);
+        layoutManager.setSpanSizeLookup(adapter.createSpanSizeLookup(ThumbnailLoader.SPAN_COUNT));
         recyclerView.setAdapter(adapter);
+
+        preloader = new ThumbnailPreloader(Glide.with(this), ThumbnailLoader.getInstance(this),
+                adapter, ThumbnailLoader.SPAN_COUNT);
+        recyclerView.addOnScrollListener(preloader);
+
+        btnClearSelection.setOnClickListener(v -> adapter.clearSelection());
+        btnDeleteSelected.setOnClickListener(v -> showBulkDeleteConfirmationDialog());
+        btnExportSelected.setOnClickListener(v -> pickExportTarget());
+        btnFindDuplicates.setOnClickListener(v -> findDuplicates());
+
+        setupQuerySpinners();
+    }
+
+    private void setupQuerySpinners() {
+        setupSpinner(R.id.spinnerSort, R.array.gallery_sort_options,
+                position -> query.withSort(GalleryQuery.Sort.values()[position]));
+        setupSpinner(R.id.spinnerGroup, R.array.gallery_group_options,
+                position -> query.withGrouping(GalleryQuery.Grouping.values()[position]));
+        setupSpinner(R.id.spinnerType, R.array.gallery_type_options,
+                position -> query.withExtension(position == 0 ? GalleryQuery.EXT_ANY : position));
+        setupSpinner(R.id.spinnerSize, R.array.gallery_size_options,
+                position -> query.withSizeRange(SIZE_RANGES[position][0], SIZE_RANGES[position][1]));
+    }
+
+    private interface QueryUpdate {
+        GalleryQuery apply(int position);
+    }
+
+    private void setupSpinner(int spinnerId, int optionsId, QueryUpdate update) {
+        Spinner spinner = findViewById(spinnerId);
+        ArrayAdapter<CharSequence> options = ArrayAdapter.createFromResource(
+                this, optionsId, android.R.layout.simple_spinner_item);
+        options.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinner.setAdapter(options);
+        spinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                GalleryQuery updated = update.apply(position);
+                if (!updated.equals(query)) {
+                    query = updated;
+                    runQuery();
+                }
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
     }
 
     private void handleIntent() {
@@ -64,6 +183,24 @@ public class GalleryActivity extends AppCompatActivity implements ImageAdapter.O
 
             folderUri = Uri.parse(folderUriString);
             loadImagesFromFolder();
+
+            // Pick up files other apps write into the folder while we're open; our own saves
+            // arrive as items and our own deletes are already applied, so neither rescans
+            folderWatcher = new FolderWatcher(getContentResolver(), folderUri,
+                    new Handler(Looper.getMainLooper()), new FolderWatcher.Listener() {
+                @Override
+                public void onFolderChanged(int changeCount) {
+                    scanFolder(false);
+                }
+
+                @Override
+                public void onLocalImageSaved(ImageItem item) {
+                    GalleryIndexStore.Delta delta = new GalleryIndexStore.Delta();
+                    delta.added.add(item);
+                    applyDelta(delta);
+                }
+            });
+            folderWatcher.start();
         } catch (Exception e) {
             Log.e(TAG, "Initialization error: " + e.getMessage(), e);
             showErrorAndFinish("Failed to initialize gallery");
@@ -71,10 +208,54 @@ public class GalleryActivity extends AppCompatActivity implements ImageAdapter.O
     }
 
     private void loadImagesFromFolder() {
-        new Thread(() -> {
+        scanFolder(true);
+    }
+
+    /**
+     * Scans the folder and reconciles it with the persisted index.
+     *
+     * @param showIndex show the persisted index before scanning, as on first open;
+     *                  otherwise the grid is already populated and only the delta is applied
+     */
+    private void scanFolder(boolean showIndex) {
+        // A newer scan of the same folder supersedes any one still in flight
+        GalleryScheduler.getInstance().executeLatest(scanKey(), () -> {
             try {
-                DocumentFile directory = DocumentFile.fromTreeUri(this, folderUri);
-                if (directory == null || !directory.exists()) {
+                String folderKey = folderUri.toString();
+                GalleryIndexStore store = GalleryIndexStore.getInstance(this);
+
+                // Warm path: show the persisted index first, then reconcile in the background
+                boolean warm = true;
+                if (showIndex) {
+                    CompactImageList prewarmed = GalleryPrewarmer.take(folderKey);
+                    CompactImageList cached = prewarmed != null ? prewarmed : store.load(folderKey);
+                    warm = !cached.isEmpty();
+                    if (warm) {
+                        Log.d(TAG, "Showing " + cached.size() + " images from the index");
+                        runOnUiThread(() -> showImages(cached));
+                    }
+                }
+
+                boolean streamPages = !warm;
+                CompactImageList.Builder scanned = new CompactImageList.Builder(0);
+                FolderIndexer indexer = new FolderIndexer(getContentResolver(), folderUri);
+                boolean indexed = indexer.index(new FolderIndexer.Callback() {
+                    @Override
+                    public void onPage(List<ImageItem> page, boolean firstPage) {
+                        for (ImageItem item : page) {
+                            scanned.add(item);
+                        }
+                        if (streamPages) {
+                            runOnUiThread(() -> appendImages(page, firstPage));
+                        }
+                    }
+
+                    @Override
+                    public void onComplete(int total, long firstPageMillis, long totalMillis) {
+                    }
+                });
+
+                if (!indexed) {
                     runOnUiThread(() -> {
                         tvEmpty.setText("Folder not accessible");
                         tvEmpty.setVisibility(View.VISIBLE);
@@ -82,48 +263,175 @@ public class GalleryActivity extends AppCompatActivity implements ImageAdapter.O
                     return;
                 }
 
-                List<ImageItem> tempList = new ArrayList<>();
-                DocumentFile[] files = directory.listFiles();
-                Log.d(TAG, "Found " + files.length + " files in directory");
-
-                for (DocumentFile file : files) {
-                    if (file.isFile() && isImageFile(file.getName())) {
-                        Log.d(TAG, "Adding image: " + file.getName());
-                        tempList.add(new ImageItem(
-                                file.getUri().toString(),
-                                file.getName(),
-                                file.getUri().getPath(),
-                                file.length(),
-                                file.lastModified()
-                        ));
-                    }
-                }
-
+                GalleryIndexStore.Delta delta = store.reconcile(folderKey, scanned.build());
                 runOnUiThread(() -> {
-                    imageList.clear();
-                    imageList.addAll(tempList);
-                    adapter.notifyDataSetChanged();
-                    tvEmpty.setVisibility(imageList.isEmpty() ? View.VISIBLE : View.GONE);
-                    if (imageList.isEmpty()) {
-                        tvEmpty.setText("No images found in this folder");
+                    if (!streamPages) {
+                        applyDelta(delta);
                     }
-                    Log.d(TAG, "Gallery updated with " + imageList.size() + " images");
+                    updateEmptyState();
+                    // An empty folder has no first rows to report, so the finished scan counts instead
+                    reportGalleryDrawn();
+                    Log.d(TAG, "Gallery updated with " + imageList.size() + " images (" + delta + ")");
                 });
+            } catch (CancellationException e) {
+                Log.d(TAG, "Folder scan cancelled");
             } catch (Exception e) {
                 Log.e(TAG, "Error loading images: " + e.getMessage(), e);
                 runOnUiThread(() -> showErrorAndFinish("Error loading images: " + e.getMessage()));
             }
-        }).start();
+        });
+    }
+
+    private String scanKey() {
+        return "scan:" + folderUri;
+    }
+
+    private void showImages(List<ImageItem> images) {
+        // Positions are about to change, so earlier preloads no longer line up
+        preloader.cancelAll();
+        imageList = CompactImageList.of(images);
+        publishImages();
+    }
+
+    private void appendImages(List<ImageItem> page, boolean firstPage) {
+        CompactImageList previous = firstPage ? CompactImageList.EMPTY : imageList;
+        CompactImageList.Builder builder = new CompactImageList.Builder(previous.size() + page.size());
+        for (int i = 0; i < previous.size(); i++) {
+            builder.addFrom(previous, i);
+        }
+        for (ImageItem item : page) {
+            builder.add(item);
+        }
+        imageList = builder.build();
+        publishImages();
+    }
+
+    private void removeImage(String uri) {
+        removeImages(Collections.singleton(uri));
+    }
+
+    /** Applies a reconcile delta to the grid: drops removed items, swaps changed ones, appends new ones. */
+    private void applyDelta(GalleryIndexStore.Delta delta) {
+        if (delta.isEmpty()) {
+            return;
+        }
+        Set<String> removed = new HashSet<>(delta.removedUris);
+        // Added items can already be on screen if an earlier, cancelled scan streamed them in
+        Map<String, ImageItem> upserts = new HashMap<>();
+        for (ImageItem item : delta.changed) {
+            upserts.put(item.getUri(), item);
+        }
+        for (ImageItem item : delta.added) {
+            upserts.put(item.getUri(), item);
+        }
+
+        // Unchanged rows are copied column to column without building an ImageItem
+        CompactImageList.Builder updated = new CompactImageList.Builder(imageList.size() + delta.added.size());
+        for (int i = 0; i < imageList.size(); i++) {
+            String uri = imageList.getUri(i);
+            if (removed.contains(uri)) {
+                continue;
+            }
+            ImageItem replacement = upserts.remove(uri);
+            if (replacement != null) {
+                updated.add(replacement);
+            } else {
+                updated.addFrom(imageList, i);
+            }
+        }
+        for (ImageItem item : delta.added) {
+            if (upserts.containsKey(item.getUri())) {
+                updated.add(item);
+            }
+        }
+
+        imageList = updated.build();
+        publishImages();
+    }
+
+    private void removeImages(List<ImageItem> removed) {
+        Set<String> uris = new HashSet<>(removed.size());
+        for (ImageItem item : removed) {
+            uris.add(item.getUri());
+        }
+        removeImages(uris);
+    }
+
+    private void removeImages(Set<String> uris) {
+        CompactImageList.Builder remaining = new CompactImageList.Builder(imageList.size());
+        for (int i = 0; i < imageList.size(); i++) {
+            if (!uris.contains(imageList.getUri(i))) {
+                remaining.addFrom(imageList, i);
+            }
+        }
+        imageList = remaining.build();
+        publishImages();
+    }
+
+    // Compact lists are immutable, so the query and the adapter can share the published one
+    private void publishImages() {
+        latestImages = imageList;
+        runQuery();
+        updateEmptyState();
+    }
+
+    /**
+     * Sorts, filters and groups the latest images on the scheduler's query thread and hands the
+     * rows to the adapter, so a re-sort never waits behind deletes, exports or duplicate detection.
+     * The key index is only rebuilt when the image list itself changed, not for a new sort or filter.
+     */
+    private void runQuery() {
+        CompactImageList images = latestImages;
+        GalleryQuery currentQuery = query;
+        int generation = ++publishGeneration;
+        GalleryScheduler.getInstance().executeQuery(queryKey(), () -> {
+            GalleryQuery.Index index = queryIndex;
+            if (index == null || !index.covers(images)) {
+                index = new GalleryQuery.Index(images, TimeZone.getDefault());
+                queryIndex = index;
+            }
+            List<GalleryRow> rows = currentQuery.run(index);
+            runOnUiThread(() -> {
+                // A newer list or query was published while this one ran
+                if (generation == publishGeneration) {
+                    adapter.submitRows(rows, rows.isEmpty() ? null : this::reportGalleryDrawn);
+                    GalleryRepository.getInstance().setRows(rows);
+                }
+            });
+        });
+    }
+
+    // Time to gallery: from the tap in MainActivity to the first images (or the empty state) on screen
+    private void reportGalleryDrawn() {
+        if (fullyDrawnReported) {
+            return;
+        }
+        fullyDrawnReported = true;
+        recyclerView.post(() -> {
+            Log.d(TAG, "Time to gallery: " + (SystemClock.uptimeMillis() - requestedAt) + " ms");
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                Trace.endAsyncSection(TRACE_TIME_TO_GALLERY, TRACE_COOKIE);
+            }
+            reportFullyDrawn();
+        });
+    }
+
+    /** Called just before the gallery is started; ended once its first rows are drawn. */
+    static void beginTimeToGalleryTrace() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(TRACE_TIME_TO_GALLERY, TRACE_COOKIE);
+        }
+    }
+
+    private String queryKey() {
+        return "query:" + folderUri;
     }
 
-    private boolean isImageFile(String fileName) {
-        if (fileName == null) return false;
-        String lowerCase = fileName.toLowerCase();
-        return lowerCase.endsWith(".jpg") ||
-                lowerCase.endsWith(".jpeg") ||
-                lowerCase.endsWith(".png") ||
-                lowerCase.endsWith(".gif") ||
-                lowerCase.endsWith(".bmp");
+    private void updateEmptyState() {
+        tvEmpty.setVisibility(imageList.isEmpty() ? View.VISIBLE : View.GONE);
+        if (imageList.isEmpty()) {
+            tvEmpty.setText("No images found in this folder");
+        }
     }
 
     private void showErrorAndFinish(String message) {
@@ -132,34 +440,316 @@ public class GalleryActivity extends AppCompatActivity implements ImageAdapter.O
     }
 
     @Override
-    public void onImageClick(ImageItem image) {
+    public void onImageClick(ImageItem image, ImageView thumbnail) {
         try {
+            // The details screen looks the item up in GalleryRepository, so only its ID travels
             Intent intent = new Intent(this, ImageDetailsActivity.class);
-            intent.putExtra("imageUri", image.getUri());
-            intent.putExtra("imageName", image.getName());
-            intent.putExtra("imagePath", image.getPath());
-            intent.putExtra("imageSize", image.getSize());
-            intent.putExtra("imageDate", image.getDate());
-            startActivityForResult(intent, REQUEST_IMAGE_DETAILS);
+            intent.putExtra(ImageDetailsActivity.EXTRA_IMAGE_ID, image.getUri());
+            intent.putExtra(ImageDetailsActivity.EXTRA_FOLDER_URI, folderUri.toString());
+            ActivityOptionsCompat options = ActivityOptionsCompat.makeSceneTransitionAnimation(
+                    this, thumbnail, image.getUri());
+            startActivityForResult(intent, REQUEST_IMAGE_DETAILS, options.toBundle());
         } catch (Exception e) {
             Log.e(TAG, "Error opening image details: " + e.getMessage(), e);
             Toast.makeText(this, "Failed to open image", Toast.LENGTH_SHORT).show();
         }
     }
 
+    @Override
+    public void onSelectionChanged(int selectedCount) {
+        selectionBar.setVisibility(selectedCount > 0 ? View.VISIBLE : View.GONE);
+        tvSelectionCount.setText(selectedCount + " selected");
+    }
+
+    private void showBulkDeleteConfirmationDialog() {
+        List<ImageItem> selected = adapter.getSelectedItems();
+        if (selected.isEmpty()) {
+            return;
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Delete Images")
+                .setMessage("Are you sure you want to delete " + selected.size() + " images?")
+                .setPositiveButton("Delete", (d, w) -> deleteImages(selected))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void pickExportTarget() {
+        List<ImageItem> selected = adapter.getSelectedItems();
+        if (selected.isEmpty()) {
+            return;
+        }
+        pendingExport = selected;
+        try {
+            Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+            intent.addCategory(Intent.CATEGORY_OPENABLE);
+            intent.setType("application/zip");
+            intent.putExtra(Intent.EXTRA_TITLE, "Photos_"
+                    + new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date()) + ".zip");
+            startActivityForResult(intent, REQUEST_EXPORT_ZIP);
+        } catch (Exception e) {
+            Log.e(TAG, "Export picker error: " + e.getMessage(), e);
+            Toast.makeText(this, "Failed to open save location picker", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        if (pendingExport == null) {
+            return;
+        }
+        // Only what the archive needs; the path is left out to keep the state small
+        int count = pendingExport.size();
+        String[] uris = new String[count];
+        String[] names = new String[count];
+        long[] sizes = new long[count];
+        long[] dates = new long[count];
+        for (int i = 0; i < count; i++) {
+            ImageItem item = pendingExport.get(i);
+            uris[i] = item.getUri();
+            names[i] = item.getName();
+            sizes[i] = item.getSize();
+            dates[i] = item.getDate();
+        }
+        outState.putStringArray(STATE_EXPORT_URIS, uris);
+        outState.putStringArray(STATE_EXPORT_NAMES, names);
+        outState.putLongArray(STATE_EXPORT_SIZES, sizes);
+        outState.putLongArray(STATE_EXPORT_DATES, dates);
+    }
+
+    @Nullable
+    private static List<ImageItem> restoreExportSelection(Bundle state) {
+        String[] uris = state.getStringArray(STATE_EXPORT_URIS);
+        String[] names = state.getStringArray(STATE_EXPORT_NAMES);
+        long[] sizes = state.getLongArray(STATE_EXPORT_SIZES);
+        long[] dates = state.getLongArray(STATE_EXPORT_DATES);
+        if (uris == null || names == null || sizes == null || dates == null) {
+            return null;
+        }
+        List<ImageItem> images = new ArrayList<>(uris.length);
+        for (int i = 0; i < uris.length; i++) {
+            images.add(new ImageItem(uris[i], names[i], null, sizes[i], dates[i]));
+        }
+        return images;
+    }
+
+    /** Streams the images into the chosen ZIP in the background, with a cancellable progress dialog. */
+    private void exportImages(List<ImageItem> images, Uri target) {
+        if (ExportSession.getInstance(this).start(images, target)) {
+            showExportDialog();
+        } else {
+            Toast.makeText(this, "Another export is still running", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    // Also called from onCreate, so a recreated gallery gets the dialog of a running export back
+    private void showExportDialog() {
+        ExportSession export = ExportSession.getInstance(this);
+        String progress = export.getLastProgress();
+        exportDialog = new AlertDialog.Builder(this)
+                .setTitle("Exporting " + export.getImageCount() + " images")
+                .setMessage(progress != null ? progress : "Starting...")
+                .setCancelable(false)
+                .setNegativeButton("Cancel", (d, w) -> export.cancel())
+                .show();
+        export.setListener(exportListener);
+    }
+
+    private final ExportSession.Listener exportListener = new ExportSession.Listener() {
+        @Override
+        public void onExportProgress(String progress) {
+            if (exportDialog != null) {
+                exportDialog.setMessage(progress);
+            }
+        }
+
+        @Override
+        public void onExportFinished() {
+            if (exportDialog != null) {
+                exportDialog.dismiss();
+                exportDialog = null;
+            }
+        }
+    };
+
+    /** Hashes the folder in the background and offers to thin out each group of similar shots. */
+    private void findDuplicates() {
+        CompactImageList images = latestImages;
+        if (images.isEmpty()) {
+            return;
+        }
+        String folderKey = folderUri.toString();
+        Toast.makeText(this, "Looking for duplicates in " + images.size() + " images...", Toast.LENGTH_SHORT).show();
+
+        GalleryScheduler.getInstance().executeLatest(duplicatesKey(), () -> {
+            try {
+                DuplicateDetector detector = new DuplicateDetector(getContentResolver(),
+                        GalleryIndexStore.getInstance(this));
+                List<DuplicateDetector.Cluster> clusters = detector.findDuplicates(folderKey, images);
+                runOnUiThread(() -> showDuplicatesDialog(clusters));
+            } catch (CancellationException e) {
+                Log.d(TAG, "Duplicate detection cancelled");
+            } catch (Exception e) {
+                Log.e(TAG, "Error finding duplicates: " + e.getMessage(), e);
+                runOnUiThread(() -> Toast.makeText(this, "Error finding duplicates", Toast.LENGTH_SHORT).show());
+            }
+        });
+    }
+
+    private String duplicatesKey() {
+        return "duplicates:" + folderUri;
+    }
+
+    private void showDuplicatesDialog(List<DuplicateDetector.Cluster> clusters) {
+        if (isFinishing()) {
+            return;
+        }
+        if (clusters.isEmpty()) {
+            Toast.makeText(this, "No duplicates found", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        String[] labels = new String[clusters.size()];
+        for (int i = 0; i < clusters.size(); i++) {
+            DuplicateDetector.Cluster cluster = clusters.get(i);
+            labels[i] = cluster.best().getName() + " + " + (cluster.items.size() - 1) + " similar";
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle(clusters.size() + " groups of similar shots")
+                .setItems(labels, (d, which) -> showKeepBestDialog(clusters.get(which)))
+                .setPositiveButton("Keep best of each", (d, w) -> showKeepBestConfirmation(clusters))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void showKeepBestDialog(DuplicateDetector.Cluster cluster) {
+        List<ImageItem> rest = cluster.rest();
+        StringBuilder message = new StringBuilder("Delete " + rest.size() + " similar images?\n\n");
+        describeKeepBest(message, cluster);
+        new AlertDialog.Builder(this)
+                .setTitle("Keep Best")
+                .setMessage(message)
+                .setPositiveButton("Delete", (d, w) -> deleteImages(rest))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void showKeepBestConfirmation(List<DuplicateDetector.Cluster> clusters) {
+        List<ImageItem> extras = new ArrayList<>();
+        StringBuilder message = new StringBuilder();
+        for (DuplicateDetector.Cluster cluster : clusters) {
+            extras.addAll(cluster.rest());
+            message.append('\n');
+            describeKeepBest(message, cluster);
+        }
+        // Every file is named, so nothing is deleted that the user hasn't seen listed
+        message.insert(0, "Keep the best image of each of the " + clusters.size() + " groups and delete the other "
+                + extras.size() + "?\n");
+        new AlertDialog.Builder(this)
+                .setTitle("Keep Best")
+                .setMessage(message)
+                .setPositiveButton("Delete", (d, w) -> deleteImages(extras))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private static void describeKeepBest(StringBuilder message, DuplicateDetector.Cluster cluster) {
+        message.append("Keep ").append(cluster.best().getName()).append('\n');
+        for (ImageItem item : cluster.rest()) {
+            message.append("  Delete ").append(item.getName()).append('\n');
+        }
+    }
+
+    private void deleteImages(List<ImageItem> items) {
+        String folderKey = folderUri.toString();
+        Uri folder = folderUri;
+        Context appContext = getApplicationContext();
+        GalleryIndexStore store = GalleryIndexStore.getInstance(appContext);
+        tvSelectionCount.setText("Deleting " + items.size() + " images...");
+
+        // Each batch is applied to the grid and index directly, so the deletes' notifications are ignored.
+        // The delete finishes even if the gallery is closed; only the grid updates need this Activity
+        FolderWatcher.beginLocalWrite(folder);
+        new BulkDeleter(appContext.getContentResolver()).delete(items, new BulkDeleter.Listener() {
+            @Override
+            public void onBatchFinished(List<ImageItem> deleted, List<ImageItem> failed) {
+                // Keep the index in step without a rescan, then drop the batch from the grid
+                if (!deleted.isEmpty()) {
+                    store.removeAll(folderKey, deleted);
+                }
+                runOnUiThread(() -> {
+                    if (isDestroyed()) {
+                        return;
+                    }
+                    adapter.deselect(deleted);
+                    removeImages(deleted);
+                });
+            }
+
+            @Override
+            public void onComplete(int deletedCount, int failedCount) {
+                FolderWatcher.endLocalWrite(folder, null);
+                runOnUiThread(() -> {
+                    String message = failedCount == 0
+                            ? deletedCount + " images deleted"
+                            : deletedCount + " images deleted, " + failedCount + " failed";
+                    Toast.makeText(appContext, message, Toast.LENGTH_SHORT).show();
+                });
+            }
+        });
+    }
+
     @Override
     protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode == REQUEST_EXPORT_ZIP) {
+            List<ImageItem> images = pendingExport;
+            pendingExport = null;
+            if (resultCode == RESULT_OK && data != null && data.getData() != null && images != null) {
+                exportImages(images, data.getData());
+            }
+            return;
+        }
         if (requestCode == REQUEST_IMAGE_DETAILS && resultCode == RESULT_OK) {
-            // Refresh the image list after deletion
-            loadImagesFromFolder();
-            Toast.makeText(this, "Gallery refreshed", Toast.LENGTH_SHORT).show();
+            String deletedUri = data != null ? data.getStringExtra(ImageDetailsActivity.EXTRA_DELETED_URI) : null;
+            if (deletedUri != null) {
+                // Only the deleted item changes; no need to rescan the folder
+                removeImage(deletedUri);
+                String folderKey = folderUri.toString();
+                GalleryIndexStore store = GalleryIndexStore.getInstance(this);
+                GalleryScheduler.getInstance().execute(() -> store.remove(folderKey, deletedUri));
+            } else {
+                loadImagesFromFolder();
+                Toast.makeText(this, "Gallery refreshed", Toast.LENGTH_SHORT).show();
+            }
         }
     }
 
     @Override
     protected void onDestroy() {
+        preloader.release();
+        if (folderWatcher != null) {
+            folderWatcher.stop();
+        }
         super.onDestroy();
-        // Clean up any resources if needed
+        // Stop the scan so it doesn't keep running (and holding this Activity) after we're gone
+        if (folderUri != null) {
+            GalleryScheduler.getInstance().cancel(scanKey());
+            GalleryScheduler.getInstance().cancel(queryKey());
+            GalleryScheduler.getInstance().cancel(duplicatesKey());
+        }
+        ExportSession export = ExportSession.getInstance(this);
+        export.clearListener(exportListener);
+        if (isFinishing()) {
+            // A recreation leaves the export running; only leaving the gallery cancels it
+            export.cancel();
+        }
+        if (exportDialog != null) {
+            exportDialog.dismiss();
+            exportDialog = null;
+        }
+        GalleryScheduler.getInstance().logStats();
     }
 }
\ No newline at end of file
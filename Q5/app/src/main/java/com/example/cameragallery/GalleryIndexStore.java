@@ -0,0 +1,346 @@
+package com.example.cameragallery;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent index of the images seen in each gallery folder, keyed by document ID.
+ * A warm gallery open shows this index straight away; a fresh scan is then reconciled
+ * against it using size and last-modified as a cheap fingerprint, so only rows that
+ * actually changed are written.
+ * Perceptual hashes for duplicate detection are kept alongside under the same fingerprint,
+ * as are the content hashes of photos the app saved, so a repeated save can be skipped.
+ */
+public class GalleryIndexStore extends SQLiteOpenHelper {
+    private static final String TAG = "GalleryIndexStore";
+    private static final String DATABASE_NAME = "gallery_index.db";
+    private static final int DATABASE_VERSION = 3;
+
+    private static final String TABLE_IMAGES = "images";
+    private static final String COL_FOLDER = "folder";
+    private static final String COL_DOC_ID = "doc_id";
+    private static final String COL_URI = "uri";
+    private static final String COL_NAME = "name";
+    private static final String COL_PATH = "path";
+    private static final String COL_SIZE = "size";
+    private static final String COL_DATE = "date";
+
+    private static final String TABLE_HASHES = "hashes";
+    private static final String COL_HASH = "hash";
+
+    private static final String TABLE_CONTENT_HASHES = "content_hashes";
+
+    private static GalleryIndexStore instance;
+
+    /** Changes applied to the index by a reconcile pass. */
+    public static class Delta {
+        public final List<ImageItem> added = new ArrayList<>();
+        public final List<ImageItem> changed = new ArrayList<>();
+        public final List<String> removedUris = new ArrayList<>();
+
+        public boolean isEmpty() {
+            return added.isEmpty() && changed.isEmpty() && removedUris.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "+" + added.size() + " ~" + changed.size() + " -" + removedUris.size();
+        }
+    }
+
+    public static synchronized GalleryIndexStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new GalleryIndexStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private GalleryIndexStore(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_IMAGES + " ("
+                + COL_FOLDER + " TEXT NOT NULL, "
+                + COL_DOC_ID + " TEXT NOT NULL, "
+                + COL_URI + " TEXT NOT NULL, "
+                + COL_NAME + " TEXT, "
+                + COL_PATH + " TEXT, "
+                + COL_SIZE + " INTEGER NOT NULL, "
+                + COL_DATE + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + COL_FOLDER + ", " + COL_DOC_ID + "))");
+        db.execSQL("CREATE TABLE " + TABLE_HASHES + " ("
+                + COL_FOLDER + " TEXT NOT NULL, "
+                + COL_DOC_ID + " TEXT NOT NULL, "
+                + COL_URI + " TEXT NOT NULL, "
+                + COL_SIZE + " INTEGER NOT NULL, "
+                + COL_DATE + " INTEGER NOT NULL, "
+                + COL_HASH + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + COL_FOLDER + ", " + COL_DOC_ID + "))");
+        db.execSQL("CREATE TABLE " + TABLE_CONTENT_HASHES + " ("
+                + COL_FOLDER + " TEXT NOT NULL, "
+                + COL_HASH + " TEXT NOT NULL, "
+                + COL_URI + " TEXT NOT NULL, "
+                + COL_SIZE + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + COL_FOLDER + ", " + COL_HASH + "))");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Everything here can be rebuilt from the folder, so upgrades just start over
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_IMAGES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_HASHES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_CONTENT_HASHES);
+        onCreate(db);
+    }
+
+    /** Returns the last known images of a folder, in the order they were indexed. */
+    public CompactImageList load(String folder) {
+        CompactImageList.Builder items = new CompactImageList.Builder(0);
+        try (Cursor cursor = getReadableDatabase().query(TABLE_IMAGES,
+                new String[]{COL_URI, COL_NAME, COL_PATH, COL_SIZE, COL_DATE},
+                COL_FOLDER + " = ?", new String[]{folder},
+                null, null, "rowid")) {
+            while (cursor.moveToNext()) {
+                items.add(
+                        cursor.getString(0),
+                        cursor.getString(1),
+                        cursor.getString(2),
+                        cursor.getLong(3),
+                        cursor.getLong(4)
+                );
+            }
+        }
+        return items.build();
+    }
+
+    /**
+     * Brings the stored index of a folder in line with a fresh scan and returns what changed.
+     * Unchanged rows are never rewritten.
+     */
+    public Delta reconcile(String folder, List<ImageItem> scanned) {
+        Delta delta = new Delta();
+        Map<String, long[]> known = new HashMap<>();
+        Map<String, String> knownUris = new HashMap<>();
+
+        SQLiteDatabase db = getWritableDatabase();
+        try (Cursor cursor = db.query(TABLE_IMAGES,
+                new String[]{COL_DOC_ID, COL_URI, COL_SIZE, COL_DATE},
+                COL_FOLDER + " = ?", new String[]{folder},
+                null, null, null)) {
+            while (cursor.moveToNext()) {
+                String docId = cursor.getString(0);
+                knownUris.put(docId, cursor.getString(1));
+                known.put(docId, new long[]{cursor.getLong(2), cursor.getLong(3)});
+            }
+        }
+
+        db.beginTransaction();
+        try {
+            SQLiteStatement upsert = db.compileStatement("INSERT OR REPLACE INTO " + TABLE_IMAGES
+                    + " (" + COL_FOLDER + ", " + COL_DOC_ID + ", " + COL_URI + ", " + COL_NAME + ", "
+                    + COL_PATH + ", " + COL_SIZE + ", " + COL_DATE + ") VALUES (?, ?, ?, ?, ?, ?, ?)");
+
+            for (ImageItem item : scanned) {
+                String docId = documentIdOf(item);
+                long[] fingerprint = known.remove(docId);
+                if (fingerprint != null
+                        && fingerprint[0] == item.getSize()
+                        && fingerprint[1] == item.getDate()) {
+                    continue;
+                }
+
+                upsert.clearBindings();
+                upsert.bindString(1, folder);
+                upsert.bindString(2, docId);
+                upsert.bindString(3, item.getUri());
+                bindNullable(upsert, 4, item.getName());
+                bindNullable(upsert, 5, item.getPath());
+                upsert.bindLong(6, item.getSize());
+                upsert.bindLong(7, item.getDate());
+                upsert.executeInsert();
+
+                if (fingerprint == null) {
+                    delta.added.add(item);
+                } else {
+                    delta.changed.add(item);
+                }
+            }
+
+            // Whatever is left in the known set was not seen by the scan
+            for (String docId : known.keySet()) {
+                db.delete(TABLE_IMAGES, COL_FOLDER + " = ? AND " + COL_DOC_ID + " = ?",
+                        new String[]{folder, docId});
+                db.delete(TABLE_HASHES, COL_FOLDER + " = ? AND " + COL_DOC_ID + " = ?",
+                        new String[]{folder, docId});
+                delta.removedUris.add(knownUris.get(docId));
+            }
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        if (!delta.isEmpty()) {
+            GalleryPrewarmer.invalidate(folder);
+        }
+        Log.d(TAG, "Reconciled " + scanned.size() + " images: " + delta);
+        return delta;
+    }
+
+    /** Drops a single image from the index, e.g. after it was deleted from the gallery. */
+    public void remove(String folder, String uri) {
+        String[] key = {folder, documentIdOf(uri)};
+        SQLiteDatabase db = getWritableDatabase();
+        db.delete(TABLE_IMAGES, COL_FOLDER + " = ? AND " + COL_DOC_ID + " = ?", key);
+        db.delete(TABLE_HASHES, COL_FOLDER + " = ? AND " + COL_DOC_ID + " = ?", key);
+        GalleryPrewarmer.invalidate(folder);
+    }
+
+    /**
+     * Drops several images from the index in one transaction.
+     * Rows are deleted by primary key, so each delete is an index lookup rather than a scan.
+     */
+    public void removeAll(String folder, List<ImageItem> items) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            SQLiteStatement deleteImage = db.compileStatement("DELETE FROM " + TABLE_IMAGES
+                    + " WHERE " + COL_FOLDER + " = ? AND " + COL_DOC_ID + " = ?");
+            SQLiteStatement deleteHash = db.compileStatement("DELETE FROM " + TABLE_HASHES
+                    + " WHERE " + COL_FOLDER + " = ? AND " + COL_DOC_ID + " = ?");
+            for (ImageItem item : items) {
+                String docId = documentIdOf(item);
+                deleteImage.bindString(1, folder);
+                deleteImage.bindString(2, docId);
+                deleteImage.executeUpdateDelete();
+                deleteHash.bindString(1, folder);
+                deleteHash.bindString(2, docId);
+                deleteHash.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        GalleryPrewarmer.invalidate(folder);
+    }
+
+    /** Adds or updates a single image, e.g. after it was saved into the folder by the app. */
+    public void put(String folder, ImageItem item) {
+        ContentValues values = new ContentValues();
+        values.put(COL_FOLDER, folder);
+        values.put(COL_DOC_ID, documentIdOf(item));
+        values.put(COL_URI, item.getUri());
+        values.put(COL_NAME, item.getName());
+        values.put(COL_PATH, item.getPath());
+        values.put(COL_SIZE, item.getSize());
+        values.put(COL_DATE, item.getDate());
+        getWritableDatabase().insertWithOnConflict(TABLE_IMAGES, null, values,
+                SQLiteDatabase.CONFLICT_REPLACE);
+        GalleryPrewarmer.invalidate(folder);
+    }
+
+    /**
+     * Returns the stored perceptual hashes of a folder by URI, only for images whose size
+     * and last-modified still match what was hashed.
+     */
+    public Map<String, Long> loadHashes(String folder, List<ImageItem> images) {
+        Map<String, long[]> stored = new HashMap<>();
+        try (Cursor cursor = getReadableDatabase().query(TABLE_HASHES,
+                new String[]{COL_URI, COL_SIZE, COL_DATE, COL_HASH},
+                COL_FOLDER + " = ?", new String[]{folder},
+                null, null, null)) {
+            while (cursor.moveToNext()) {
+                stored.put(cursor.getString(0), new long[]{cursor.getLong(1), cursor.getLong(2), cursor.getLong(3)});
+            }
+        }
+
+        Map<String, Long> hashes = new HashMap<>();
+        for (ImageItem item : images) {
+            long[] row = stored.get(item.getUri());
+            if (row != null && row[0] == item.getSize() && row[1] == item.getDate()) {
+                hashes.put(item.getUri(), row[2]);
+            }
+        }
+        return hashes;
+    }
+
+    /** Stores freshly computed hashes in one transaction; {@code hashes[i]} belongs to {@code items.get(i)}. */
+    public void putHashes(String folder, List<ImageItem> items, long[] hashes) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            SQLiteStatement upsert = db.compileStatement("INSERT OR REPLACE INTO " + TABLE_HASHES
+                    + " (" + COL_FOLDER + ", " + COL_DOC_ID + ", " + COL_URI + ", "
+                    + COL_SIZE + ", " + COL_DATE + ", " + COL_HASH + ") VALUES (?, ?, ?, ?, ?, ?)");
+            for (int i = 0; i < items.size(); i++) {
+                ImageItem item = items.get(i);
+                upsert.clearBindings();
+                upsert.bindString(1, folder);
+                upsert.bindString(2, documentIdOf(item));
+                upsert.bindString(3, item.getUri());
+                upsert.bindLong(4, item.getSize());
+                upsert.bindLong(5, item.getDate());
+                upsert.bindLong(6, hashes[i]);
+                upsert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /** Returns the URI of a saved photo with this content hash in the folder, or null. */
+    public String findContentHash(String folder, String hash) {
+        try (Cursor cursor = getReadableDatabase().query(TABLE_CONTENT_HASHES,
+                new String[]{COL_URI}, COL_FOLDER + " = ? AND " + COL_HASH + " = ?",
+                new String[]{folder, hash}, null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+
+    /** Records the content hash of a photo just saved into the folder. */
+    public void putContentHash(String folder, String hash, String uri, long size) {
+        ContentValues values = new ContentValues();
+        values.put(COL_FOLDER, folder);
+        values.put(COL_HASH, hash);
+        values.put(COL_URI, uri);
+        values.put(COL_SIZE, size);
+        getWritableDatabase().insertWithOnConflict(TABLE_CONTENT_HASHES, null, values,
+                SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    private static String documentIdOf(ImageItem item) {
+        return documentIdOf(item.getUri());
+    }
+
+    private static String documentIdOf(String uri) {
+        try {
+            return DocumentsContract.getDocumentId(Uri.parse(uri));
+        } catch (IllegalArgumentException e) {
+            // Not a document URI; the URI itself is still a stable key
+            return uri;
+        }
+    }
+
+    private static void bindNullable(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+}
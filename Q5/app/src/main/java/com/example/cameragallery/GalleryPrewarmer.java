@@ -0,0 +1,97 @@
+package com.example.cameragallery;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestManager;
+
+/**
+ * Gets the gallery ready while the user is still on the capture screen.
+ * The persisted index of the saved folder is loaded in the background and held for the
+ * gallery's first scan, and the first screenful of grid thumbnails is decoded into Glide's
+ * memory cache, so opening the gallery shows images without touching the database or disk.
+ * {@link GalleryIndexStore} calls {@link #invalidate} whenever it changes a folder's images, e.g.
+ * for a photo saved after the prewarm, so the gallery never starts from an outdated index.
+ */
+public class GalleryPrewarmer {
+    private static final String TAG = "GalleryPrewarmer";
+    private static final String PREWARM_KEY = "prewarm";
+
+    private static String warmFolder;
+    private static CompactImageList warmIndex;
+    // Bumped by every index write, so a load that overlapped one is not published
+    private static int indexWrites;
+
+    private GalleryPrewarmer() {
+    }
+
+    /** Loads the index of {@code folder} and preloads its first thumbnails; supersedes an earlier call. */
+    public static void prewarm(Context context, String folder) {
+        Context appContext = context.getApplicationContext();
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+
+        GalleryScheduler.getInstance().executeLatest(PREWARM_KEY, () -> {
+            long start = SystemClock.elapsedRealtime();
+            int writesBefore;
+            synchronized (GalleryPrewarmer.class) {
+                writesBefore = indexWrites;
+            }
+            CompactImageList index = GalleryIndexStore.getInstance(appContext).load(folder);
+            synchronized (GalleryPrewarmer.class) {
+                // Checked under the lock, so an index that take() has cancelled is never published
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                if (indexWrites != writesBefore) {
+                    Log.d(TAG, "Index changed while loading, not prewarming");
+                    return;
+                }
+                warmFolder = folder;
+                warmIndex = index;
+            }
+            // Registers the EXIF thumbnail loader and sets up Glide here rather than on the gallery's first frame
+            ThumbnailLoader loader = ThumbnailLoader.getInstance(appContext);
+            int rows = appContext.getResources().getDisplayMetrics().heightPixels / loader.getCellHeight() + 1;
+            int count = Math.min(index.size(), rows * ThumbnailLoader.SPAN_COUNT);
+            Log.d(TAG, "Loaded " + index.size() + " indexed images in " + (SystemClock.elapsedRealtime() - start)
+                    + " ms, preloading " + count + " thumbnails");
+
+            // Glide only starts requests on the main thread
+            mainHandler.post(() -> {
+                RequestManager glide = Glide.with(appContext);
+                for (int i = 0; i < count; i++) {
+                    loader.request(glide, index.get(i)).preload();
+                }
+            });
+        });
+    }
+
+    /**
+     * Hands over the prewarmed index if it is for {@code folder}, or returns null.
+     * Each prewarm is taken at most once, and one still loading is cancelled, since the gallery
+     * may change the index after this; a later open reads the store again.
+     */
+    public static synchronized CompactImageList take(String folder) {
+        GalleryScheduler.getInstance().cancel(PREWARM_KEY);
+        if (warmIndex == null || !folder.equals(warmFolder)) {
+            return null;
+        }
+        CompactImageList index = warmIndex;
+        warmIndex = null;
+        warmFolder = null;
+        return index;
+    }
+
+    /** Drops the prewarmed index of {@code folder}, since the store no longer matches it. */
+    public static synchronized void invalidate(String folder) {
+        indexWrites++;
+        if (folder.equals(warmFolder)) {
+            warmIndex = null;
+            warmFolder = null;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.cameragallery;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Sorts, filters and groups gallery images into grid rows.
+ * All sort and group keys are precomputed once per list into primitive arrays by {@link Index},
+ * so re-running a query only sorts an int[] of positions and never allocates per comparison.
+ * Queries are immutable and safe to run off the UI thread.
+ */
+public class GalleryQuery {
+    public enum Sort { FOLDER_ORDER, DATE_NEWEST, DATE_OLDEST, SIZE_LARGEST, SIZE_SMALLEST, NAME }
+
+    public enum Grouping { NONE, DAY, MONTH }
+
+    public static final int EXT_ANY = -1;
+    public static final int EXT_OTHER = 0;
+    public static final int EXT_JPEG = 1;
+    public static final int EXT_PNG = 2;
+    public static final int EXT_GIF = 3;
+    public static final int EXT_BMP = 4;
+    public static final int EXT_WEBP = 5;
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    public static final GalleryQuery DEFAULT =
+            new GalleryQuery(Sort.FOLDER_ORDER, Grouping.NONE, EXT_ANY, 0, Long.MAX_VALUE);
+
+    private final Sort sort;
+    private final Grouping grouping;
+    private final int extension;
+    private final long minSize;
+    private final long maxSize;
+
+    public GalleryQuery(Sort sort, Grouping grouping, int extension, long minSize, long maxSize) {
+        this.sort = sort;
+        this.grouping = grouping;
+        this.extension = extension;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+    }
+
+    public GalleryQuery withSort(Sort sort) {
+        return new GalleryQuery(sort, grouping, extension, minSize, maxSize);
+    }
+
+    public GalleryQuery withGrouping(Grouping grouping) {
+        return new GalleryQuery(sort, grouping, extension, minSize, maxSize);
+    }
+
+    public GalleryQuery withExtension(int extension) {
+        return new GalleryQuery(sort, grouping, extension, minSize, maxSize);
+    }
+
+    public GalleryQuery withSizeRange(long minSize, long maxSize) {
+        return new GalleryQuery(sort, grouping, extension, minSize, maxSize);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GalleryQuery)) return false;
+        GalleryQuery other = (GalleryQuery) o;
+        return sort == other.sort && grouping == other.grouping && extension == other.extension
+                && minSize == other.minSize && maxSize == other.maxSize;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = sort.hashCode();
+        result = 31 * result + grouping.hashCode();
+        result = 31 * result + extension;
+        result = 31 * result + Long.hashCode(minSize);
+        return 31 * result + Long.hashCode(maxSize);
+    }
+
+    /** Primitive sort and group keys for a fixed list of images. */
+    public static class Index {
+        final List<ImageItem> items;
+        final int size;
+        final long[] dates;
+        final long[] sizes;
+        final int[] days;
+        final int[] months;
+        final byte[] extensions;
+        private long[] nameRanks;
+
+        public Index(List<ImageItem> items, TimeZone timeZone) {
+            this.items = items;
+            this.size = items.size();
+            dates = new long[size];
+            sizes = new long[size];
+            days = new int[size];
+            months = new int[size];
+            extensions = new byte[size];
+
+            // Compact lists are read column by column instead of expanding every row
+            CompactImageList compact = items instanceof CompactImageList ? (CompactImageList) items : null;
+            for (int i = 0; i < size; i++) {
+                ImageItem item = compact == null ? items.get(i) : null;
+                long date = compact != null ? compact.getDate(i) : item.getDate();
+                dates[i] = date;
+                sizes[i] = compact != null ? compact.getSize(i) : item.getSize();
+                int day = (int) Math.floorDiv(date + timeZone.getOffset(date), DAY_MS);
+                days[i] = day;
+                months[i] = monthOfDay(day);
+                extensions[i] = (byte) extensionCode(compact != null ? compact.getName(i) : item.getName());
+            }
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /** Whether this index was built for exactly this list instance. */
+        public boolean covers(List<ImageItem> images) {
+            return items == images;
+        }
+
+        // Names are only ranked once, the first time a query sorts by name
+        synchronized long[] nameRanks() {
+            if (nameRanks == null) {
+                String[] names = new String[size];
+                int[] order = new int[size];
+                for (int i = 0; i < size; i++) {
+                    String name = items instanceof CompactImageList
+                            ? ((CompactImageList) items).getName(i) : items.get(i).getName();
+                    names[i] = name != null ? name : "";
+                    order[i] = i;
+                }
+                sort(order, size, (a, b) -> names[a].compareToIgnoreCase(names[b]));
+                long[] ranks = new long[size];
+                for (int rank = 0; rank < size; rank++) {
+                    ranks[order[rank]] = rank;
+                }
+                nameRanks = ranks;
+            }
+            return nameRanks;
+        }
+    }
+
+    interface IndexComparator {
+        int compare(int a, int b);
+    }
+
+    /** Runs the query over an index and returns the grid rows, with section headers if grouping. */
+    public List<GalleryRow> run(Index index) {
+        int[] order = new int[index.size];
+        int count = 0;
+        for (int i = 0; i < index.size; i++) {
+            long size = index.sizes[i];
+            if (size < minSize || size > maxSize) continue;
+            if (extension != EXT_ANY && index.extensions[i] != extension) continue;
+            order[count++] = i;
+        }
+
+        IndexComparator comparator = comparatorFor(index);
+        if (comparator != null) {
+            sort(order, count, comparator);
+        }
+
+        if (grouping == Grouping.NONE) {
+            List<GalleryRow> rows = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                rows.add(GalleryRow.image(index.items, order[i]));
+            }
+            return rows;
+        }
+
+        // Stable sort by section keeps the chosen order inside each section
+        int[] groups = grouping == Grouping.DAY ? index.days : index.months;
+        if (sort == Sort.DATE_OLDEST) {
+            sort(order, count, (a, b) -> Integer.compare(groups[a], groups[b]));
+        } else {
+            sort(order, count, (a, b) -> Integer.compare(groups[b], groups[a]));
+        }
+
+        SimpleDateFormat format = new SimpleDateFormat(
+                grouping == Grouping.DAY ? "EEE, d MMM yyyy" : "MMMM yyyy", Locale.getDefault());
+        List<GalleryRow> rows = new ArrayList<>(count + 32);
+        int currentGroup = 0;
+        for (int i = 0; i < count; i++) {
+            int position = order[i];
+            if (i == 0 || groups[position] != currentGroup) {
+                currentGroup = groups[position];
+                rows.add(GalleryRow.header(format.format(new Date(index.dates[position]))));
+            }
+            rows.add(GalleryRow.image(index.items, position));
+        }
+        return rows;
+    }
+
+    private IndexComparator comparatorFor(Index index) {
+        switch (sort) {
+            case DATE_NEWEST:
+                return (a, b) -> Long.compare(index.dates[b], index.dates[a]);
+            case DATE_OLDEST:
+                return (a, b) -> Long.compare(index.dates[a], index.dates[b]);
+            case SIZE_LARGEST:
+                return (a, b) -> Long.compare(index.sizes[b], index.sizes[a]);
+            case SIZE_SMALLEST:
+                return (a, b) -> Long.compare(index.sizes[a], index.sizes[b]);
+            case NAME:
+                long[] ranks = index.nameRanks();
+                return (a, b) -> Long.compare(ranks[a], ranks[b]);
+            case FOLDER_ORDER:
+            default:
+                return null;
+        }
+    }
+
+    /** Stable bottom-up merge sort of the first {@code length} positions in {@code order}. */
+    static void sort(int[] order, int length, IndexComparator comparator) {
+        if (length < 2) {
+            return;
+        }
+        int[] source = order;
+        int[] target = new int[length];
+        for (int width = 1; width < length; width *= 2) {
+            for (int low = 0; low < length; low += 2 * width) {
+                int middle = Math.min(low + width, length);
+                int high = Math.min(low + 2 * width, length);
+                int left = low;
+                int right = middle;
+                for (int k = low; k < high; k++) {
+                    // Take from the left run unless the right one is strictly smaller, which keeps it stable
+                    if (left < middle && (right >= high || comparator.compare(source[right], source[left]) >= 0)) {
+                        target[k] = source[left++];
+                    } else {
+                        target[k] = source[right++];
+                    }
+                }
+            }
+            int[] swap = source;
+            source = target;
+            target = swap;
+        }
+        if (source != order) {
+            System.arraycopy(source, 0, order, 0, length);
+        }
+    }
+
+    public static int extensionCode(String fileName) {
+        if (fileName == null) return EXT_OTHER;
+        String lowerCase = fileName.toLowerCase(Locale.ROOT);
+        if (lowerCase.endsWith(".jpg") || lowerCase.endsWith(".jpeg")) return EXT_JPEG;
+        if (lowerCase.endsWith(".png")) return EXT_PNG;
+        if (lowerCase.endsWith(".gif")) return EXT_GIF;
+        if (lowerCase.endsWith(".bmp")) return EXT_BMP;
+        if (lowerCase.endsWith(".webp")) return EXT_WEBP;
+        return EXT_OTHER;
+    }
+
+    // Civil year * 12 + month for a day number counted from 1970-01-01 (proleptic Gregorian)
+    static int monthOfDay(int day) {
+        int z = day + 719468;
+        int era = Math.floorDiv(z, 146097);
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 12 + (month - 1);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.cameragallery;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * In-process holder of the images the gallery grid is currently showing, in grid order.
+ * The details pager swipes over this list instead of receiving it through an Intent.
+ */
+public class GalleryRepository {
+    private static GalleryRepository instance;
+
+    private volatile List<ImageItem> images = Collections.emptyList();
+
+    public static synchronized GalleryRepository getInstance() {
+        if (instance == null) {
+            instance = new GalleryRepository();
+        }
+        return instance;
+    }
+
+    private GalleryRepository() {
+    }
+
+    /** Publishes the grid rows; section headers are skipped. The rows must not be mutated afterwards. */
+    public void setRows(List<GalleryRow> rows) {
+        images = new ImageRows(rows);
+    }
+
+    /** The current images in grid order. The returned list never changes; a new one replaces it. */
+    public List<ImageItem> getImages() {
+        return images;
+    }
+
+    /** Position of an image in {@code images} by URI, or -1. */
+    public static int indexOf(List<ImageItem> images, String uri) {
+        if (images instanceof ImageRows) {
+            return ((ImageRows) images).indexOfUri(uri);
+        }
+        for (int i = 0; i < images.size(); i++) {
+            if (images.get(i).getUri().equals(uri)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Image-only view over grid rows, so publishing doesn't expand every row into an ImageItem
+    private static final class ImageRows extends AbstractList<ImageItem> implements RandomAccess {
+        private final List<GalleryRow> rows;
+        private final int[] positions;
+
+        ImageRows(List<GalleryRow> rows) {
+            this.rows = rows;
+            int[] imagePositions = new int[rows.size()];
+            int count = 0;
+            for (int i = 0; i < rows.size(); i++) {
+                if (rows.get(i).getType() == GalleryRow.TYPE_IMAGE) {
+                    imagePositions[count++] = i;
+                }
+            }
+            positions = count == imagePositions.length ? imagePositions : Arrays.copyOf(imagePositions, count);
+        }
+
+        @Override
+        public ImageItem get(int index) {
+            return rows.get(positions[index]).getImage();
+        }
+
+        @Override
+        public int size() {
+            return positions.length;
+        }
+
+        int indexOfUri(String uri) {
+            for (int i = 0; i < positions.length; i++) {
+                if (rows.get(positions[i]).hasUri(uri)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.cameragallery;
+
+import androidx.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * One row of the gallery grid: either an image cell or a full-width section header.
+ * Image rows point at a position in the source list rather than holding the item,
+ * so a {@link CompactImageList} is only expanded for the rows actually bound.
+ */
+public final class GalleryRow {
+    public static final int TYPE_IMAGE = 0;
+    public static final int TYPE_HEADER = 1;
+
+    private final List<ImageItem> source;
+    private final int position;
+    private final String header;
+
+    private GalleryRow(List<ImageItem> source, int position, String header) {
+        this.source = source;
+        this.position = position;
+        this.header = header;
+    }
+
+    public static GalleryRow image(List<ImageItem> source, int position) {
+        return new GalleryRow(source, position, null);
+    }
+
+    public static GalleryRow header(String label) {
+        return new GalleryRow(null, -1, label);
+    }
+
+    public int getType() {
+        return source != null ? TYPE_IMAGE : TYPE_HEADER;
+    }
+
+    /** The image of an image row, or null for a header. */
+    @Nullable
+    public ImageItem getImage() {
+        return source != null ? source.get(position) : null;
+    }
+
+    @Nullable
+    public String getHeader() {
+        return header;
+    }
+
+    /** Stable identity used for diffing: the image URI, or the header label. */
+    public boolean isSameRowAs(GalleryRow other) {
+        if (source == null) {
+            return other.source == null && header.equals(other.header);
+        }
+        if (other.source == null) {
+            return false;
+        }
+        if (source instanceof CompactImageList && other.source instanceof CompactImageList) {
+            return ((CompactImageList) source).sameUri(position, (CompactImageList) other.source, other.position);
+        }
+        return source.get(position).getUri().equals(other.source.get(other.position).getUri());
+    }
+
+    /** Whether this is the image row for a URI. */
+    public boolean hasUri(String uri) {
+        if (source == null) {
+            return false;
+        }
+        if (source instanceof CompactImageList) {
+            return ((CompactImageList) source).getUri(position).equals(uri);
+        }
+        return source.get(position).getUri().equals(uri);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GalleryRow)) return false;
+        GalleryRow other = (GalleryRow) o;
+        if (source == null) {
+            return other.source == null && header.equals(other.header);
+        }
+        if (other.source == null) {
+            return false;
+        }
+        if (source == other.source && position == other.position) {
+            return true;
+        }
+        if (source instanceof CompactImageList && other.source instanceof CompactImageList) {
+            return ((CompactImageList) source).sameContents(position, (CompactImageList) other.source, other.position);
+        }
+        return source.get(position).equals(other.source.get(other.position));
+    }
+
+    @Override
+    public int hashCode() {
+        return source != null ? getImage().hashCode() : header.hashCode();
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.cameragallery;
+
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared, bounded background pool for gallery work.
+ * Keyed tasks are coalesced: submitting a new task for a key cancels the one still pending
+ * or running for it, so only the latest scan of a folder wins. A key is forgotten as soon as
+ * its task finishes.
+ * Gallery queries get a thread of their own, so a re-sort never waits behind bulk deletes,
+ * duplicate detection or an export. When the pool's queue is full a task is not run: it is
+ * counted as cancelled and comes back as an already cancelled Future.
+ */
+public class GalleryScheduler {
+    private static final String TAG = "GalleryScheduler";
+
+    private static final int POOL_SIZE = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final int QUEUE_CAPACITY = 64;
+
+    private static GalleryScheduler instance;
+
+    private final ThreadPoolExecutor executor;
+    // Single thread for latency-sensitive queries; coalesced by key, so its queue stays short
+    private final ExecutorService queryExecutor;
+    private final Map<String, Future<?>> latestByKey = new HashMap<>();
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger cancelled = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+
+    public static synchronized GalleryScheduler getInstance() {
+        if (instance == null) {
+            instance = new GalleryScheduler();
+        }
+        return instance;
+    }
+
+    private GalleryScheduler() {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "gallery-" + threadCount.incrementAndGet());
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        };
+        executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(QUEUE_CAPACITY), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+
+        queryExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "gallery-query"));
+    }
+
+    /**
+     * Runs a one-off task on the pool.
+     *
+     * @return the task's Future, already cancelled if the queue was full and the task was dropped
+     */
+    public Future<?> execute(Runnable task) {
+        FutureTask<?> future = new FutureTask<>(counted(task), null);
+        enqueue(executor, future);
+        return future;
+    }
+
+    /**
+     * Runs a task for a key, cancelling (and interrupting) any earlier task for the same key.
+     * Tasks should check {@link Thread#isInterrupted()} at convenient points.
+     * If the queue is full the new task is dropped and the earlier one is left to finish.
+     */
+    public Future<?> executeLatest(String key, Runnable task) {
+        return submitLatest(executor, key, task);
+    }
+
+    /**
+     * As {@link #executeLatest}, but on the dedicated query thread instead of the shared pool.
+     * Meant for short work the user is waiting on, like sorting and grouping the grid.
+     */
+    public Future<?> executeQuery(String key, Runnable task) {
+        return submitLatest(queryExecutor, key, task);
+    }
+
+    /** Cancels the pending or running task for a key, if any. */
+    public synchronized void cancel(String key) {
+        Future<?> previous = latestByKey.remove(key);
+        if (previous != null && !previous.isDone() && previous.cancel(true)) {
+            cancelled.incrementAndGet();
+        }
+    }
+
+    private synchronized Future<?> submitLatest(ExecutorService target, String key, Runnable task) {
+        FutureTask<?> future = new FutureTask<Void>(counted(task), null) {
+            @Override
+            protected void done() {
+                // Waits for submitLatest to return, so the entry is in the map before it is dropped
+                forget(key, this);
+            }
+        };
+        // The earlier task is only cancelled once this one is accepted, so a full queue never loses both
+        if (enqueue(target, future)) {
+            cancel(key);
+            latestByKey.put(key, future);
+        }
+        return future;
+    }
+
+    private synchronized void forget(String key, Future<?> future) {
+        if (latestByKey.get(key) == future) {
+            latestByKey.remove(key);
+        }
+    }
+
+    private boolean enqueue(ExecutorService target, FutureTask<?> future) {
+        queued.incrementAndGet();
+        try {
+            target.execute(future);
+            return true;
+        } catch (RejectedExecutionException e) {
+            cancelled.incrementAndGet();
+            Log.w(TAG, "Queue full, dropping task");
+            future.cancel(false);
+            return false;
+        }
+    }
+
+    private Runnable counted(Runnable task) {
+        return () -> {
+            task.run();
+            completed.incrementAndGet();
+        };
+    }
+
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    public int getCancelledCount() {
+        return cancelled.get();
+    }
+
+    public int getCompletedCount() {
+        return completed.get();
+    }
+
+    public void logStats() {
+        Log.d(TAG, "Tasks queued: " + queued.get() + ", cancelled: " + cancelled.get()
+                + ", completed: " + completed.get() + ", active: " + executor.getActiveCount());
+    }
+}
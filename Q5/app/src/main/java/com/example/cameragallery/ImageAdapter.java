@@ -1,67 +1,208 @@
 package com.example.cameragallery;
 
 import android.content.Context;
-import android.net.Uri;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
+import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.core.view.ViewCompat;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
-import com.bumptech.glide.load.engine.DiskCacheStrategy;
-import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.request.Request;
+import com.bumptech.glide.request.target.ViewTarget;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
-public class ImageAdapter extends RecyclerView.Adapter<ImageAdapter.ImageViewHolder> {
+public class ImageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
     private static final String TAG = "ImageAdapter";
     private final Context context;
-    private final List<ImageItem> imageList;
+    private final RequestManager glide;
+    private final ThumbnailLoader thumbnailLoader;
+    private final AsyncListDiffer<GalleryRow> differ;
     private final OnImageClickListener listener;
 
+    // Selected items are tracked by URI so selection survives list diffs
+    private final Set<String> selectedUris = new HashSet<>();
+    private static final Object SELECTION_PAYLOAD = new Object();
+
+    // Image rows are identified by their document URI, headers by label; contents compare every field
+    private static final DiffUtil.ItemCallback<GalleryRow> DIFF_CALLBACK = new DiffUtil.ItemCallback<GalleryRow>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull GalleryRow oldRow, @NonNull GalleryRow newRow) {
+            return oldRow.isSameRowAs(newRow);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull GalleryRow oldRow, @NonNull GalleryRow newRow) {
+            return oldRow.equals(newRow);
+        }
+    };
+
     public interface OnImageClickListener {
-        void onImageClick(ImageItem image);
+        void onImageClick(ImageItem image, ImageView thumbnail);
+
+        void onSelectionChanged(int selectedCount);
     }
 
-    public ImageAdapter(Context context, List<ImageItem> imageList, OnImageClickListener listener) {
+    public ImageAdapter(Context context, OnImageClickListener listener) {
         this.context = context;
-        this.imageList = imageList;
+        this.glide = Glide.with(context);
+        this.thumbnailLoader = ThumbnailLoader.getInstance(context);
+        this.differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
         this.listener = listener;
     }
 
+    /**
+     * Diffs the new rows against the current ones off the main thread and dispatches
+     * item-level inserts, removes and changes. The list must not be mutated afterwards.
+     */
+    public void submitRows(List<GalleryRow> rows, Runnable commitCallback) {
+        differ.submitList(rows, commitCallback);
+    }
+
+    /** Returns the image shown at an adapter position, or null for a section header. */
+    public ImageItem getImageAt(int position) {
+        List<GalleryRow> rows = differ.getCurrentList();
+        return position >= 0 && position < rows.size() ? rows.get(position).getImage() : null;
+    }
+
+    /** Makes section headers span the full grid width. */
+    public GridLayoutManager.SpanSizeLookup createSpanSizeLookup(int spanCount) {
+        return new GridLayoutManager.SpanSizeLookup() {
+            @Override
+            public int getSpanSize(int position) {
+                return getItemViewType(position) == GalleryRow.TYPE_HEADER ? spanCount : 1;
+            }
+        };
+    }
+
+    /** Whether a bound cell is still showing its placeholder rather than its thumbnail. */
+    public static boolean isShowingPlaceholder(RecyclerView.ViewHolder viewHolder) {
+        if (!(viewHolder instanceof ImageViewHolder)) {
+            return false;
+        }
+        ViewTarget<ImageView, ?> target = ((ImageViewHolder) viewHolder).target;
+        Request request = target != null ? target.getRequest() : null;
+        return request != null && !request.isComplete();
+    }
+
+    public boolean isSelectionMode() {
+        return !selectedUris.isEmpty();
+    }
+
+    /** Returns the selected items in grid order. */
+    public List<ImageItem> getSelectedItems() {
+        List<ImageItem> selected = new ArrayList<>(selectedUris.size());
+        for (GalleryRow row : differ.getCurrentList()) {
+            ImageItem item = row.getImage();
+            if (item != null && selectedUris.contains(item.getUri())) {
+                selected.add(item);
+            }
+        }
+        return selected;
+    }
+
+    public void clearSelection() {
+        selectedUris.clear();
+        notifyItemRangeChanged(0, getItemCount(), SELECTION_PAYLOAD);
+        notifySelectionChanged();
+    }
+
+    /** Forgets items that are no longer in the gallery, e.g. after they were deleted. */
+    public void deselect(List<ImageItem> items) {
+        for (ImageItem item : items) {
+            selectedUris.remove(item.getUri());
+        }
+        notifySelectionChanged();
+    }
+
+    private void toggleSelection(ImageViewHolder holder, ImageItem item) {
+        if (!selectedUris.remove(item.getUri())) {
+            selectedUris.add(item.getUri());
+        }
+        int position = holder.getBindingAdapterPosition();
+        if (position != RecyclerView.NO_POSITION) {
+            notifyItemChanged(position, SELECTION_PAYLOAD);
+        }
+        notifySelectionChanged();
+    }
+
+    private void notifySelectionChanged() {
+        if (listener != null) {
+            listener.onSelectionChanged(selectedUris.size());
+        }
+    }
+
+    private void bindSelection(ImageViewHolder holder, ImageItem item) {
+        holder.itemView.setAlpha(item != null && selectedUris.contains(item.getUri()) ? 0.4f : 1f);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return differ.getCurrentList().get(position).getType();
+    }
+
     @NonNull
     @Override
-    public ImageViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        if (viewType == GalleryRow.TYPE_HEADER) {
+            View view = LayoutInflater.from(context).inflate(R.layout.item_section_header, parent, false);
+            return new HeaderViewHolder(view);
+        }
         View view = LayoutInflater.from(context).inflate(R.layout.item_image, parent, false);
         return new ImageViewHolder(view);
     }
 
     @Override
-    public void onBindViewHolder(@NonNull ImageViewHolder holder, int position) {
-        ImageItem item = imageList.get(position);
-        try {
-            Uri imageUri = Uri.parse(item.getUri());
-            Log.d(TAG, "Loading image: " + imageUri);
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(SELECTION_PAYLOAD) && holder instanceof ImageViewHolder) {
+            // Selection only changes the overlay; keep the loaded thumbnail as it is
+            bindSelection((ImageViewHolder) holder, getImageAt(position));
+            return;
+        }
+        super.onBindViewHolder(holder, position, payloads);
+    }
 
-            RequestOptions requestOptions = new RequestOptions()
-                    .diskCacheStrategy(DiskCacheStrategy.ALL)
-                    .centerCrop()
-                    .placeholder(R.drawable.ic_launcher_background); // Replace with your placeholder
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder viewHolder, int position) {
+        GalleryRow row = differ.getCurrentList().get(position);
+        if (viewHolder instanceof HeaderViewHolder) {
+            ((HeaderViewHolder) viewHolder).tvHeader.setText(row.getHeader());
+            return;
+        }
 
-            Glide.with(context)
-                    .load(imageUri)
-                    .apply(requestOptions)
-                    .into(holder.imageView);
+        ImageViewHolder holder = (ImageViewHolder) viewHolder;
+        ImageItem item = row.getImage();
+        try {
+            // Lets the details screen grow this cell into its page
+            ViewCompat.setTransitionName(holder.imageView, item.getUri());
+            // Memory-cache hits complete synchronously inside into(); anything else shows the placeholder
+            holder.target = thumbnailLoader.request(glide, item).into(holder.imageView);
 
+            bindSelection(holder, item);
             holder.itemView.setOnClickListener(v -> {
-                if (listener != null) {
-                    listener.onImageClick(item);
+                if (isSelectionMode()) {
+                    toggleSelection(holder, item);
+                } else if (listener != null) {
+                    listener.onImageClick(item, holder.imageView);
                 }
             });
+            holder.itemView.setOnLongClickListener(v -> {
+                toggleSelection(holder, item);
+                return true;
+            });
         } catch (Exception e) {
             Log.e(TAG, "Error loading image at position " + position + ": " + e.getMessage());
         }
@@ -69,15 +210,25 @@ public class ImageAdapter extends RecyclerView.Adapter<ImageAdapter.ImageViewHol
 
     @Override
     public int getItemCount() {
-        return imageList.size();
+        return differ.getCurrentList().size();
     }
 
     public static class ImageViewHolder extends RecyclerView.ViewHolder {
         ImageView imageView;
+        ViewTarget<ImageView, ?> target;
 
         public ImageViewHolder(@NonNull View itemView) {
             super(itemView);
             imageView = itemView.findViewById(R.id.imageView);
         }
     }
+
+    public static class HeaderViewHolder extends RecyclerView.ViewHolder {
+        TextView tvHeader;
+
+        public HeaderViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvHeader = itemView.findViewById(R.id.tvHeader);
+        }
+    }
 }
\ No newline at end of file
@@ -4,60 +4,87 @@ import android.app.AlertDialog;
 import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.text.format.DateFormat;
 import android.text.format.Formatter;
 import android.util.Log;
+import android.view.View;
 import android.widget.Button;
-import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.documentfile.provider.DocumentFile;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.PagerSnapHelper;
+import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
-
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 public class ImageDetailsActivity extends AppCompatActivity {
     private static final String TAG = "ImageDetailsActivity";
-
-    private ImageView ivImage;
-    private TextView tvName, tvPath, tvSize, tvDate;
+    public static final String EXTRA_IMAGE_ID = "imageId";
+    public static final String EXTRA_DELETED_URI = "deletedUri";
+    // Tree folder the image lives in, so the gallery's watcher can ignore our own delete
+    public static final String EXTRA_FOLDER_URI = "folderUri";
+
+    private RecyclerView pager;
+    private LinearLayoutManager pagerLayoutManager;
+    private PagerSnapHelper snapHelper;
+    private ImagePagerAdapter pagerAdapter;
+    private RegionDecoder regionDecoder;
+    private int currentPosition = RecyclerView.NO_POSITION;
+    private TextView tvName, tvPath, tvSize, tvDate, tvExif;
     private Button btnDelete;
     private Uri imageUri;
+    private long createdAt;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        createdAt = SystemClock.elapsedRealtime();
         setContentView(R.layout.activity_image_details);
         Log.d(TAG, "ImageDetailsActivity created");
+        // Hold the shared-element transition until the page has something to show
+        supportPostponeEnterTransition();
 
         initializeViews();
         handleIntent();
     }
 
     private void initializeViews() {
-        ivImage = findViewById(R.id.ivImage);
+        pager = findViewById(R.id.pager);
+        pagerLayoutManager = new LinearLayoutManager(this, LinearLayoutManager.HORIZONTAL, false);
+        pager.setLayoutManager(pagerLayoutManager);
+        snapHelper = new PagerSnapHelper();
+        snapHelper.attachToRecyclerView(pager);
+        regionDecoder = new RegionDecoder(getContentResolver());
         tvName = findViewById(R.id.tvName);
         tvPath = findViewById(R.id.tvPath);
         tvSize = findViewById(R.id.tvSize);
         tvDate = findViewById(R.id.tvDate);
+        tvExif = findViewById(R.id.tvExif);
         btnDelete = findViewById(R.id.btnDelete);
     }
 
     private void handleIntent() {
         Intent intent = getIntent();
         if (intent != null) {
-            String uriString = intent.getStringExtra("imageUri");
-            String name = intent.getStringExtra("imageName");
-            String path = intent.getStringExtra("imagePath");
-            long size = intent.getLongExtra("imageSize", 0);
-            long date = intent.getLongExtra("imageDate", 0);
-
-            if (uriString != null && !uriString.isEmpty()) {
-                imageUri = Uri.parse(uriString);
-                displayImageDetails(name, path, size, date);
+            String imageId = intent.getStringExtra(EXTRA_IMAGE_ID);
+
+            if (imageId != null && !imageId.isEmpty()) {
+                // Page over what the grid is showing; after process death the repository is empty,
+                // so fall back to just this image
+                List<ImageItem> images = GalleryRepository.getInstance().getImages();
+                int position = GalleryRepository.indexOf(images, imageId);
+                if (position < 0) {
+                    images = Collections.singletonList(loadSingleImage(imageId));
+                    position = 0;
+                }
+                setupPager(images, position);
                 setupDeleteButton();
             } else {
                 showErrorAndFinish("Invalid image data");
@@ -67,13 +94,68 @@ public class ImageDetailsActivity extends AppCompatActivity {
         }
     }
 
+    private ImageItem loadSingleImage(String imageId) {
+        Uri uri = Uri.parse(imageId);
+        DocumentFile file = DocumentFile.fromSingleUri(this, uri);
+        if (file == null || !file.exists()) {
+            return new ImageItem(imageId, null, uri.getPath(), 0, 0);
+        }
+        return new ImageItem(imageId, file.getName(), uri.getPath(), file.length(), file.lastModified());
+    }
+
+    private void setupPager(List<ImageItem> images, int position) {
+        pagerAdapter = new ImagePagerAdapter(this, images, regionDecoder);
+        pagerAdapter.setEntryListener(images.get(position).getUri(), new ImagePagerAdapter.EntryListener() {
+            @Override
+            public void onFirstPixel(boolean fromThumbnail) {
+                Log.d(TAG, "Time to first pixel: " + (SystemClock.elapsedRealtime() - createdAt) + " ms ("
+                        + (fromThumbnail ? "grid thumbnail" : "full image") + ")");
+                supportStartPostponedEnterTransition();
+            }
+
+            @Override
+            public void onFullResolution() {
+                Log.d(TAG, "Time to full resolution: " + (SystemClock.elapsedRealtime() - createdAt) + " ms");
+            }
+
+            @Override
+            public void onFailed() {
+                supportStartPostponedEnterTransition();
+            }
+        });
+        pager.setAdapter(pagerAdapter);
+        pager.scrollToPosition(position);
+        showPage(position);
+
+        pager.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                if (newState != RecyclerView.SCROLL_STATE_IDLE) {
+                    return;
+                }
+                View snapView = snapHelper.findSnapView(pagerLayoutManager);
+                if (snapView != null) {
+                    showPage(pagerLayoutManager.getPosition(snapView));
+                }
+            }
+        });
+    }
+
+    private void showPage(int position) {
+        if (position == currentPosition || position == RecyclerView.NO_POSITION) {
+            return;
+        }
+        currentPosition = position;
+        ImageItem item = pagerAdapter.getImageAt(position);
+        imageUri = Uri.parse(item.getUri());
+        displayImageDetails(item.getName(), item.getPath(), item.getSize(), item.getDate());
+        displayExif(item);
+        // Decode the neighbours at screen size now, so the next swipe lands on a cached bitmap
+        pagerAdapter.preloadAround(position);
+    }
+
     private void displayImageDetails(String name, String path, long size, long date) {
         try {
-            Glide.with(this)
-                    .load(imageUri)
-                    .fitCenter()
-                    .into(ivImage);
-
             tvName.setText(String.format("Name: %s", name != null ? name : "Unknown"));
             tvPath.setText(String.format("Path: %s", path != null ? path : "Unknown"));
             tvSize.setText(String.format("Size: %s", Formatter.formatFileSize(this, size)));
@@ -84,6 +166,17 @@ public class ImageDetailsActivity extends AppCompatActivity {
         }
     }
 
+    // EXIF is only read for the page the user settles on, and only once per file version
+    private void displayExif(ImageItem item) {
+        tvExif.setText("Reading camera details...");
+        ExifMetadataLoader.getInstance(this).load(item, (loaded, metadata) -> {
+            if (isDestroyed() || !loaded.getUri().equals(imageUri.toString())) {
+                return; // The user has swiped on
+            }
+            tvExif.setText(metadata != null ? metadata.describe() : "Camera details unavailable");
+        });
+    }
+
     private void setupDeleteButton() {
         btnDelete.setOnClickListener(v -> showDeleteConfirmationDialog());
     }
@@ -101,10 +194,23 @@ public class ImageDetailsActivity extends AppCompatActivity {
         try {
             DocumentFile file = DocumentFile.fromSingleUri(this, imageUri);
             if (file != null && file.exists()) {
-                boolean deleted = file.delete();
+                String folderUri = getIntent().getStringExtra(EXTRA_FOLDER_URI);
+                if (folderUri != null) {
+                    FolderWatcher.beginLocalWrite(Uri.parse(folderUri));
+                }
+                boolean deleted;
+                try {
+                    deleted = file.delete();
+                } finally {
+                    if (folderUri != null) {
+                        FolderWatcher.endLocalWrite(Uri.parse(folderUri), null);
+                    }
+                }
                 if (deleted) {
                     Toast.makeText(this, "Image deleted successfully", Toast.LENGTH_SHORT).show();
-                    setResult(RESULT_OK);
+                    Intent result = new Intent();
+                    result.putExtra(EXTRA_DELETED_URI, imageUri.toString());
+                    setResult(RESULT_OK, result);
                     finish();
                 } else {
                     Toast.makeText(this, "Failed to delete image", Toast.LENGTH_SHORT).show();
@@ -118,6 +224,16 @@ public class ImageDetailsActivity extends AppCompatActivity {
         }
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (pager != null) {
+            pager.setAdapter(null);
+        }
+        GalleryScheduler.getInstance().cancel(ImagePagerAdapter.ZOOM_KEY);
+        regionDecoder.close();
+    }
+
     private void showErrorAndFinish(String message) {
         Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
         finish();
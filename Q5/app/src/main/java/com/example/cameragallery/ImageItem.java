@@ -1,5 +1,7 @@
 package com.example.cameragallery;
 
+import androidx.annotation.Nullable;
+
 public class ImageItem {
     private final String uri;
     private final String name;
@@ -34,4 +36,22 @@ public class ImageItem {
     public long getDate() {
         return date;
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ImageItem)) return false;
+        ImageItem other = (ImageItem) o;
+        return size == other.size
+                && date == other.date
+                && uri.equals(other.uri)
+                && (name == null ? other.name == null : name.equals(other.name))
+                && (path == null ? other.path == null : path.equals(other.path));
+    }
+
+    @Override
+    public int hashCode() {
+        // The URI identifies the item; the other fields only matter for content equality
+        return uri.hashCode();
+    }
+}
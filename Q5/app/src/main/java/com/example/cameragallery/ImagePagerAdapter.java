@@ -0,0 +1,329 @@
+package com.example.cameragallery;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Matrix;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.view.GestureDetector;
+import android.view.LayoutInflater;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.view.ViewCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.signature.ObjectKey;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Full-screen pages for the details pager. Pages are decoded by Glide at screen resolution,
+ * so the same request can be preloaded for the neighbours of the current page.
+ * While a page decodes, the grid's cached thumbnail stands in for it.
+ * Double tap zooms to 1:1 pixels around the tap using {@link RegionDecoder}; drag to pan.
+ */
+public class ImagePagerAdapter extends RecyclerView.Adapter<ImagePagerAdapter.PageHolder> {
+    private static final String TAG = "ImagePagerAdapter";
+    static final String ZOOM_KEY = "zoom";
+
+    private final RequestManager glide;
+    private final ThumbnailLoader thumbnailLoader;
+    private final List<ImageItem> images;
+    private final RegionDecoder regionDecoder;
+    private final RequestOptions pageOptions;
+    private final int screenWidth;
+    private final int screenHeight;
+
+    private String entryUri;
+    private EntryListener entryListener;
+
+    /** Progress of the page the screen was opened on, for the enter transition and timing. */
+    public interface EntryListener {
+        /** The first image, thumbnail or full, is on screen. */
+        void onFirstPixel(boolean fromThumbnail);
+
+        void onFullResolution();
+
+        /** The full-resolution page could not be loaded. */
+        void onFailed();
+    }
+
+    public ImagePagerAdapter(Context context, List<ImageItem> images, RegionDecoder regionDecoder) {
+        this.glide = Glide.with(context);
+        this.thumbnailLoader = ThumbnailLoader.getInstance(context);
+        this.images = images;
+        this.regionDecoder = regionDecoder;
+
+        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        screenWidth = metrics.widthPixels;
+        screenHeight = metrics.heightPixels;
+        pageOptions = new RequestOptions()
+                .override(screenWidth, screenHeight)
+                .fitCenter();
+    }
+
+    public ImageItem getImageAt(int position) {
+        return images.get(position);
+    }
+
+    /** The page request for an image; the same for binding and preloading, so both hit one cache entry. */
+    public RequestBuilder<Drawable> request(ImageItem item) {
+        return glide.load(Uri.parse(item.getUri()))
+                .apply(pageOptions)
+                .signature(new ObjectKey(item.getDate()));
+    }
+
+    /** Reports progress of the page for {@code uri} the first time it is bound. */
+    public void setEntryListener(String uri, EntryListener listener) {
+        entryUri = uri;
+        entryListener = listener;
+    }
+
+    /** Decodes the pages either side of {@code position} into the memory cache. */
+    public void preloadAround(int position) {
+        if (position > 0) {
+            request(images.get(position - 1)).preload();
+        }
+        if (position < images.size() - 1) {
+            request(images.get(position + 1)).preload();
+        }
+    }
+
+    @NonNull
+    @Override
+    public PageHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_image_page, parent, false);
+        return new PageHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull PageHolder holder, int position) {
+        holder.unzoom();
+        holder.item = images.get(position);
+
+        // Same request as the grid cell, so the thumbnail is normally a memory-cache hit
+        RequestBuilder<Drawable> thumbnail = thumbnailLoader.request(glide, holder.item);
+        RequestBuilder<Drawable> page = request(holder.item);
+
+        if (entryListener != null && holder.item.getUri().equals(entryUri)) {
+            EntryListener listener = entryListener;
+            entryListener = null;
+            ViewCompat.setTransitionName(holder.ivPage, entryUri);
+            boolean[] shown = {false};
+            thumbnail = thumbnail.listener(new EntryRequestListener(success -> {
+                if (success && !shown[0]) {
+                    shown[0] = true;
+                    listener.onFirstPixel(true);
+                }
+            }));
+            page = page.listener(new EntryRequestListener(success -> {
+                if (!success) {
+                    listener.onFailed();
+                    return;
+                }
+                if (!shown[0]) {
+                    shown[0] = true;
+                    listener.onFirstPixel(false);
+                }
+                listener.onFullResolution();
+            }));
+        } else {
+            ViewCompat.setTransitionName(holder.ivPage, null);
+        }
+
+        page.thumbnail(thumbnail).into(holder.ivPage);
+    }
+
+    private interface LoadCallback {
+        void onLoaded(boolean success);
+    }
+
+    // Reports whether a request showed its resource; never consumes the event
+    private static class EntryRequestListener implements RequestListener<Drawable> {
+        private final LoadCallback callback;
+
+        EntryRequestListener(LoadCallback callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public boolean onLoadFailed(@Nullable GlideException e, @Nullable Object model,
+                                    @NonNull Target<Drawable> target, boolean isFirstResource) {
+            callback.onLoaded(false);
+            return false;
+        }
+
+        @Override
+        public boolean onResourceReady(@NonNull Drawable resource, @NonNull Object model, Target<Drawable> target,
+                                       @NonNull DataSource dataSource, boolean isFirstResource) {
+            callback.onLoaded(true);
+            return false;
+        }
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull PageHolder holder) {
+        holder.unzoom();
+        holder.item = null;
+        glide.clear(holder.ivPage);
+    }
+
+    @Override
+    public int getItemCount() {
+        return images.size();
+    }
+
+    public class PageHolder extends RecyclerView.ViewHolder {
+        final ImageView ivPage;
+        final ImageView ivZoom;
+        ImageItem item;
+
+        private boolean zoomed;
+        private float centerX;
+        private float centerY;
+        private int imageWidth;
+        private int imageHeight;
+        private Bitmap zoomBitmap;
+        private int zoomGeneration;
+
+        @SuppressLint("ClickableViewAccessibility")
+        PageHolder(@NonNull View itemView) {
+            super(itemView);
+            ivPage = itemView.findViewById(R.id.ivPage);
+            ivZoom = itemView.findViewById(R.id.ivZoom);
+
+            GestureDetector detector = new GestureDetector(itemView.getContext(),
+                    new GestureDetector.SimpleOnGestureListener() {
+                        @Override
+                        public boolean onDown(MotionEvent e) {
+                            return true;
+                        }
+
+                        @Override
+                        public boolean onDoubleTap(MotionEvent e) {
+                            if (zoomed) {
+                                unzoom();
+                            } else {
+                                zoomAt(e.getX(), e.getY());
+                            }
+                            return true;
+                        }
+
+                        @Override
+                        public boolean onScroll(MotionEvent e1, MotionEvent e2, float dx, float dy) {
+                            if (!zoomed) {
+                                return false;
+                            }
+                            ivZoom.setTranslationX(ivZoom.getTranslationX() - dx);
+                            ivZoom.setTranslationY(ivZoom.getTranslationY() - dy);
+                            return true;
+                        }
+                    });
+
+            itemView.setOnTouchListener((v, event) -> {
+                boolean handled = detector.onTouchEvent(event);
+                if (zoomed) {
+                    // While zoomed a drag pans the window instead of swiping to the next page
+                    v.getParent().requestDisallowInterceptTouchEvent(true);
+                    int action = event.getActionMasked();
+                    if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+                        commitPan();
+                    }
+                    return true;
+                }
+                return handled;
+            });
+        }
+
+        private void zoomAt(float x, float y) {
+            Drawable drawable = ivPage.getDrawable();
+            if (item == null || drawable == null || drawable.getIntrinsicWidth() <= 0) {
+                return;
+            }
+            // Map the tap through the fitCenter matrix to a fraction of the displayed image
+            float[] values = new float[9];
+            ivPage.getImageMatrix().getValues(values);
+            float scale = values[Matrix.MSCALE_X];
+            float fractionX = (x - values[Matrix.MTRANS_X]) / (scale * drawable.getIntrinsicWidth());
+            float fractionY = (y - values[Matrix.MTRANS_Y]) / (scale * drawable.getIntrinsicHeight());
+            zoomed = true;
+            decodeWindow(Math.max(0f, Math.min(1f, fractionX)), Math.max(0f, Math.min(1f, fractionY)));
+        }
+
+        private void commitPan() {
+            float dx = ivZoom.getTranslationX();
+            float dy = ivZoom.getTranslationY();
+            if ((dx == 0 && dy == 0) || imageWidth == 0) {
+                return;
+            }
+            // The window is at 1:1, so a pan of n view pixels is n image pixels
+            decodeWindow(centerX - dx / imageWidth, centerY - dy / imageHeight);
+        }
+
+        private void decodeWindow(float x, float y) {
+            ImageItem target = item;
+            int generation = ++zoomGeneration;
+            int width = itemView.getWidth() > 0 ? itemView.getWidth() : screenWidth;
+            int height = itemView.getHeight() > 0 ? itemView.getHeight() : screenHeight;
+
+            GalleryScheduler.getInstance().executeLatest(ZOOM_KEY, () -> {
+                try {
+                    RegionDecoder.Region region = regionDecoder.decode(Uri.parse(target.getUri()), x, y, width, height);
+                    itemView.post(() -> {
+                        if (generation != zoomGeneration || target != item || !zoomed) {
+                            regionDecoder.release(region.bitmap);
+                            return;
+                        }
+                        showWindow(region);
+                    });
+                } catch (CancellationException e) {
+                    Log.d(TAG, "Zoom decode superseded");
+                } catch (Exception e) {
+                    Log.e(TAG, "Error decoding zoomed region: " + e.getMessage(), e);
+                }
+            });
+        }
+
+        private void showWindow(RegionDecoder.Region region) {
+            Bitmap previous = zoomBitmap;
+            zoomBitmap = region.bitmap;
+            centerX = region.centerX;
+            centerY = region.centerY;
+            imageWidth = region.imageWidth;
+            imageHeight = region.imageHeight;
+            ivZoom.setImageBitmap(zoomBitmap);
+            ivZoom.setTranslationX(0);
+            ivZoom.setTranslationY(0);
+            ivZoom.setVisibility(View.VISIBLE);
+            regionDecoder.release(previous);
+        }
+
+        void unzoom() {
+            zoomed = false;
+            zoomGeneration++;
+            ivZoom.setVisibility(View.GONE);
+            ivZoom.setImageDrawable(null);
+            ivZoom.setTranslationX(0);
+            ivZoom.setTranslationY(0);
+            regionDecoder.release(zoomBitmap);
+            zoomBitmap = null;
+        }
+    }
+}
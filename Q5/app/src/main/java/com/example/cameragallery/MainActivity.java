@@ -9,9 +9,10 @@ import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Environment;
+import android.os.SystemClock;
 import android.provider.MediaStore;
-import android.provider.Settings;
 import android.util.Log;
+import android.view.View;
 import android.widget.Button;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -21,30 +22,45 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.core.content.FileProvider;
-import androidx.documentfile.provider.DocumentFile;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
+import java.util.concurrent.Future;
 
 public class MainActivity extends AppCompatActivity {
     private static final String TAG = "CameraGallery";
     private static final int REQUEST_CAMERA = 101;
     private static final int REQUEST_STORAGE = 102;
-    private static final int REQUEST_MANAGE_STORAGE = 103;
     private static final int REQUEST_CAPTURE_IMAGE = 104;
     private static final int REQUEST_PICK_FOLDER = 105;
 
     private String currentPhotoPath;
     private Uri saveFolderUri;
-    private SharedPreferences prefs;
+    // Until the saved folder is read, clicks that depend on it are held here
+    private boolean startupStateLoaded;
+    private Runnable pendingStartupAction;
+    private PhotoSaver photoSaver;
+    private BurstSaveQueue burstQueue;
+    private boolean burstMode;
+    private boolean burstWaitingForQueue;
+    // Null keeps captures byte-for-byte; otherwise single shots are re-encoded before saving
+    private PhotoTranscoder.Config transcodeConfig;
+    // The camera app often gets this Activity recreated; the capture loop must carry on afterwards
+    private static final String STATE_PHOTO_PATH = "photoPath";
+    private static final String STATE_FOLDER_URI = "folderUri";
+    private static final String STATE_BURST_MODE = "burstMode";
+    private static final String STATE_BURST_WAITING = "burstWaiting";
+    private static final String STATE_COMPRESS = "compress";
     private static final String PREFS_NAME = "CameraPrefs";
     private static final String KEY_FOLDER_URI = "folder_uri";
+    private static final int COMPRESS_MAX_DIMENSION = 2560;
+    private static final PhotoTranscoder.Config COMPRESS_JPEG =
+            new PhotoTranscoder.Config(COMPRESS_MAX_DIMENSION, 85, PhotoTranscoder.Format.JPEG);
+    private static final PhotoTranscoder.Config COMPRESS_WEBP =
+            new PhotoTranscoder.Config(COMPRESS_MAX_DIMENSION, 80, PhotoTranscoder.Format.WEBP);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -52,14 +68,99 @@ public class MainActivity extends AppCompatActivity {
         setContentView(R.layout.activity_main);
         Log.d(TAG, "App started");
 
-        // Initialize SharedPreferences
-        prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
-        String savedUri = prefs.getString(KEY_FOLDER_URI, null);
-        if (savedUri != null) {
-            saveFolderUri = Uri.parse(savedUri);
+        // Single captures are the ones that get retried, so only they check for an identical photo;
+        // burst saves keep the plain transferTo copy
+        photoSaver = new PhotoSaver(this, true);
+        burstQueue = BurstSaveQueue.getInstance(this);
+        burstQueue.setListener((success, latencyMillis) -> runOnUiThread(this::onBurstSaveFinished));
+        if (savedInstanceState != null) {
+            restoreCaptureState(savedInstanceState);
         }
-
         setupUI();
+        loadStartupState();
+        if (burstWaitingForQueue) {
+            // The writer may have freed a slot while this Activity was being recreated
+            onBurstSaveFinished();
+        }
+    }
+
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(STATE_PHOTO_PATH, currentPhotoPath);
+        if (saveFolderUri != null) {
+            outState.putString(STATE_FOLDER_URI, saveFolderUri.toString());
+        }
+        outState.putBoolean(STATE_BURST_MODE, burstMode);
+        outState.putBoolean(STATE_BURST_WAITING, burstWaitingForQueue);
+        outState.putInt(STATE_COMPRESS, transcodeConfig == COMPRESS_JPEG ? 1 : transcodeConfig == COMPRESS_WEBP ? 2 : 0);
+    }
+
+    private void restoreCaptureState(Bundle state) {
+        currentPhotoPath = state.getString(STATE_PHOTO_PATH);
+        String folder = state.getString(STATE_FOLDER_URI);
+        if (folder != null) {
+            saveFolderUri = Uri.parse(folder);
+        }
+        burstMode = state.getBoolean(STATE_BURST_MODE);
+        burstWaitingForQueue = state.getBoolean(STATE_BURST_WAITING);
+        int compress = state.getInt(STATE_COMPRESS);
+        transcodeConfig = compress == 1 ? COMPRESS_JPEG : compress == 2 ? COMPRESS_WEBP : null;
+    }
+
+    /**
+     * Reads the saved folder off the main thread: the first SharedPreferences read waits for the
+     * XML file to be parsed, and the storage check is a binder call. With a folder and access
+     * already in place, the gallery index and first thumbnails are warmed up at the same time.
+     */
+    private void loadStartupState() {
+        long start = SystemClock.uptimeMillis();
+        Runnable load = () -> {
+            SharedPreferences loaded = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+            String savedUri = loaded.getString(KEY_FOLDER_URI, null);
+            if (savedUri != null && checkStoragePermission()) {
+                GalleryPrewarmer.prewarm(this, savedUri);
+            }
+
+            runOnUiThread(() -> {
+                // The read can outlive a quick back press or a recreation; that Activity is done with
+                if (isDestroyed()) {
+                    return;
+                }
+                // A folder picked in the meantime wins over the saved one
+                if (saveFolderUri == null && savedUri != null) {
+                    saveFolderUri = Uri.parse(savedUri);
+                }
+                startupStateLoaded = true;
+                updateLocationText(findViewById(R.id.tvSaveLocation));
+                Log.d(TAG, "Startup state loaded in " + (SystemClock.uptimeMillis() - start) + " ms");
+                reportFullyDrawn();
+
+                Runnable pending = pendingStartupAction;
+                pendingStartupAction = null;
+                if (pending != null) {
+                    pending.run();
+                }
+            });
+        };
+        // Everything else waits for this, so it gets a thread of its own if the pool is full
+        if (GalleryScheduler.getInstance().execute(load).isCancelled()) {
+            new Thread(load, "startup-state").start();
+        }
+    }
+
+    private void whenStartupStateLoaded(Runnable action) {
+        if (startupStateLoaded) {
+            action.run();
+        } else {
+            pendingStartupAction = action;
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        burstQueue.setListener(null);
+        super.onDestroy();
     }
 
     private void setupUI() {
@@ -67,11 +168,13 @@ public class MainActivity extends AppCompatActivity {
         Button btnTakePhoto = findViewById(R.id.btnTakePhoto);
         Button btnViewGallery = findViewById(R.id.btnViewGallery);
         Button btnChangeFolder = findViewById(R.id.btnChangeSaveFolder);
+        Button btnBurstMode = findViewById(R.id.btnBurstMode);
+        Button btnCompress = findViewById(R.id.btnCompress);
 
-        // Update location text
-        updateLocationText(tvLocation);
+        // The saved location is filled in once loadStartupState() has read it
+        tvLocation.setText("Location: Loading...");
 
-        btnTakePhoto.setOnClickListener(v -> {
+        btnTakePhoto.setOnClickListener(v -> whenStartupStateLoaded(() -> {
             if (!checkCameraPermission()) {
                 requestCameraPermission();
             } else if (saveFolderUri == null) {
@@ -79,9 +182,28 @@ public class MainActivity extends AppCompatActivity {
             } else {
                 openCamera();
             }
+        }));
+
+        updateBurstButton(btnBurstMode);
+        btnBurstMode.setOnClickListener(v -> {
+            burstMode = !burstMode;
+            updateBurstButton(btnBurstMode);
         });
 
-        btnViewGallery.setOnClickListener(v -> {
+        // Cycles Off -> JPEG -> WebP; burst captures are always saved as taken to keep the writer fast
+        updateCompressButton(btnCompress);
+        btnCompress.setOnClickListener(v -> {
+            if (transcodeConfig == null) {
+                transcodeConfig = COMPRESS_JPEG;
+            } else if (transcodeConfig == COMPRESS_JPEG) {
+                transcodeConfig = COMPRESS_WEBP;
+            } else {
+                transcodeConfig = null;
+            }
+            updateCompressButton(btnCompress);
+        });
+
+        btnViewGallery.setOnClickListener(v -> whenStartupStateLoaded(() -> {
             if (!checkStoragePermission()) {
                 requestStoragePermission();
             } else if (saveFolderUri == null) {
@@ -89,7 +211,7 @@ public class MainActivity extends AppCompatActivity {
             } else {
                 openGallery();
             }
-        });
+        }));
 
         btnChangeFolder.setOnClickListener(v -> {
             if (!checkStoragePermission()) {
@@ -100,6 +222,20 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
+    private void updateBurstButton(Button button) {
+        button.setText(burstMode ? "Burst Mode: On" : "Burst Mode: Off");
+    }
+
+    private void updateCompressButton(Button button) {
+        if (transcodeConfig == COMPRESS_JPEG) {
+            button.setText("Compress: JPEG " + COMPRESS_MAX_DIMENSION + "px");
+        } else if (transcodeConfig == COMPRESS_WEBP) {
+            button.setText("Compress: WebP " + COMPRESS_MAX_DIMENSION + "px");
+        } else {
+            button.setText("Compress: Off");
+        }
+    }
+
     private void updateLocationText(TextView textView) {
         runOnUiThread(() -> {
             if (saveFolderUri != null) {
@@ -122,9 +258,10 @@ public class MainActivity extends AppCompatActivity {
                 REQUEST_CAMERA);
     }
 
+    // The folder is reached through its SAF tree grant; from Android 11 that is all it takes
     private boolean checkStoragePermission() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
-            return Environment.isExternalStorageManager();
+            return true;
         } else {
             return ContextCompat.checkSelfPermission(this,
                     Manifest.permission.WRITE_EXTERNAL_STORAGE)
@@ -133,17 +270,7 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void requestStoragePermission() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
-            try {
-                Intent intent = new Intent(Settings.ACTION_MANAGE_APP_ALL_FILES_ACCESS_PERMISSION);
-                intent.setData(Uri.parse("package:" + getPackageName()));
-                startActivityForResult(intent, REQUEST_MANAGE_STORAGE);
-            } catch (Exception e) {
-                Intent intent = new Intent();
-                intent.setAction(Settings.ACTION_MANAGE_ALL_FILES_ACCESS_PERMISSION);
-                startActivity(intent);
-            }
-        } else {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R) {
             ActivityCompat.requestPermissions(this,
                     new String[]{
                             Manifest.permission.READ_EXTERNAL_STORAGE,
@@ -229,6 +356,8 @@ public class MainActivity extends AppCompatActivity {
         try {
             Intent intent = new Intent(this, GalleryActivity.class);
             intent.putExtra("folder_uri", saveFolderUri.toString());
+            intent.putExtra(GalleryActivity.EXTRA_REQUESTED_AT, SystemClock.uptimeMillis());
+            GalleryActivity.beginTimeToGalleryTrace();
             startActivity(intent);
         } catch (Exception e) {
             Log.e(TAG, "Gallery error: " + e.getMessage());
@@ -240,15 +369,15 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
-        if (resultCode != RESULT_OK) return;
+        if (resultCode != RESULT_OK) {
+            if (requestCode == REQUEST_CAPTURE_IMAGE) {
+                // Backing out of the camera ends the current burst
+                burstWaitingForQueue = false;
+            }
+            return;
+        }
 
         switch (requestCode) {
-            case REQUEST_MANAGE_STORAGE:
-                if (Environment.isExternalStorageManager()) {
-                    Toast.makeText(this, "Storage access granted", Toast.LENGTH_SHORT).show();
-                }
-                break;
-
             case REQUEST_PICK_FOLDER:
                 if (data != null && data.getData() != null) {
                     saveFolderUri = data.getData();
@@ -258,68 +387,192 @@ public class MainActivity extends AppCompatActivity {
                                     Intent.FLAG_GRANT_WRITE_URI_PERMISSION);
 
                     // Save to preferences
-                    prefs.edit().putString(KEY_FOLDER_URI, saveFolderUri.toString()).apply();
+                    getSharedPreferences(PREFS_NAME, MODE_PRIVATE).edit()
+                            .putString(KEY_FOLDER_URI, saveFolderUri.toString()).apply();
                     updateLocationText(findViewById(R.id.tvSaveLocation));
+                    GalleryPrewarmer.prewarm(this, saveFolderUri.toString());
                 }
                 break;
 
             case REQUEST_CAPTURE_IMAGE:
                 if (currentPhotoPath != null) {
-                    saveImageToSelectedFolder();
+                    if (burstMode) {
+                        queueBurstCapture();
+                    } else {
+                        saveImageToSelectedFolder(new File(currentPhotoPath));
+                        currentPhotoPath = null;
+                    }
                 }
                 break;
         }
     }
 
-    // New method to save captured image to selected folder
-    private void saveImageToSelectedFolder() {
+    // ========== Burst Capture ==========
+    private void queueBurstCapture() {
         if (saveFolderUri == null) {
             Toast.makeText(this, "No folder selected to save images", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        try {
-            File sourceFile = new File(currentPhotoPath);
-            String fileName = sourceFile.getName();
+        // Never blocks: the writer thread does the SAF copy
+        burstQueue.enqueue(new File(currentPhotoPath), saveFolderUri);
+        currentPhotoPath = null;
+        updateBurstStatus();
 
-            DocumentFile pickedDir = DocumentFile.fromTreeUri(this, saveFolderUri);
-            if (pickedDir == null) {
-                Toast.makeText(this, "Cannot access selected folder", Toast.LENGTH_SHORT).show();
-                return;
-            }
+        if (burstQueue.hasCapacity()) {
+            openCamera();
+        } else {
+            // Storage is behind; take the next shot once the writer frees a slot
+            burstWaitingForQueue = true;
+        }
+    }
 
-            // Create a new file in the selected directory
-            DocumentFile newFile = pickedDir.createFile("image/jpeg", fileName);
-            if (newFile == null) {
-                Toast.makeText(this, "Failed to create file in the selected folder", Toast.LENGTH_SHORT).show();
-                return;
-            }
+    private void onBurstSaveFinished() {
+        updateBurstStatus();
+        if (burstWaitingForQueue && burstQueue.hasCapacity()) {
+            burstWaitingForQueue = false;
+            openCamera();
+        }
+    }
 
-            // Copy file content
-            try (InputStream in = new FileInputStream(sourceFile);
-                 OutputStream out = getContentResolver().openOutputStream(newFile.getUri())) {
+    private void updateBurstStatus() {
+        TextView tvStatus = findViewById(R.id.tvSaveStatus);
+        tvStatus.setVisibility(View.VISIBLE);
+        tvStatus.setText("Burst: " + burstQueue.getSavedCount() + " saved, "
+                + burstQueue.getDepth() + " queued, "
+                + burstQueue.getDroppedCount() + " dropped, "
+                + burstQueue.getLastLatencyMillis() + " ms last save"
+                + (burstWaitingForQueue ? " (waiting for storage)" : ""));
+    }
 
-                if (out == null) {
-                    Toast.makeText(this, "Failed to open output stream", Toast.LENGTH_SHORT).show();
-                    return;
+    // New method to save captured image to selected folder
+    private void saveImageToSelectedFolder(File sourceFile) {
+        if (saveFolderUri == null) {
+            Toast.makeText(this, "No folder selected to save images", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        Uri folderUri = saveFolderUri;
+        PhotoTranscoder.Config config = transcodeConfig;
+        TextView tvStatus = findViewById(R.id.tvSaveStatus);
+        tvStatus.setText(config != null ? "Compressing photo..." : "Saving photo...");
+        tvStatus.setVisibility(View.VISIBLE);
+
+        Future<?> save;
+        if (config == null) {
+            // The copy runs on the shared background pool so large captures don't block the UI
+            save = GalleryScheduler.getInstance().execute(
+                    () -> copyToFolder(sourceFile, null, null, folderUri, tvStatus));
+        } else {
+            // The encode runs on the transcoder's per-core pool; the copy is queued on the shared
+            // pool once it is done, so neither pool has a thread waiting on the other
+            PhotoTranscoder transcoder = PhotoTranscoder.getInstance(this);
+            save = transcoder.submit(sourceFile, config, new PhotoTranscoder.Listener() {
+                @Override
+                public void onTranscoded(PhotoTranscoder.Result transcoded) {
+                    transcoder.logStats();
+                    Future<?> copy = GalleryScheduler.getInstance().execute(
+                            () -> copyToFolder(sourceFile, config, transcoded, folderUri, tvStatus));
+                    if (copy.isCancelled()) {
+                        deleteTranscoded(transcoded);
+                        runOnUiThread(() -> showTooBusyToSave(tvStatus, sourceFile));
+                    }
                 }
 
-                byte[] buffer = new byte[1024];
-                int length;
-                while ((length = in.read(buffer)) > 0) {
-                    out.write(buffer, 0, length);
+                @Override
+                public void onTranscodeFailed(IOException e) {
+                    Log.e(TAG, "Error compressing photo: " + e.getMessage(), e);
+                    runOnUiThread(() -> showSaveFailed(tvStatus));
                 }
+            });
+        }
+        if (save.isCancelled()) {
+            showTooBusyToSave(tvStatus, sourceFile);
+        }
+    }
 
-                Toast.makeText(this, "Photo saved to selected folder", Toast.LENGTH_SHORT).show();
+    // Copies the capture, or its re-encoded version when there is one, into the folder
+    private void copyToFolder(File sourceFile, PhotoTranscoder.Config config, PhotoTranscoder.Result transcoded,
+                              Uri folderUri, TextView tvStatus) {
+        try {
+            File saveFile = sourceFile;
+            String fileName = sourceFile.getName();
+            String mimeType = "image/jpeg";
+            if (transcoded != null && transcoded.transcoded) {
+                saveFile = transcoded.file;
+                fileName = config.fileNameFor(fileName);
+                mimeType = config.format.mimeType;
+            }
 
-                // Delete the temporary file
-                if (!sourceFile.delete()) {
-                    Log.w(TAG, "Failed to delete temporary file");
-                }
+            int[] lastPercent = {-1};
+            PhotoSaver.Result result = photoSaver.save(saveFile, folderUri, fileName, mimeType,
+                    (written, total) -> {
+                        int percent = total > 0 ? (int) (written * 100 / total) : 0;
+                        // Only post when the visible number actually changes
+                        if (percent != lastPercent[0]) {
+                            lastPercent[0] = percent;
+                            runOnUiThread(() -> tvStatus.setText("Saving photo... " + percent + "%"));
+                        }
+                    });
+
+            // Delete the temporary file
+            if (!sourceFile.delete()) {
+                Log.w(TAG, "Failed to delete temporary file");
             }
+
+            String throughput = String.format(Locale.US, "%.1f MB/s", result.getMegabytesPerSecond());
+            String compression = transcoded == null ? "" : transcoded.transcoded
+                    ? String.format(Locale.US, ", %d%% of original (%d KB), encoded in %d ms at %.1f MP/s",
+                    Math.round(transcoded.getSizeRatio() * 100), transcoded.outputBytes / 1024,
+                    transcoded.millis, transcoded.getMegapixelsPerSecond())
+                    : ", original kept (re-encode was larger)";
+            runOnUiThread(() -> {
+                if (result.duplicate) {
+                    tvStatus.setText("Last save: skipped, identical photo already in folder");
+                    Toast.makeText(this, "Identical photo already in folder", Toast.LENGTH_SHORT).show();
+                } else {
+                    tvStatus.setText("Last save: " + throughput + compression);
+                    Toast.makeText(this, "Photo saved to selected folder", Toast.LENGTH_SHORT).show();
+                }
+            });
         } catch (Exception e) {
             Log.e(TAG, "Error saving image to selected folder: " + e.getMessage(), e);
-            Toast.makeText(this, "Failed to save photo to selected folder", Toast.LENGTH_SHORT).show();
+            runOnUiThread(() -> showSaveFailed(tvStatus));
+        } finally {
+            deleteTranscoded(transcoded);
+        }
+    }
+
+    private void deleteTranscoded(PhotoTranscoder.Result transcoded) {
+        if (transcoded != null && transcoded.transcoded && !transcoded.file.delete()) {
+            Log.w(TAG, "Failed to delete compressed temporary file");
+        }
+    }
+
+    private void showSaveFailed(TextView tvStatus) {
+        tvStatus.setVisibility(View.GONE);
+        Toast.makeText(this, "Failed to save photo to selected folder", Toast.LENGTH_SHORT).show();
+    }
+
+    // A queue was full, so nothing was written; the capture is saved again or thrown away
+    private void showTooBusyToSave(TextView tvStatus, File sourceFile) {
+        tvStatus.setVisibility(View.GONE);
+        if (isFinishing() || isDestroyed()) {
+            discardCapture(sourceFile);
+            return;
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Photo not saved")
+                .setMessage("Too busy to save the photo right now.")
+                .setCancelable(false)
+                .setPositiveButton("Retry", (d, w) -> saveImageToSelectedFolder(sourceFile))
+                .setNegativeButton("Discard", (d, w) -> discardCapture(sourceFile))
+                .show();
+    }
+
+    private void discardCapture(File sourceFile) {
+        if (!sourceFile.delete()) {
+            Log.w(TAG, "Failed to delete temporary file");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,264 @@
+package com.example.cameragallery;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.documentfile.provider.DocumentFile;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/**
+ * Copies a captured temp file into the selected SAF folder.
+ * When the provider hands out a real file descriptor the bytes go through
+ * {@link FileChannel#transferTo}, so they never pass through a Java buffer;
+ * otherwise it falls back to a stream copy through a large buffer.
+ * Deduplication is opt-in. With it on, the source's SHA-256 is computed from a memory mapping
+ * before anything is created; if the folder already holds a photo the app saved with the same
+ * hash, that one is returned and nothing is written, so a retried save costs one read of the
+ * capture instead of a full copy plus a create and delete in the folder.
+ * A saved photo goes straight into the gallery index and to any open gallery via
+ * {@link FolderWatcher#endLocalWrite}, so the folder notification it causes doesn't trigger a rescan.
+ * Must be called off the main thread.
+ */
+public class PhotoSaver {
+    private static final String TAG = "PhotoSaver";
+    public static final int BUFFER_SIZE = 64 * 1024;
+    // transferTo copies and mapped hashing are done in chunks so progress can be reported along the way
+    private static final long TRANSFER_CHUNK = 1024 * 1024;
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    public interface ProgressListener {
+        /** Called on the saving thread as bytes are written. */
+        void onProgress(long bytesWritten, long totalBytes);
+    }
+
+    /** Outcome of a single save. */
+    public static class Result {
+        public final Uri uri;
+        public final long bytes;
+        public final long millis;
+        public final boolean usedChannel;
+        // True if an identical photo was already in the folder; uri then points at that one and nothing was written
+        public final boolean duplicate;
+
+        Result(Uri uri, long bytes, long millis, boolean usedChannel, boolean duplicate) {
+            this.uri = uri;
+            this.bytes = bytes;
+            this.millis = millis;
+            this.usedChannel = usedChannel;
+            this.duplicate = duplicate;
+        }
+
+        public double getMegabytesPerSecond() {
+            return millis == 0 ? 0 : (bytes / (1024.0 * 1024.0)) / (millis / 1000.0);
+        }
+    }
+
+    private final Context context;
+    private final ContentResolver resolver;
+    private final boolean deduplicate;
+
+    public PhotoSaver(Context context) {
+        this(context, false);
+    }
+
+    public PhotoSaver(Context context, boolean deduplicate) {
+        this.context = context.getApplicationContext();
+        this.resolver = this.context.getContentResolver();
+        this.deduplicate = deduplicate;
+    }
+
+    /**
+     * Creates {@code fileName} in the tree folder and copies {@code source} into it.
+     *
+     * @throws IOException if the folder or the new document can't be written
+     */
+    public Result save(File source, Uri folderUri, String fileName, ProgressListener listener) throws IOException {
+        return save(source, folderUri, fileName, "image/jpeg", listener);
+    }
+
+    /** As {@link #save(File, Uri, String, ProgressListener)}, for a file of the given MIME type. */
+    public Result save(File source, Uri folderUri, String fileName, String mimeType,
+                       ProgressListener listener) throws IOException {
+        // An open gallery takes the new image from here instead of rescanning on the notification
+        FolderWatcher.beginLocalWrite(folderUri);
+        ImageItem saved = null;
+        try {
+            Result result = saveInFolder(source, folderUri, fileName, mimeType, listener);
+            if (!result.duplicate) {
+                saved = indexSaved(folderUri, result);
+            }
+            return result;
+        } finally {
+            FolderWatcher.endLocalWrite(folderUri, saved);
+        }
+    }
+
+    private Result saveInFolder(File source, Uri folderUri, String fileName, String mimeType,
+                                ProgressListener listener) throws IOException {
+        long start = SystemClock.elapsedRealtime();
+        long total = source.length();
+        String folder = folderUri.toString();
+        GalleryIndexStore store = deduplicate ? GalleryIndexStore.getInstance(context) : null;
+        String hash = null;
+        if (deduplicate) {
+            hash = hash(source);
+            Uri existing = findExisting(store.findContentHash(folder, hash), total);
+            if (existing != null) {
+                // Same bytes are already there, e.g. a retried save; keep the original instead
+                Result result = new Result(existing, total, SystemClock.elapsedRealtime() - start, false, true);
+                Log.d(TAG, "Skipped duplicate " + fileName + ": already saved as " + existing
+                        + " (hashed in " + result.millis + " ms)");
+                return result;
+            }
+        }
+
+        DocumentFile pickedDir = DocumentFile.fromTreeUri(context, folderUri);
+        if (pickedDir == null) {
+            throw new IOException("Cannot access selected folder");
+        }
+
+        DocumentFile newFile = pickedDir.createFile(mimeType, fileName);
+        if (newFile == null) {
+            throw new IOException("Failed to create file in the selected folder");
+        }
+
+        boolean usedChannel = true;
+        long written;
+
+        ParcelFileDescriptor pfd = openFileDescriptor(newFile.getUri());
+        if (pfd != null) {
+            try (ParcelFileDescriptor descriptor = pfd;
+                 FileInputStream in = new FileInputStream(source);
+                 FileOutputStream out = new FileOutputStream(descriptor.getFileDescriptor())) {
+                written = transfer(in.getChannel(), out.getChannel(), total, listener);
+            }
+        } else {
+            usedChannel = false;
+            try (InputStream in = new FileInputStream(source);
+                 OutputStream out = resolver.openOutputStream(newFile.getUri())) {
+                if (out == null) {
+                    throw new IOException("Failed to open output stream");
+                }
+                written = copy(in, out, new byte[BUFFER_SIZE], total, listener);
+            }
+        }
+
+        Uri savedUri = newFile.getUri();
+        if (hash != null) {
+            store.putContentHash(folder, hash, savedUri.toString(), written);
+        }
+
+        Result result = new Result(savedUri, written, SystemClock.elapsedRealtime() - start, usedChannel, false);
+        Log.d(TAG, "Saved " + fileName + ": " + written + " bytes in "
+                + result.millis + " ms (" + String.format(Locale.US, "%.1f", result.getMegabytesPerSecond())
+                + " MB/s, " + (usedChannel ? "channel" : "stream") + (hash != null ? ", hashed" : "") + ")");
+        return result;
+    }
+
+    // Adds a fresh save to the gallery index, so the next gallery open shows it without a scan
+    private ImageItem indexSaved(Uri folderUri, Result result) {
+        DocumentFile file = DocumentFile.fromSingleUri(context, result.uri);
+        if (file == null) {
+            return null;
+        }
+        ImageItem item = new ImageItem(result.uri.toString(), file.getName(), result.uri.getPath(),
+                result.bytes, file.lastModified());
+        GalleryIndexStore.getInstance(context).put(folderUri.toString(), item);
+        return item;
+    }
+
+    // An indexed photo only counts if it is still there with the same length
+    private Uri findExisting(String indexedUri, long length) {
+        if (indexedUri == null) {
+            return null;
+        }
+        Uri uri = Uri.parse(indexedUri);
+        DocumentFile existing = DocumentFile.fromSingleUri(context, uri);
+        return existing != null && existing.exists() && existing.length() == length ? uri : null;
+    }
+
+    /** SHA-256 of the whole file as hex, digested straight from a mapping a chunk at a time. */
+    static String hash(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        try (FileInputStream in = new FileInputStream(file)) {
+            FileChannel channel = in.getChannel();
+            long total = channel.size();
+            for (long position = 0; position < total; position += TRANSFER_CHUNK) {
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(TRANSFER_CHUNK, total - position)));
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(HASH_ALGORITHM + " not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private ParcelFileDescriptor openFileDescriptor(Uri uri) {
+        try {
+            return resolver.openFileDescriptor(uri, "w");
+        } catch (FileNotFoundException | UnsupportedOperationException | SecurityException e) {
+            Log.d(TAG, "Provider has no file descriptor for " + uri + ", using streams");
+            return null;
+        }
+    }
+
+    /** Copies the whole source channel with transferTo, reporting progress per chunk. */
+    static long transfer(FileChannel in, FileChannel out, long total, ProgressListener listener) throws IOException {
+        long position = 0;
+        while (position < total) {
+            long transferred = in.transferTo(position, Math.min(TRANSFER_CHUNK, total - position), out);
+            if (transferred <= 0) {
+                break;
+            }
+            position += transferred;
+            if (listener != null) {
+                listener.onProgress(position, total);
+            }
+        }
+        return position;
+    }
+
+    /** Copies a stream through the given buffer, reporting progress per buffer. */
+    static long copy(InputStream in, OutputStream out, byte[] buffer, long total,
+                     ProgressListener listener) throws IOException {
+        long written = 0;
+        int length;
+        while ((length = in.read(buffer)) > 0) {
+            out.write(buffer, 0, length);
+            written += length;
+            if (listener != null) {
+                listener.onProgress(written, total);
+            }
+        }
+        return written;
+    }
+}
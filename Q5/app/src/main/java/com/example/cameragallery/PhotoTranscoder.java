@@ -0,0 +1,400 @@
+package com.example.cameragallery;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.exifinterface.media.ExifInterface;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Optional save stage that re-encodes a capture before it is copied into the folder.
+ * The image is decoded with the largest power-of-two subsample that still covers the target
+ * size, scaled down to {@link Config#maxDimension} on the long side and compressed as JPEG or
+ * WebP. The camera's EXIF tags are copied across, orientation included, since the pixels are
+ * not rotated. Encodes run on a pool with one thread per core; a full-size decode is tens of
+ * megabytes, so the queue is small and an encode that overruns it is dropped rather than run
+ * on the caller, which is usually the UI thread. Callers get the result through a
+ * {@link Listener} on the encoding thread, so no pool thread ever waits for an encode.
+ */
+public class PhotoTranscoder {
+    private static final String TAG = "PhotoTranscoder";
+    private static final int POOL_SIZE = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static final int QUEUE_CAPACITY = POOL_SIZE;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Camera and capture tags worth keeping; size tags are rewritten and the old thumbnail is dropped
+    private static final String[] EXIF_TAGS = {
+            ExifInterface.TAG_MAKE,
+            ExifInterface.TAG_MODEL,
+            ExifInterface.TAG_SOFTWARE,
+            ExifInterface.TAG_ORIENTATION,
+            ExifInterface.TAG_DATETIME,
+            ExifInterface.TAG_DATETIME_ORIGINAL,
+            ExifInterface.TAG_DATETIME_DIGITIZED,
+            ExifInterface.TAG_OFFSET_TIME,
+            ExifInterface.TAG_OFFSET_TIME_ORIGINAL,
+            ExifInterface.TAG_OFFSET_TIME_DIGITIZED,
+            ExifInterface.TAG_SUBSEC_TIME,
+            ExifInterface.TAG_SUBSEC_TIME_ORIGINAL,
+            ExifInterface.TAG_SUBSEC_TIME_DIGITIZED,
+            ExifInterface.TAG_EXPOSURE_TIME,
+            ExifInterface.TAG_F_NUMBER,
+            ExifInterface.TAG_APERTURE_VALUE,
+            ExifInterface.TAG_PHOTOGRAPHIC_SENSITIVITY,
+            ExifInterface.TAG_EXPOSURE_BIAS_VALUE,
+            ExifInterface.TAG_EXPOSURE_PROGRAM,
+            ExifInterface.TAG_EXPOSURE_MODE,
+            ExifInterface.TAG_METERING_MODE,
+            ExifInterface.TAG_FLASH,
+            ExifInterface.TAG_FOCAL_LENGTH,
+            ExifInterface.TAG_FOCAL_LENGTH_IN_35MM_FILM,
+            ExifInterface.TAG_WHITE_BALANCE,
+            ExifInterface.TAG_LENS_MAKE,
+            ExifInterface.TAG_LENS_MODEL,
+            ExifInterface.TAG_GPS_LATITUDE,
+            ExifInterface.TAG_GPS_LATITUDE_REF,
+            ExifInterface.TAG_GPS_LONGITUDE,
+            ExifInterface.TAG_GPS_LONGITUDE_REF,
+            ExifInterface.TAG_GPS_ALTITUDE,
+            ExifInterface.TAG_GPS_ALTITUDE_REF,
+            ExifInterface.TAG_GPS_TIMESTAMP,
+            ExifInterface.TAG_GPS_DATESTAMP,
+            ExifInterface.TAG_GPS_PROCESSING_METHOD,
+    };
+
+    private static PhotoTranscoder instance;
+
+    /** Told on the encoding thread how a {@link #submit(File, Config, Listener)} turned out. */
+    public interface Listener {
+        void onTranscoded(Result result);
+
+        void onTranscodeFailed(IOException e);
+    }
+
+    public enum Format {
+        JPEG("image/jpeg", ".jpg"),
+        WEBP("image/webp", ".webp");
+
+        public final String mimeType;
+        public final String extension;
+
+        Format(String mimeType, String extension) {
+            this.mimeType = mimeType;
+            this.extension = extension;
+        }
+
+        @SuppressWarnings("deprecation")
+        Bitmap.CompressFormat compressFormat() {
+            if (this == JPEG) return Bitmap.CompressFormat.JPEG;
+            return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                    ? Bitmap.CompressFormat.WEBP_LOSSY
+                    : Bitmap.CompressFormat.WEBP;
+        }
+    }
+
+    /** What to encode to: the long side is capped at {@code maxDimension}, quality is 0-100. */
+    public static class Config {
+        public final int maxDimension;
+        public final int quality;
+        public final Format format;
+
+        public Config(int maxDimension, int quality, Format format) {
+            if (maxDimension <= 0 || quality < 0 || quality > 100) {
+                throw new IllegalArgumentException("Invalid transcode config: " + maxDimension + "px, q" + quality);
+            }
+            this.maxDimension = maxDimension;
+            this.quality = quality;
+            this.format = format;
+        }
+
+        /** The file name to save under, with the extension of the output format. */
+        public String fileNameFor(String name) {
+            int dot = name.lastIndexOf('.');
+            return (dot > 0 ? name.substring(0, dot) : name) + format.extension;
+        }
+    }
+
+    /** Outcome of one re-encode. */
+    public static class Result {
+        // The re-encoded temp file, or the source itself when re-encoding would not have shrunk it
+        public final File file;
+        public final boolean transcoded;
+        public final long inputBytes;
+        public final long outputBytes;
+        public final int width;
+        public final int height;
+        public final long millis;
+
+        Result(File file, boolean transcoded, long inputBytes, long outputBytes, int width, int height, long millis) {
+            this.file = file;
+            this.transcoded = transcoded;
+            this.inputBytes = inputBytes;
+            this.outputBytes = outputBytes;
+            this.width = width;
+            this.height = height;
+            this.millis = millis;
+        }
+
+        /** Output size as a fraction of the input size. */
+        public double getSizeRatio() {
+            return inputBytes == 0 ? 1 : (double) outputBytes / inputBytes;
+        }
+
+        /** Output megapixels encoded per second by the one thread that ran this encode. */
+        public double getMegapixelsPerSecond() {
+            return millis == 0 ? 0 : (width * (double) height / 1_000_000) / (millis / 1000.0);
+        }
+    }
+
+    private final File outputDir;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicInteger encoded = new AtomicInteger();
+    private final AtomicLong totalInputBytes = new AtomicLong();
+    private final AtomicLong totalOutputBytes = new AtomicLong();
+    private final AtomicLong totalPixels = new AtomicLong();
+    private final AtomicLong totalBusyMillis = new AtomicLong();
+    // Wall-clock time with at least one encode running, to tell how much the workers overlapped
+    private final Object activeLock = new Object();
+    private int running;
+    private int peakRunning;
+    private long activeSince;
+    private long activeMillis;
+
+    public static synchronized PhotoTranscoder getInstance(Context context) {
+        if (instance == null) {
+            instance = new PhotoTranscoder(context.getApplicationContext().getCacheDir());
+        }
+        return instance;
+    }
+
+    private PhotoTranscoder(File outputDir) {
+        this.outputDir = outputDir;
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "transcode-" + threadCount.incrementAndGet());
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        };
+        executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues a re-encode of {@code source}; the source file is left alone.
+     *
+     * @return the encode's Future, already cancelled if the queue was full and it was dropped
+     */
+    public Future<Result> submit(File source, Config config) {
+        FutureTask<Result> task = new FutureTask<>(() -> encode(source, config));
+        execute(task);
+        return task;
+    }
+
+    /**
+     * Queues a re-encode of {@code source} and hands the outcome to {@code listener} on the
+     * encoding thread, so the next save stage can be queued from there.
+     *
+     * @return the encode's Future, already cancelled if the queue was full and it was dropped;
+     * the listener is not called in that case
+     */
+    public Future<?> submit(File source, Config config, Listener listener) {
+        FutureTask<?> task = new FutureTask<>(() -> {
+            Result result;
+            try {
+                result = encode(source, config);
+            } catch (IOException e) {
+                listener.onTranscodeFailed(e);
+                return;
+            } catch (RuntimeException e) {
+                listener.onTranscodeFailed(new IOException("Transcode failed: " + e, e));
+                return;
+            }
+            listener.onTranscoded(result);
+        }, null);
+        execute(task);
+        return task;
+    }
+
+    private void execute(FutureTask<?> task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Queue full, dropping encode");
+            task.cancel(false);
+        }
+    }
+
+    private Result encode(File source, Config config) throws IOException {
+        encodeStarted();
+        try {
+            return encodeFile(source, config);
+        } finally {
+            encodeFinished();
+        }
+    }
+
+    private Result encodeFile(File source, Config config) throws IOException {
+        long start = SystemClock.elapsedRealtime();
+        long inputBytes = source.length();
+
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(source.getAbsolutePath(), bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Not a decodable image: " + source.getName());
+        }
+        int longSide = Math.max(bounds.outWidth, bounds.outHeight);
+        boolean resize = longSide > config.maxDimension;
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        while (longSide / (options.inSampleSize * 2) >= config.maxDimension) {
+            options.inSampleSize *= 2;
+        }
+        Bitmap bitmap = BitmapFactory.decodeFile(source.getAbsolutePath(), options);
+        if (bitmap == null) {
+            throw new IOException("Decode failed: " + source.getName());
+        }
+        bitmap = scaleToFit(bitmap, config.maxDimension);
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+
+        File output = File.createTempFile("transcode_", config.format.extension, outputDir);
+        try {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(output), BUFFER_SIZE)) {
+                if (!bitmap.compress(config.format.compressFormat(), config.quality, out)) {
+                    throw new IOException("Encoder rejected " + config.format);
+                }
+            } finally {
+                bitmap.recycle();
+            }
+            copyExif(source, output, width, height);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(output);
+            throw e;
+        }
+
+        long outputBytes = output.length();
+        long millis = SystemClock.elapsedRealtime() - start;
+        Result result;
+        if (!resize && config.format == Format.JPEG && outputBytes >= inputBytes) {
+            // Nothing to shrink and the re-encode came out bigger, so save the original bytes
+            deleteQuietly(output);
+            result = new Result(source, false, inputBytes, inputBytes, bounds.outWidth, bounds.outHeight, millis);
+        } else {
+            result = new Result(output, true, inputBytes, outputBytes, width, height, millis);
+        }
+
+        encoded.incrementAndGet();
+        totalInputBytes.addAndGet(inputBytes);
+        totalOutputBytes.addAndGet(result.outputBytes);
+        totalPixels.addAndGet((long) width * height);
+        totalBusyMillis.addAndGet(millis);
+        Log.d(TAG, source.getName() + ": " + bounds.outWidth + "x" + bounds.outHeight + " -> " + width + "x" + height
+                + " " + config.format + " q" + config.quality + ", " + inputBytes + " -> " + result.outputBytes
+                + " bytes (" + String.format(Locale.US, "%.0f%%", result.getSizeRatio() * 100) + ") in " + millis
+                + " ms, " + String.format(Locale.US, "%.1f", result.getMegapixelsPerSecond()) + " MP/s"
+                + (result.transcoded ? "" : ", kept original"));
+        return result;
+    }
+
+    private static Bitmap scaleToFit(Bitmap bitmap, int maxDimension) {
+        int longSide = Math.max(bitmap.getWidth(), bitmap.getHeight());
+        if (longSide <= maxDimension) {
+            return bitmap;
+        }
+        float scale = (float) maxDimension / longSide;
+        Bitmap scaled = Bitmap.createScaledBitmap(bitmap,
+                Math.max(1, Math.round(bitmap.getWidth() * scale)),
+                Math.max(1, Math.round(bitmap.getHeight() * scale)), true);
+        if (scaled != bitmap) {
+            bitmap.recycle();
+        }
+        return scaled;
+    }
+
+    private static void copyExif(File source, File output, int width, int height) throws IOException {
+        ExifInterface from = new ExifInterface(source.getAbsolutePath());
+        ExifInterface to = new ExifInterface(output.getAbsolutePath());
+        boolean any = false;
+        for (String tag : EXIF_TAGS) {
+            String value = from.getAttribute(tag);
+            if (value != null) {
+                to.setAttribute(tag, value);
+                any = true;
+            }
+        }
+        if (!any) {
+            return;
+        }
+        to.setAttribute(ExifInterface.TAG_PIXEL_X_DIMENSION, String.valueOf(width));
+        to.setAttribute(ExifInterface.TAG_PIXEL_Y_DIMENSION, String.valueOf(height));
+        to.saveAttributes();
+    }
+
+    private static void deleteQuietly(File file) {
+        if (!file.delete()) {
+            Log.w(TAG, "Failed to delete " + file.getName());
+        }
+    }
+
+    private void encodeStarted() {
+        synchronized (activeLock) {
+            if (running++ == 0) {
+                activeSince = SystemClock.elapsedRealtime();
+            }
+            peakRunning = Math.max(peakRunning, running);
+        }
+    }
+
+    private void encodeFinished() {
+        synchronized (activeLock) {
+            if (--running == 0) {
+                activeMillis += SystemClock.elapsedRealtime() - activeSince;
+            }
+        }
+    }
+
+    /**
+     * Logs totals so far. Throughput per worker comes from the summed busy time of the encodes;
+     * overall throughput from the wall-clock time any encode was running, so the two only differ
+     * when encodes actually ran side by side.
+     */
+    public void logStats() {
+        long busy = totalBusyMillis.get();
+        long input = totalInputBytes.get();
+        long active;
+        int peak;
+        synchronized (activeLock) {
+            active = activeMillis + (running > 0 ? SystemClock.elapsedRealtime() - activeSince : 0);
+            peak = peakRunning;
+        }
+        double megapixels = totalPixels.get() / 1_000_000.0;
+        double perWorker = busy == 0 ? 0 : megapixels / (busy / 1000.0);
+        double overall = active == 0 ? 0 : megapixels / (active / 1000.0);
+        Log.d(TAG, "Transcoded " + encoded.get() + " photos, at most " + peak + " of " + POOL_SIZE
+                + " workers at once: " + input + " -> " + totalOutputBytes.get() + " bytes ("
+                + String.format(Locale.US, "%.0f%%", input == 0 ? 100.0 : totalOutputBytes.get() * 100.0 / input)
+                + "), " + String.format(Locale.US, "%.1f MP/s per worker, %.1f MP/s overall", perWorker, overall));
+    }
+}
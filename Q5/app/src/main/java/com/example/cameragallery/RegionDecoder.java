@@ -0,0 +1,212 @@
+package com.example.cameragallery;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Matrix;
+import android.graphics.Rect;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.exifinterface.media.ExifInterface;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Decodes the part of a large image around a point at full resolution, for the zoomed pager.
+ * Only the visible window is ever decoded, so zooming into a 12 MP photo costs a screen-sized
+ * bitmap instead of the whole image. One decoder is kept open for the image last zoomed, and
+ * decoded windows are recycled through a small bounded pool of bitmaps.
+ * The pool has a lock of its own, so the UI thread can release a window while a decode runs.
+ */
+public class RegionDecoder {
+    private static final String TAG = "RegionDecoder";
+    private static final int POOL_SIZE = 3;
+
+    private final ContentResolver resolver;
+    private final Object poolLock = new Object();
+    private final ArrayDeque<Bitmap> pool = new ArrayDeque<>(POOL_SIZE);
+
+    private Uri openUri;
+    private BitmapRegionDecoder decoder;
+    private int rotation;
+
+    /** A decoded window and where it ended up after clamping to the image bounds. */
+    public static class Region {
+        public final Bitmap bitmap;
+        public final float centerX;
+        public final float centerY;
+        public final int imageWidth;
+        public final int imageHeight;
+
+        Region(Bitmap bitmap, float centerX, float centerY, int imageWidth, int imageHeight) {
+            this.bitmap = bitmap;
+            this.centerX = centerX;
+            this.centerY = centerY;
+            this.imageWidth = imageWidth;
+            this.imageHeight = imageHeight;
+        }
+    }
+
+    public RegionDecoder(ContentResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    /**
+     * Decodes a window of at most {@code width} x {@code height} pixels at 1:1 scale.
+     *
+     * @param centerX center of the window as a fraction of the upright image width
+     * @param centerY center of the window as a fraction of the upright image height
+     */
+    public synchronized Region decode(Uri uri, float centerX, float centerY, int width, int height) throws IOException {
+        open(uri);
+
+        int sourceWidth = decoder.getWidth();
+        int sourceHeight = decoder.getHeight();
+        boolean swapped = rotation == 90 || rotation == 270;
+        int imageWidth = swapped ? sourceHeight : sourceWidth;
+        int imageHeight = swapped ? sourceWidth : sourceHeight;
+
+        // Window in upright image coordinates, clamped so it never runs off an edge
+        int windowWidth = Math.min(width, imageWidth);
+        int windowHeight = Math.min(height, imageHeight);
+        int left = clamp(Math.round(centerX * imageWidth) - windowWidth / 2, 0, imageWidth - windowWidth);
+        int top = clamp(Math.round(centerY * imageHeight) - windowHeight / 2, 0, imageHeight - windowHeight);
+        int right = left + windowWidth;
+        int bottom = top + windowHeight;
+
+        Rect source;
+        switch (rotation) {
+            case 90:
+                source = new Rect(top, sourceHeight - right, bottom, sourceHeight - left);
+                break;
+            case 180:
+                source = new Rect(sourceWidth - right, sourceHeight - bottom, sourceWidth - left, sourceHeight - top);
+                break;
+            case 270:
+                source = new Rect(sourceWidth - bottom, left, sourceWidth - top, right);
+                break;
+            default:
+                source = new Rect(left, top, right, bottom);
+                break;
+        }
+
+        Bitmap bitmap = decodeRegion(source);
+        if (rotation != 0) {
+            Matrix matrix = new Matrix();
+            matrix.postRotate(rotation);
+            Bitmap upright = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+            release(bitmap);
+            bitmap = upright;
+        }
+
+        return new Region(bitmap,
+                (left + windowWidth / 2f) / imageWidth,
+                (top + windowHeight / 2f) / imageHeight,
+                imageWidth, imageHeight);
+    }
+
+    /** Hands a window bitmap back once it is no longer on screen. Never waits for a decode. */
+    public void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        if (!bitmap.isMutable()) {
+            bitmap.recycle();
+            return;
+        }
+        synchronized (poolLock) {
+            if (pool.size() == POOL_SIZE) {
+                pool.pollFirst().recycle();
+            }
+            pool.addLast(bitmap);
+        }
+    }
+
+    /** Closes the open decoder and drops every pooled bitmap. */
+    public synchronized void close() {
+        if (decoder != null) {
+            decoder.recycle();
+            decoder = null;
+        }
+        openUri = null;
+        synchronized (poolLock) {
+            for (Bitmap bitmap : pool) {
+                bitmap.recycle();
+            }
+            pool.clear();
+        }
+    }
+
+    private Bitmap decodeRegion(Rect source) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inMutable = true;
+        Bitmap reused = acquire(source.width(), source.height());
+        options.inBitmap = reused;
+        try {
+            return decoder.decodeRegion(source, options);
+        } catch (IllegalArgumentException e) {
+            // The pooled bitmap could not be reused for this region; decode into a fresh one
+            // and give the pooled one back, it may still fit another image's window
+            Log.w(TAG, "Pooled bitmap rejected: " + e.getMessage());
+            options.inBitmap = null;
+            release(reused);
+            return decoder.decodeRegion(source, options);
+        }
+    }
+
+    private Bitmap acquire(int width, int height) {
+        synchronized (poolLock) {
+            Iterator<Bitmap> iterator = pool.iterator();
+            while (iterator.hasNext()) {
+                Bitmap bitmap = iterator.next();
+                if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                    iterator.remove();
+                    return bitmap;
+                }
+            }
+            return null;
+        }
+    }
+
+    private void open(Uri uri) throws IOException {
+        if (decoder != null && uri.equals(openUri)) {
+            return;
+        }
+        if (decoder != null) {
+            decoder.recycle();
+            decoder = null;
+        }
+
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) {
+                throw new IOException("Cannot open " + uri);
+            }
+            rotation = new ExifInterface(in).getRotationDegrees();
+        }
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) {
+                throw new IOException("Cannot open " + uri);
+            }
+            decoder = newDecoder(in);
+        }
+        openUri = uri;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static BitmapRegionDecoder newDecoder(InputStream in) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            return BitmapRegionDecoder.newInstance(in);
+        }
+        return BitmapRegionDecoder.newInstance(in, false);
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.cameragallery;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.util.DisplayMetrics;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.signature.ObjectKey;
+
+/**
+ * Builds the Glide requests for gallery grid cells.
+ * All cells share one set of options that decode at the cell size instead of the full
+ * camera resolution, and cache only that downsampled result on disk. The disk cache key
+ * is the image URI plus its last-modified time, so edited files get fresh thumbnails.
+ * The EXIF-embedded thumbnail is requested alongside as a fast first frame.
+ */
+public class ThumbnailLoader {
+    public static final int SPAN_COUNT = 3;
+    // Matches the fixed height of item_image
+    private static final int CELL_HEIGHT_DP = 120;
+
+    private static ThumbnailLoader instance;
+
+    private final int cellWidth;
+    private final int cellHeight;
+    private final RequestOptions thumbnailOptions;
+    private final RequestOptions exifOptions;
+
+    public static synchronized ThumbnailLoader getInstance(Context context) {
+        if (instance == null) {
+            instance = new ThumbnailLoader(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ThumbnailLoader(Context context) {
+        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        cellWidth = Math.max(1, metrics.widthPixels / SPAN_COUNT);
+        cellHeight = Math.max(1, Math.round(CELL_HEIGHT_DP * metrics.density));
+
+        thumbnailOptions = new RequestOptions()
+                .override(cellWidth, cellHeight)
+                .centerCrop()
+                .format(DecodeFormat.PREFER_RGB_565)
+                .diskCacheStrategy(DiskCacheStrategy.RESOURCE)
+                .placeholder(R.drawable.ic_launcher_background);
+
+        // EXIF thumbnails are tiny and cheap to re-extract, so they skip the disk cache
+        exifOptions = new RequestOptions()
+                .override(cellWidth, cellHeight)
+                .centerCrop()
+                .format(DecodeFormat.PREFER_RGB_565)
+                .diskCacheStrategy(DiskCacheStrategy.NONE);
+
+        // Served as an already-oriented Bitmap, which Glide passes through without another decode
+        Glide.get(context).getRegistry().prepend(ExifThumbnailLoader.Model.class, Bitmap.class,
+                new ExifThumbnailLoader.Factory(context.getContentResolver(), ExifMetadataLoader.getInstance(context)));
+    }
+
+    public int getCellWidth() {
+        return cellWidth;
+    }
+
+    public int getCellHeight() {
+        return cellHeight;
+    }
+
+    /** Returns the grid-cell request for an image, ready to go {@code into()} a view. */
+    public RequestBuilder<Drawable> request(RequestManager glide, ImageItem item) {
+        Uri uri = Uri.parse(item.getUri());
+        ObjectKey signature = new ObjectKey(item.getDate());
+        return glide.load(uri)
+                .apply(thumbnailOptions)
+                .signature(signature)
+                .thumbnail(glide.load(new ExifThumbnailLoader.Model(uri, item.getDate()))
+                        .apply(exifOptions));
+    }
+}
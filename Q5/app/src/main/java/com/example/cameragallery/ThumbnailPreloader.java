@@ -0,0 +1,175 @@
+package com.example.cameragallery;
+
+import android.util.Log;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.request.target.Target;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Prefetches grid thumbnails for the rows just ahead of the viewport in the scroll direction.
+ * The number of rows scales with scroll speed, and preloads that fall outside the current
+ * window (the user turned around or flung past them) are cancelled.
+ * Also reports, per scroll session, in how many frames a visible cell was still showing its
+ * placeholder: every frame of the session is checked from a Choreographer callback.
+ */
+public class ThumbnailPreloader extends RecyclerView.OnScrollListener {
+    private static final String TAG = "ThumbnailPreloader";
+    private static final int MIN_ROWS = 2;
+    private static final int MAX_ROWS = 12;
+
+    private final RequestManager glide;
+    private final ThumbnailLoader thumbnailLoader;
+    private final ImageAdapter adapter;
+    private final int spanCount;
+
+    private final ArrayDeque<Slot> inFlight = new ArrayDeque<>();
+    private int windowStart = -1;
+    private int windowEnd = -1;
+
+    // Current scroll session: the list being watched, frames drawn, and frames with a placeholder
+    private RecyclerView sessionView;
+    private int sessionFrames;
+    private int placeholderFrames;
+    private int placeholderCells;
+    private final Choreographer.FrameCallback frameCounter = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (sessionView == null) {
+                return;
+            }
+            int showing = 0;
+            for (int i = 0; i < sessionView.getChildCount(); i++) {
+                RecyclerView.ViewHolder holder = sessionView.getChildViewHolder(sessionView.getChildAt(i));
+                if (ImageAdapter.isShowingPlaceholder(holder)) {
+                    showing++;
+                }
+            }
+            sessionFrames++;
+            if (showing > 0) {
+                placeholderFrames++;
+                placeholderCells += showing;
+            }
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    };
+
+    private static class Slot {
+        final int position;
+        final Target<?> target;
+
+        Slot(int position, Target<?> target) {
+            this.position = position;
+            this.target = target;
+        }
+    }
+
+    public ThumbnailPreloader(RequestManager glide, ThumbnailLoader thumbnailLoader,
+                              ImageAdapter adapter, int spanCount) {
+        this.glide = glide;
+        this.thumbnailLoader = thumbnailLoader;
+        this.adapter = adapter;
+        this.spanCount = spanCount;
+    }
+
+    @Override
+    public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        if (newState != RecyclerView.SCROLL_STATE_IDLE && sessionView == null) {
+            sessionView = recyclerView;
+            sessionFrames = 0;
+            placeholderFrames = 0;
+            placeholderCells = 0;
+            Choreographer.getInstance().postFrameCallback(frameCounter);
+        } else if (newState == RecyclerView.SCROLL_STATE_IDLE && sessionView != null) {
+            stopSession();
+            Log.d(TAG, "Scroll session: " + placeholderFrames + " of " + sessionFrames
+                    + " frames showed a placeholder (" + placeholderCells + " cell-frames)");
+        }
+    }
+
+    private void stopSession() {
+        Choreographer.getInstance().removeFrameCallback(frameCounter);
+        sessionView = null;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (dy == 0 || !(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+            return;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        // Faster scrolling covers more rows per frame, so look further ahead
+        int rowsPerFrame = Math.abs(dy) / Math.max(1, thumbnailLoader.getCellHeight());
+        int rows = Math.max(MIN_ROWS, Math.min(MAX_ROWS, MIN_ROWS + rowsPerFrame * 4));
+        int count = rows * spanCount;
+
+        int start;
+        int end;
+        if (dy > 0) {
+            start = last + 1;
+            end = last + count;
+        } else {
+            start = first - count;
+            end = first - 1;
+        }
+        preload(Math.max(0, start), Math.min(adapter.getItemCount() - 1, end));
+    }
+
+    private void preload(int start, int end) {
+        cancelOutside(start, end);
+
+        for (int position = start; position <= end; position++) {
+            if (position >= windowStart && position <= windowEnd) {
+                continue; // Already requested for the previous window
+            }
+            ImageItem item = adapter.getImageAt(position);
+            if (item == null) {
+                continue; // Section header or past the end
+            }
+            Target<?> target = thumbnailLoader.request(glide, item).preload();
+            inFlight.add(new Slot(position, target));
+        }
+        windowStart = start;
+        windowEnd = end;
+    }
+
+    private void cancelOutside(int start, int end) {
+        Iterator<Slot> iterator = inFlight.iterator();
+        while (iterator.hasNext()) {
+            Slot slot = iterator.next();
+            if (slot.position < start || slot.position > end) {
+                glide.clear(slot.target);
+                iterator.remove();
+            }
+        }
+    }
+
+    /** Cancels every outstanding preload, e.g. when the list is replaced. */
+    public void cancelAll() {
+        for (Slot slot : inFlight) {
+            glide.clear(slot.target);
+        }
+        inFlight.clear();
+        windowStart = -1;
+        windowEnd = -1;
+    }
+
+    /** Cancels every preload and stops watching frames; for when the grid goes away. */
+    public void release() {
+        cancelAll();
+        stopSession();
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.cameragallery;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams gallery images into a ZIP document, one file at a time through a single reused buffer,
+ * so memory stays flat however many images are exported.
+ * Formats that are already compressed (JPEG, PNG, GIF, WebP) go in as STORED entries, copied
+ * without passing through a deflater. A stored entry must declare its CRC and size before its
+ * bytes, so such a file is read twice, the second time normally from the page cache.
+ * Only BMPs and unknown types are deflated.
+ * Blocking; run it on a background thread and interrupt it to cancel.
+ */
+public class ZipExporter {
+    private static final String TAG = "ZipExporter";
+    public static final int BUFFER_SIZE = 256 * 1024;
+    // Progress is reported after every file and at least this often within a large one
+    private static final long PROGRESS_INTERVAL_BYTES = 4 * 1024 * 1024;
+
+    public interface Listener {
+        /** Called on the exporting thread as files and bytes are written. */
+        void onProgress(int filesDone, int fileCount, long bytesRead, long elapsedMillis);
+    }
+
+    /** Outcome of one export. */
+    public static class Result {
+        public final int exported;
+        public final int failed;
+        public final long bytes;
+        public final long millis;
+
+        Result(int exported, int failed, long bytes, long millis) {
+            this.exported = exported;
+            this.failed = failed;
+            this.bytes = bytes;
+            this.millis = millis;
+        }
+
+        public double getMegabytesPerSecond() {
+            return megabytesPerSecond(bytes, millis);
+        }
+    }
+
+    /** CRC-32 and length of a file, which a stored entry declares before its bytes. */
+    static final class Checksum {
+        final long crc;
+        final long size;
+
+        Checksum(long crc, long size) {
+            this.crc = crc;
+            this.size = size;
+        }
+    }
+
+    private final ContentResolver resolver;
+
+    public ZipExporter(ContentResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    /**
+     * Writes {@code images} into the document at {@code target}, replacing its contents.
+     * An image that can't be opened is skipped and counted as failed.
+     *
+     * @throws IOException if the archive itself can't be written
+     * @throws CancellationException if the thread is interrupted
+     */
+    public Result export(List<ImageItem> images, Uri target, Listener listener) throws IOException {
+        long start = SystemClock.elapsedRealtime();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        Set<String> entryNames = new HashSet<>();
+        long bytes = 0;
+        int exported = 0;
+        int failed = 0;
+
+        OutputStream out = resolver.openOutputStream(target, "wt");
+        if (out == null) {
+            throw new IOException("Cannot open " + target);
+        }
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, BUFFER_SIZE))) {
+            for (int i = 0; i < images.size(); i++) {
+                checkCancelled();
+                ImageItem item = images.get(i);
+                InputStream in = open(item);
+                Checksum stored = null;
+                if (in != null && isCompressed(item.getName())) {
+                    stored = checksum(in, item, buffer);
+                    in = stored != null ? open(item) : null;
+                }
+                if (in == null) {
+                    failed++;
+                } else {
+                    // Once an entry is started a read error can't be skipped cleanly, so it ends the export
+                    try (InputStream source = in) {
+                        bytes += writeEntry(zip, source, uniqueName(entryNames, item.getName()), item.getDate(),
+                                stored, buffer, i, images.size(), bytes, start, listener);
+                        exported++;
+                    } catch (InterruptedIOException e) {
+                        throw cancelled();
+                    }
+                }
+                if (listener != null) {
+                    listener.onProgress(i + 1, images.size(), bytes, SystemClock.elapsedRealtime() - start);
+                }
+            }
+        }
+
+        Result result = new Result(exported, failed, bytes, SystemClock.elapsedRealtime() - start);
+        Log.d(TAG, "Exported " + exported + " images (" + failed + " failed), " + bytes + " bytes in "
+                + result.millis + " ms (" + String.format(Locale.US, "%.1f", result.getMegabytesPerSecond()) + " MB/s)");
+        return result;
+    }
+
+    // Null if the image is gone or unreadable; it is then left out of the archive
+    private InputStream open(ImageItem item) {
+        try {
+            return resolver.openInputStream(Uri.parse(item.getUri()));
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Skipping " + item.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Reads and closes the stream; null if it fails part way, and the image is then left out
+    private static Checksum checksum(InputStream in, ImageItem item, byte[] buffer) {
+        CRC32 crc = new CRC32();
+        long size = 0;
+        long nextCheck = PROGRESS_INTERVAL_BYTES;
+        try (InputStream source = in) {
+            int length;
+            while ((length = source.read(buffer)) > 0) {
+                crc.update(buffer, 0, length);
+                size += length;
+                if (size >= nextCheck) {
+                    checkCancelled();
+                    nextCheck += PROGRESS_INTERVAL_BYTES;
+                }
+            }
+        } catch (InterruptedIOException e) {
+            throw cancelled();
+        } catch (IOException e) {
+            Log.w(TAG, "Skipping " + item.getName() + ": " + e.getMessage());
+            return null;
+        }
+        return new Checksum(crc.getValue(), size);
+    }
+
+    /**
+     * Copies one file into a new entry through {@code buffer}; returns the bytes read.
+     * The entry is stored with the given checksum, or deflated if it is null; a stored file that
+     * changed since it was checksummed fails the entry. {@code bytesBefore} and {@code start}
+     * only feed the progress reports.
+     */
+    static long writeEntry(ZipOutputStream zip, InputStream in, String name, long date, Checksum stored,
+                           byte[] buffer, int index, int fileCount, long bytesBefore, long start,
+                           Listener listener) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        if (date > 0) {
+            entry.setTime(date);
+        }
+        if (stored != null) {
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(stored.size);
+            entry.setCompressedSize(stored.size);
+            entry.setCrc(stored.crc);
+        }
+        zip.putNextEntry(entry);
+
+        long read = 0;
+        long nextReport = PROGRESS_INTERVAL_BYTES;
+        int length;
+        while ((length = in.read(buffer)) > 0) {
+            zip.write(buffer, 0, length);
+            read += length;
+            if (read >= nextReport) {
+                checkCancelled();
+                nextReport += PROGRESS_INTERVAL_BYTES;
+                if (listener != null) {
+                    listener.onProgress(index, fileCount, bytesBefore + read, SystemClock.elapsedRealtime() - start);
+                }
+            }
+        }
+        zip.closeEntry();
+        return read;
+    }
+
+    static boolean isCompressed(String fileName) {
+        int code = GalleryQuery.extensionCode(fileName);
+        return code != GalleryQuery.EXT_BMP && code != GalleryQuery.EXT_OTHER;
+    }
+
+    // SAF folders can hold two documents with the same display name; ZIP entries must differ
+    static String uniqueName(Set<String> used, String name) {
+        String base = name != null && !name.isEmpty() ? name : "image";
+        if (used.add(base)) {
+            return base;
+        }
+        int dot = base.lastIndexOf('.');
+        String stem = dot > 0 ? base.substring(0, dot) : base;
+        String extension = dot > 0 ? base.substring(dot) : "";
+        for (int n = 2; ; n++) {
+            String candidate = stem + " (" + n + ")" + extension;
+            if (used.add(candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    public static double megabytesPerSecond(long bytes, long millis) {
+        return millis == 0 ? 0 : (bytes / (1024.0 * 1024.0)) / (millis / 1000.0);
+    }
+
+    private static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw cancelled();
+        }
+    }
+
+    private static CancellationException cancelled() {
+        return new CancellationException("Export cancelled");
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.cameragallery;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Retained heap per item of the compact list against a plain list of {@link ImageItem}s (printed,
+ * since heap readings vary between JVMs), and the row comparisons DiffUtil relies on.
+ */
+public class CompactImageListTest {
+    private static final int ITEMS = 100_000;
+    private static final String TREE = "content://com.android.externalstorage.documents/tree/primary%3ADCIM%2FCamera";
+
+    @Test
+    public void retainedHeap_comparedWithImageItems() {
+        // Each list is built from fresh strings, as a folder scan would produce them
+        long before = usedHeap();
+        List<ImageItem> plain = new ArrayList<>(ITEMS);
+        for (int i = 0; i < ITEMS; i++) {
+            plain.add(item(i));
+        }
+        long plainBytes = usedHeap() - before;
+
+        before = usedHeap();
+        CompactImageList.Builder builder = new CompactImageList.Builder(ITEMS);
+        for (int i = 0; i < ITEMS; i++) {
+            builder.add(item(i));
+        }
+        CompactImageList compact = builder.build();
+        long compactBytes = usedHeap() - before;
+
+        System.out.printf("Retained heap per item: ImageItem list %.1f bytes, compact list %.1f bytes%n",
+                (double) plainBytes / ITEMS, (double) compactBytes / ITEMS);
+        assertEquals(plain.size(), compact.size());
+        assertEquals(plain.get(ITEMS - 1), compact.get(ITEMS - 1));
+    }
+
+    @Test
+    public void build_isNotChangedByLaterRows() {
+        ImageItem outside = new ImageItem("content://other/tree/x/document/y", "y.png", null, 5, 6);
+        CompactImageList.Builder builder = new CompactImageList.Builder(16);
+        for (int i = 0; i < 16; i++) {
+            builder.add(item(i));
+        }
+        CompactImageList first = builder.build();
+        builder.add(outside);
+        CompactImageList second = builder.build();
+
+        assertEquals(16, first.size());
+        for (int i = 0; i < 16; i++) {
+            assertEquals(item(i), first.get(i));
+        }
+        assertEquals(outside, second.get(16));
+    }
+
+    @Test
+    public void get_returnsTheItemsThatWereAdded() {
+        ImageItem outside = new ImageItem("content://other/tree/x/document/y", "y.png", null, 5, 6);
+        ImageItem renamed = new ImageItem(item(1).getUri(), "Display name.jpg", item(1).getPath(), 3, 4);
+        CompactImageList list = CompactImageList.of(Arrays.asList(item(0), outside, renamed));
+
+        assertEquals(item(0), list.get(0));
+        assertEquals(outside, list.get(1));
+        assertEquals(renamed, list.get(2));
+    }
+
+    @Test
+    public void sameContents_comparesEveryColumn() {
+        CompactImageList list = CompactImageList.of(Arrays.asList(
+                item(0),
+                item(1),
+                new ImageItem(item(2).getUri(), "Display name.jpg", item(2).getPath(), item(2).getSize(), item(2).getDate()),
+                new ImageItem("content://other/tree/x/document/y", "y.png", null, 5, 6)));
+        CompactImageList copy = new CompactImageList.Builder(4)
+                .addFrom(list, 0)
+                .add(item(1).getUri(), item(1).getName(), item(1).getPath(), item(1).getSize(), item(1).getDate() + 1)
+                .add(item(2))
+                .add(new ImageItem("content://other/tree/x/document/y", "y.png", null, 5, 6))
+                .build();
+
+        assertTrue(list.sameContents(0, copy, 0));
+        assertFalse("date changed", list.sameContents(1, copy, 1));
+        assertFalse("name changed", list.sameContents(2, copy, 2));
+        assertTrue("row outside the folder", list.sameContents(3, copy, 3));
+        assertFalse("different rows", list.sameContents(0, copy, 3));
+    }
+
+    private static ImageItem item(int i) {
+        String name = "IMG_20240101_" + (100000 + i) + ".jpg";
+        return new ImageItem(TREE + "/document/primary%3ADCIM%2FCamera%2F" + name, name,
+                "/tree/primary:DCIM/Camera/document/primary:DCIM/Camera/" + name,
+                3_000_000L + i, 1_700_000_000_000L + i * 1000L);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.cameragallery;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.provider.DocumentsContract.Document;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measures time-to-first-page and total index time of {@link FolderIndexer} over a
+ * 20k-file folder served by a fake documents provider.
+ * Timings are printed; the asserts only check that pages arrive in the promised shape.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FolderIndexerBenchmark {
+    private static final String AUTHORITY = "com.example.cameragallery.bench";
+    private static final int FILES = 20_000;
+    private static final int WARMUP_RUNS = 3;
+    private static final int RUNS = 10;
+
+    /** Serves one children cursor; every 50th row is a folder and every 20th a non-image. */
+    public static class FakeDocumentsProvider extends ContentProvider {
+        @Override
+        public boolean onCreate() {
+            return true;
+        }
+
+        @Override
+        public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+            MatrixCursor cursor = new MatrixCursor(projection, FILES);
+            for (int i = 0; i < FILES; i++) {
+                String mimeType = i % 50 == 0 ? Document.MIME_TYPE_DIR : "image/jpeg";
+                String name = i % 20 == 0 ? "notes_" + i + ".txt" : "IMG_" + i + ".jpg";
+                Object[] row = new Object[projection.length];
+                for (int column = 0; column < projection.length; column++) {
+                    switch (projection[column]) {
+                        case Document.COLUMN_DOCUMENT_ID:
+                            row[column] = "primary:DCIM/Camera/" + name;
+                            break;
+                        case Document.COLUMN_DISPLAY_NAME:
+                            row[column] = name;
+                            break;
+                        case Document.COLUMN_SIZE:
+                            row[column] = 4_000_000L + i;
+                            break;
+                        case Document.COLUMN_LAST_MODIFIED:
+                            row[column] = 1_700_000_000_000L + i * 1000L;
+                            break;
+                        case Document.COLUMN_MIME_TYPE:
+                            row[column] = mimeType;
+                            break;
+                        default:
+                            row[column] = null;
+                    }
+                }
+                cursor.addRow(row);
+            }
+            return cursor;
+        }
+
+        @Override
+        public String getType(Uri uri) {
+            return null;
+        }
+
+        @Override
+        public Uri insert(Uri uri, ContentValues values) {
+            return null;
+        }
+
+        @Override
+        public int delete(Uri uri, String selection, String[] selectionArgs) {
+            return 0;
+        }
+
+        @Override
+        public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+            return 0;
+        }
+    }
+
+    private static final class Timings implements FolderIndexer.Callback {
+        final long start = System.nanoTime();
+        long firstPageNanos = -1;
+        int firstPageSize;
+        int pages;
+        int total = -1;
+
+        @Override
+        public void onPage(List<ImageItem> page, boolean firstPage) {
+            if (firstPage) {
+                firstPageNanos = System.nanoTime() - start;
+                firstPageSize = page.size();
+            }
+            pages++;
+        }
+
+        @Override
+        public void onComplete(int total, long firstPageMillis, long totalMillis) {
+            this.total = total;
+        }
+    }
+
+    @Test
+    public void index_firstPageArrivesBeforeTheWholeFolder() {
+        Robolectric.buildContentProvider(FakeDocumentsProvider.class).create(AUTHORITY);
+        Uri treeUri = DocumentsContract.buildTreeDocumentUri(AUTHORITY, "primary:DCIM/Camera");
+        FolderIndexer indexer = new FolderIndexer(RuntimeEnvironment.getApplication().getContentResolver(), treeUri);
+
+        int expected = 0;
+        for (int i = 0; i < FILES; i++) {
+            if (i % 50 != 0 && i % 20 != 0) expected++;
+        }
+
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            indexer.index(new Timings());
+        }
+
+        long firstPageSum = 0;
+        long totalSum = 0;
+        for (int i = 0; i < RUNS; i++) {
+            Timings timings = new Timings();
+            assertTrue(indexer.index(timings));
+            long totalNanos = System.nanoTime() - timings.start;
+
+            assertEquals(expected, timings.total);
+            assertEquals(FolderIndexer.FIRST_PAGE_SIZE, timings.firstPageSize);
+            assertEquals(1 + (expected - FolderIndexer.FIRST_PAGE_SIZE + FolderIndexer.PAGE_SIZE - 1)
+                    / FolderIndexer.PAGE_SIZE, timings.pages);
+            assertTrue(timings.firstPageNanos < totalNanos);
+            firstPageSum += timings.firstPageNanos;
+            totalSum += totalNanos;
+        }
+
+        System.out.printf("FolderIndexer, %d files: first page %.2f ms, total %.2f ms (mean of %d runs)%n",
+                FILES, firstPageSum / 1e6 / RUNS, totalSum / 1e6 / RUNS, RUNS);
+    }
+}
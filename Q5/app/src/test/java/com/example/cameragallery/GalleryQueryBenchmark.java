@@ -0,0 +1,109 @@
+package com.example.cameragallery;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * JMH-style timing of index building, sorting and grouping at 10k, 50k and 200k images.
+ * Every operation gets warm-up iterations before the measured ones, and the mean is printed.
+ * The asserts check the results, so a fast but wrong sort can't pass. Bytes a sort allocates
+ * per item are printed too; they would grow with log n if comparisons allocated.
+ */
+public class GalleryQueryBenchmark {
+    private static final int[] SIZES = {10_000, 50_000, 200_000};
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int ITERATIONS = 10;
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final String TREE = "content://com.android.externalstorage.documents/tree/primary%3ADCIM%2FCamera";
+
+    private interface Operation {
+        Object run();
+    }
+
+    @Test
+    public void sortAndGroup_scaleWithoutPerComparisonAllocation() {
+        for (int size : SIZES) {
+            CompactImageList images = images(size);
+            GalleryQuery.Index index = new GalleryQuery.Index(images, UTC);
+
+            time("index", size, () -> new GalleryQuery.Index(images, UTC));
+            List<GalleryRow> byDate = time("sort date", size,
+                    () -> GalleryQuery.DEFAULT.withSort(GalleryQuery.Sort.DATE_NEWEST).run(index));
+            time("sort size", size, () -> GalleryQuery.DEFAULT.withSort(GalleryQuery.Sort.SIZE_LARGEST).run(index));
+            List<GalleryRow> byName = time("sort name", size,
+                    () -> GalleryQuery.DEFAULT.withSort(GalleryQuery.Sort.NAME).run(index));
+            List<GalleryRow> byDay = time("group day", size, () -> GalleryQuery.DEFAULT
+                    .withSort(GalleryQuery.Sort.DATE_NEWEST).withGrouping(GalleryQuery.Grouping.DAY).run(index));
+            time("group month", size, () -> GalleryQuery.DEFAULT
+                    .withSort(GalleryQuery.Sort.DATE_NEWEST).withGrouping(GalleryQuery.Grouping.MONTH).run(index));
+
+            assertEquals(size, byDate.size());
+            for (int i = 1; i < size; i++) {
+                assertTrue(byDate.get(i - 1).getImage().getDate() >= byDate.get(i).getImage().getDate());
+                assertTrue(byName.get(i - 1).getImage().getName()
+                        .compareToIgnoreCase(byName.get(i).getImage().getName()) <= 0);
+            }
+            int headers = 0;
+            for (GalleryRow row : byDay) {
+                if (row.getType() == GalleryRow.TYPE_HEADER) headers++;
+            }
+            assertEquals(size, byDay.size() - headers);
+
+            long allocated = allocatedBytes(() -> GalleryQuery.DEFAULT.withSort(GalleryQuery.Sort.DATE_NEWEST).run(index));
+            if (allocated >= 0) {
+                System.out.printf("sort date    %,8d items: %8.1f bytes/item allocated%n", size, (double) allocated / size);
+            }
+        }
+    }
+
+    // Bytes allocated by this thread while running the operation, or -1 if the JVM can't tell
+    private static long allocatedBytes(Operation operation) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        long thread = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(thread);
+        operation.run();
+        return allocations.getThreadAllocatedBytes(thread) - before;
+    }
+
+    // Folder of camera shots a few per day over the last years, in an arbitrary folder order
+    private static CompactImageList images(int count) {
+        Random random = new Random(count);
+        long now = 1_700_000_000_000L;
+        CompactImageList.Builder builder = new CompactImageList.Builder(count);
+        for (int i = 0; i < count; i++) {
+            String name = "IMG_" + (100_000 + random.nextInt(900_000)) + ".jpg";
+            builder.add(TREE + "/document/primary%3ADCIM%2FCamera%2F" + name, name,
+                    "/tree/primary:DCIM/Camera/document/primary:DCIM/Camera/" + name,
+                    1_000_000 + random.nextInt(11_000_000),
+                    now - (long) (random.nextDouble() * 3 * 365 * 24 * 60 * 60 * 1000L));
+        }
+        return builder.build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T time(String name, int size, Operation operation) {
+        Object result = null;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            result = operation.run();
+        }
+        long total = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            result = operation.run();
+            total += System.nanoTime() - start;
+        }
+        System.out.printf("%-12s %,8d items: %8.2f ms/op%n", name, size, total / 1e6 / ITERATIONS);
+        return (T) result;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.cameragallery;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Keyed tasks on a full pool: the new task is dropped, and the earlier one for the key still runs.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class GallerySchedulerTest {
+
+    @Test
+    public void executeLatest_onFullPool_keepsTheEarlierTask() throws Exception {
+        GalleryScheduler scheduler = GalleryScheduler.getInstance();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch earlierRan = new CountDownLatch(1);
+        Runnable blocked = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        Future<?> earlier = scheduler.executeLatest("scan", () -> {
+            blocked.run();
+            earlierRan.countDown();
+        });
+        // Fill the workers and the queue
+        List<Future<?>> fillers = new ArrayList<>();
+        Future<?> filler;
+        while (!(filler = scheduler.execute(blocked)).isCancelled()) {
+            fillers.add(filler);
+        }
+
+        Future<?> later = scheduler.executeLatest("scan", () -> fail("dropped task ran"));
+        assertTrue(later.isCancelled());
+        assertFalse(earlier.isCancelled());
+
+        release.countDown();
+        assertTrue("earlier task never finished", earlierRan.await(5, TimeUnit.SECONDS));
+        for (Future<?> running : fillers) {
+            running.get(5, TimeUnit.SECONDS);
+        }
+
+        // Once the queue drains the key takes new tasks again
+        CountDownLatch next = new CountDownLatch(1);
+        scheduler.executeLatest("scan", next::countDown);
+        assertTrue(next.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.cameragallery;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measures what the deduplicating save's SHA-256 costs: a plain transferTo, the mapped hash
+ * pass alone, and the hash followed by the copy as a new photo is saved. A retried save stops
+ * after the hash, so it costs only the hash pass. Best of several runs; MB/s is printed.
+ * Only the digests are asserted; wall-clock comparisons would be flaky on a loaded machine.
+ */
+public class PhotoSaverHashBenchmark {
+    private static final int CAPTURE_BYTES = 12 * 1024 * 1024;
+    private static final int WARMUP_RUNS = 3;
+    private static final int RUNS = 10;
+
+    private static File source;
+    private static File target;
+    private static String expectedHash;
+
+    private interface Copy {
+        String run() throws IOException;
+    }
+
+    @BeforeClass
+    public static void createCapture() throws IOException, NoSuchAlgorithmException {
+        byte[] bytes = new byte[CAPTURE_BYTES];
+        new Random(17).nextBytes(bytes);
+        source = File.createTempFile("capture", ".jpg");
+        target = File.createTempFile("saved", ".jpg");
+        try (OutputStream out = new FileOutputStream(source)) {
+            out.write(bytes);
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(bytes)) {
+            hex.append(String.format("%02x", b));
+        }
+        expectedHash = hex.toString();
+    }
+
+    @AfterClass
+    public static void deleteCapture() {
+        source.delete();
+        target.delete();
+    }
+
+    @Test
+    public void hashBeforeCopy_reportsTheHashCost() throws Exception {
+        long plain = best("transferTo", () -> {
+            transfer();
+            return null;
+        });
+        long hashOnly = best("hash only", () -> PhotoSaver.hash(source));
+        long hashed = best("hash+copy", () -> {
+            String hash = PhotoSaver.hash(source);
+            transfer();
+            return hash;
+        });
+
+        System.out.printf("Hashing adds %.0f%% to a new save; a retried save costs %.0f%% of a copy (%d cores)%n",
+                100.0 * (hashed - plain) / plain, 100.0 * hashOnly / plain,
+                Runtime.getRuntime().availableProcessors());
+        assertEquals(CAPTURE_BYTES, target.length());
+    }
+
+    private static void transfer() throws IOException {
+        try (FileInputStream in = new FileInputStream(source);
+             FileOutputStream out = new FileOutputStream(target)) {
+            PhotoSaver.transfer(in.getChannel(), out.getChannel(), CAPTURE_BYTES, null);
+        }
+    }
+
+    private static long best(String name, Copy copy) throws IOException {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            copy.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            String hash = copy.run();
+            best = Math.min(best, System.nanoTime() - start);
+            if (hash != null) {
+                assertEquals(name, expectedHash, hash);
+            }
+        }
+        System.out.printf("%-12s %7.2f ms  %8.1f MB/s%n", name, best / 1e6,
+                (CAPTURE_BYTES / (1024.0 * 1024.0)) / (best / 1e9));
+        return best;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.cameragallery.benchmark;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.net.Uri;
+import android.os.Build;
+import android.provider.MediaStore;
+
+import androidx.annotation.OptIn;
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.ExperimentalMetricApi;
+import androidx.benchmark.macro.TraceSectionMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.regex.Pattern;
+
+import kotlin.Unit;
+
+import static com.example.cameragallery.benchmark.StartupBenchmark.PACKAGE_NAME;
+import static com.example.cameragallery.benchmark.StartupBenchmark.TIMEOUT_MILLIS;
+import static com.example.cameragallery.benchmark.StartupBenchmark.waitForSavedFolder;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Time from tapping View Gallery to the gallery's first rows, read from the app's TimeToGallery
+ * trace section. Each iteration starts the app cold and taps as soon as the saved folder is
+ * shown, which is when the prewarmed index and thumbnails have to pay off.
+ * The app needs a save folder, plus storage permission below Android 11: that is granted from the shell, and
+ * Pictures/CameraGalleryBench, filled with sample photos, is picked through the system folder
+ * picker on the first run and remembered by the app after that.
+ */
+@RunWith(AndroidJUnit4.class)
+public class GalleryBenchmark {
+    private static final String TRACE_TIME_TO_GALLERY = "TimeToGallery";
+    private static final String FOLDER_NAME = "CameraGalleryBench";
+    private static final int IMAGES = 300;
+    private static final int IMAGE_WIDTH = 1600;
+    private static final int IMAGE_HEIGHT = 1200;
+    private static final int ITERATIONS = 10;
+
+    @Rule
+    public final MacrobenchmarkRule rule = new MacrobenchmarkRule();
+
+    private UiDevice device;
+
+    @Before
+    public void prepareFolder() throws IOException {
+        // Async trace sections and app-owned MediaStore inserts both need Android 10
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q);
+        device = UiDevice.getInstance(InstrumentationRegistry.getInstrumentation());
+        grantStorageAccess();
+        createImages();
+        pickFolderIfNeeded();
+    }
+
+    @Test
+    @OptIn(markerClass = ExperimentalMetricApi.class)
+    public void timeToGallery() {
+        rule.measureRepeated(PACKAGE_NAME,
+                Collections.singletonList(new TraceSectionMetric(TRACE_TIME_TO_GALLERY,
+                        TraceSectionMetric.Mode.First.INSTANCE, true)),
+                new CompilationMode.Partial(BaselineProfileMode.Require, 0), null, ITERATIONS,
+                scope -> {
+                    scope.killProcess();
+                    scope.startActivityAndWait();
+                    waitForSavedFolder(scope.getDevice());
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.getDevice().findObject(By.res(PACKAGE_NAME, "btnViewGallery")).click();
+                    assertTrue("gallery showed no images", scope.getDevice().wait(
+                            Until.hasObject(By.res(PACKAGE_NAME, "imageView")), TIMEOUT_MILLIS));
+                    return Unit.INSTANCE;
+                });
+    }
+
+    // From Android 11 the app only needs the folder's SAF grant, which the picker gives it
+    private void grantStorageAccess() throws IOException {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R) {
+            device.executeShellCommand("pm grant " + PACKAGE_NAME + " android.permission.READ_EXTERNAL_STORAGE");
+            device.executeShellCommand("pm grant " + PACKAGE_NAME + " android.permission.WRITE_EXTERNAL_STORAGE");
+        }
+    }
+
+    // Sample photos go in through MediaStore, which needs no permission for this app's own files
+    private void createImages() throws IOException {
+        String listing = device.executeShellCommand("ls /sdcard/Pictures/" + FOLDER_NAME);
+        int existing = listing.trim().isEmpty() ? 0 : listing.trim().split("\\s+").length;
+        if (existing >= IMAGES) {
+            return;
+        }
+
+        Context context = InstrumentationRegistry.getInstrumentation().getContext();
+        ContentResolver resolver = context.getContentResolver();
+        Bitmap bitmap = Bitmap.createBitmap(IMAGE_WIDTH, IMAGE_HEIGHT, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint();
+        for (int i = existing; i < IMAGES; i++) {
+            paint.setShader(new LinearGradient(0, 0, IMAGE_WIDTH, IMAGE_HEIGHT,
+                    0xFF000000 | (i * 0x060311), 0xFFFFFFFF ^ (i * 0x0A0507), Shader.TileMode.MIRROR));
+            canvas.drawRect(0, 0, IMAGE_WIDTH, IMAGE_HEIGHT, paint);
+
+            ContentValues values = new ContentValues();
+            values.put(MediaStore.Images.Media.DISPLAY_NAME, "IMG_BENCH_" + i + ".jpg");
+            values.put(MediaStore.Images.Media.MIME_TYPE, "image/jpeg");
+            values.put(MediaStore.Images.Media.RELATIVE_PATH, "Pictures/" + FOLDER_NAME);
+            Uri uri = resolver.insert(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, values);
+            if (uri == null) {
+                throw new IOException("Cannot create sample image " + i);
+            }
+            try (OutputStream out = resolver.openOutputStream(uri)) {
+                if (out == null) {
+                    throw new IOException("Cannot write " + uri);
+                }
+                bitmap.compress(Bitmap.CompressFormat.JPEG, 85, out);
+            }
+        }
+        bitmap.recycle();
+    }
+
+    // The folder grant survives process restarts, so the picker only shows up on a fresh install
+    private void pickFolderIfNeeded() throws IOException {
+        device.executeShellCommand("am start -W -n " + PACKAGE_NAME + "/.MainActivity");
+        UiObject2 location = waitForSavedFolder(device);
+        if (location.getText().contains(FOLDER_NAME)) {
+            return;
+        }
+
+        device.findObject(By.res(PACKAGE_NAME, "btnChangeSaveFolder")).click();
+        if (!device.wait(Until.hasObject(By.text(FOLDER_NAME)), TIMEOUT_MILLIS)) {
+            UiObject2 pictures = device.wait(Until.findObject(By.text("Pictures")), TIMEOUT_MILLIS);
+            assertNotNull("Folder picker didn't open at the storage root; pick Pictures/" + FOLDER_NAME
+                    + " in the app once by hand and rerun", pictures);
+            pictures.click();
+        }
+        device.wait(Until.findObject(By.text(FOLDER_NAME)), TIMEOUT_MILLIS).click();
+        device.wait(Until.findObject(By.text(Pattern.compile("(?i)use this folder"))), TIMEOUT_MILLIS).click();
+        device.wait(Until.findObject(By.text(Pattern.compile("(?i)allow"))), TIMEOUT_MILLIS).click();
+
+        assertTrue("save folder was not set", device.wait(Until.hasObject(
+                By.res(PACKAGE_NAME, "tvSaveLocation").textContains(FOLDER_NAME)), TIMEOUT_MILLIS));
+        device.pressHome();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.cameragallery.benchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import kotlin.Unit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Cold start of the capture screen, measured without AOT compilation and with the app's
+ * baseline profile. timeToInitialDisplay is the first frame; timeToFullDisplay ends at
+ * reportFullyDrawn(), once the saved folder has been read off the main thread and shown.
+ * Run with {@code ./gradlew :benchmark:connectedBenchmarkAndroidTest} on a device or emulator.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+    static final String PACKAGE_NAME = "com.example.cameragallery";
+    static final long TIMEOUT_MILLIS = 5_000;
+    private static final int ITERATIONS = 10;
+
+    @Rule
+    public final MacrobenchmarkRule rule = new MacrobenchmarkRule();
+
+    @Test
+    public void startupWithoutCompilation() {
+        startup(new CompilationMode.None());
+    }
+
+    @Test
+    public void startupWithBaselineProfile() {
+        startup(new CompilationMode.Partial(BaselineProfileMode.Require, 0));
+    }
+
+    private void startup(CompilationMode compilationMode) {
+        rule.measureRepeated(PACKAGE_NAME, Collections.singletonList(new StartupTimingMetric()),
+                compilationMode, StartupMode.COLD, ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.startActivityAndWait();
+                    waitForSavedFolder(scope.getDevice());
+                    return Unit.INSTANCE;
+                });
+    }
+
+    /** Waits until the capture screen has read the saved folder, and returns its location text. */
+    static UiObject2 waitForSavedFolder(UiDevice device) {
+        // The layout says "Save location"; the loaded state replaces it with "Location: ..."
+        UiObject2 location = device.wait(Until.findObject(
+                By.res(PACKAGE_NAME, "tvSaveLocation").textStartsWith("Location")), TIMEOUT_MILLIS);
+        assertNotNull("saved folder was never shown", location);
+        return location;
+    }
+}